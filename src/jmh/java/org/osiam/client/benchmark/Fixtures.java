@@ -0,0 +1,41 @@
+package org.osiam.client.benchmark;
+/*
+ * for licensing see the file license.txt.
+ */
+
+/**
+ * JSON documents shaped like the responses of OSIAM.
+ */
+final class Fixtures {
+
+    static final String ACCESS_TOKEN = "{\"access_token\": \"c5d116cb-2758-4e7c-9aca-4a115bc4f19e\", "
+            + "\"token_type\": \"bearer\", \"expires_in\": 3599, \"scope\": \"DELETE GET PATCH POST PUT\"}";
+
+    private Fixtures() {
+    }
+
+    static String user(int number) {
+        return "{\"schemas\": [\"urn:scim:schemas:core:1.0\"], "
+                + "\"id\": \"" + String.format("94bbe688-4b1e-4e4e-80e7-%012d", number) + "\", "
+                + "\"externalId\": \"bjensen" + number + "\", "
+                + "\"meta\": {\"created\": \"2011-08-01T18:29:49.000Z\", \"lastModified\": \"2011-08-01T18:29:49.000Z\", "
+                + "\"resourceType\": \"User\"}, "
+                + "\"name\": {\"formatted\": \"Ms. Barbara J Jensen III\", \"familyName\": \"Jensen\", \"givenName\": \"Barbara\"}, "
+                + "\"userName\": \"bjensen" + number + "\", "
+                + "\"phoneNumbers\": [{\"value\": \"555-555-8377\", \"type\": \"work\"}], "
+                + "\"displayName\": \"BarbaraJ.\", \"nickName\": \"Barbara\", \"locale\": \"de\", \"title\": \"Dr.\", "
+                + "\"emails\": [{\"value\": \"bjensen" + number + "@example.com\", \"type\": \"work\"}]}";
+    }
+
+    static String pageOfUsers(int size) {
+        StringBuilder page = new StringBuilder("{\"totalResults\": " + size + ", \"itemsPerPage\": " + size
+                + ", \"startIndex\": 0, \"schemas\": \"urn:scim:schemas:core:1.0\", \"Resources\": [");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                page.append(", ");
+            }
+            page.append(user(i));
+        }
+        return page.append("]}").toString();
+    }
+}
@@ -0,0 +1,75 @@
+package org.osiam.client.benchmark;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osiam.client.query.Query;
+import org.osiam.client.query.SortOrder;
+import org.osiam.client.query.metamodel.Meta_;
+import org.osiam.client.query.metamodel.Parameter;
+import org.osiam.client.query.metamodel.User_;
+import org.osiam.resources.scim.User;
+
+/**
+ * Measures building queries: filter composition with validation, a bound filter template, the query string and
+ * paging by rewriting the startIndex.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final long LAST_SYNC = 1380000000000L;
+
+    private Query.Filter template;
+    private Query.Filter filter;
+    private Query query;
+
+    @Setup
+    public void setUp() {
+        template = new Query.Filter(User.class).startsWith(User_.userName.equalTo(Parameter.named("userName")))
+                .and(Meta_.lastModified.greaterThan(Parameter.named("since")));
+        filter = composeFilter();
+        query = new Query.Builder(User.class).filter(filter).sortBy(User_.userName).countPerPage(50).startIndex(100)
+                .build();
+    }
+
+    @Benchmark
+    public Query.Filter composeFilter() {
+        Query.Filter inner = new Query.Filter(User.class).startsWith(User_.emails.value.contains("example.com"))
+                .or(User_.name.familyName.startsWith("Jen"));
+        return new Query.Filter(User.class).startsWith(User_.userName.equalTo("bjensen"))
+                .and(Meta_.lastModified.greaterThan(LAST_SYNC)).and(inner);
+    }
+
+    @Benchmark
+    public Query.Filter bindTemplate() {
+        return template.bind("userName", "bjensen").bind("since", "2013-09-24T07:20:00.000");
+    }
+
+    @Benchmark
+    public Query buildQuery() {
+        return new Query.Builder(User.class).filter(filter).sortBy(User_.userName).sortOrder(SortOrder.ASCENDING)
+                .countPerPage(50).startIndex(100).build();
+    }
+
+    @Benchmark
+    public Query nextPage() {
+        return query.nextPage();
+    }
+}
@@ -0,0 +1,79 @@
+package org.osiam.client.benchmark;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osiam.client.OsiamUserService;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.resources.scim.User;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Measures the full getUserByUUID round-trip, from the request over the connection pool to the mapped user, against
+ * a stub server on the loopback interface that answers every request with the same user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundTripBenchmark {
+
+    private HttpServer server;
+    private OsiamUserService service;
+    private AccessToken accessToken;
+    private UUID id;
+
+    @Setup
+    public void setUp() throws IOException {
+        final byte[] user = Fixtures.user(0).getBytes("UTF-8");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/osiam-server/Users", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, user.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(user);
+                }
+            }
+        });
+        server.start();
+
+        service = new OsiamUserService.Builder("http://localhost:" + server.getAddress().getPort() + "/osiam-server").build();
+        accessToken = new ObjectMapper().readValue(Fixtures.ACCESS_TOKEN, AccessToken.class);
+        id = UUID.fromString("94bbe688-4b1e-4e4e-80e7-000000000000");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public User getUserByUUID() {
+        return service.getUserByUUID(id, accessToken);
+    }
+}
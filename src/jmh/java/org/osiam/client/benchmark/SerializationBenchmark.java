@@ -0,0 +1,68 @@
+package org.osiam.client.benchmark;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectReader;
+import org.codehaus.jackson.map.ObjectWriter;
+import org.codehaus.jackson.map.SerializationConfig;
+import org.codehaus.jackson.map.type.TypeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osiam.client.query.QueryResult;
+import org.osiam.resources.scim.User;
+
+/**
+ * Measures the JSON mapping the services do for every request: deserializing a page of users at several page sizes
+ * and serializing a user as it is sent by createUser. The mapper is configured like the one of the services.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(SerializationConfig.Feature.FAIL_ON_EMPTY_BEANS, false);
+
+    @Param({"10", "100", "1000"})
+    private int pageSize;
+
+    private ObjectReader queryResultReader;
+    private ObjectWriter userWriter;
+    private byte[] page;
+    private User user;
+
+    @Setup
+    public void setUp() throws IOException {
+        queryResultReader = MAPPER.reader(TypeFactory.defaultInstance().constructParametricType(QueryResult.class, User.class));
+        userWriter = MAPPER.writerWithType(User.class);
+        page = Fixtures.pageOfUsers(pageSize).getBytes("UTF-8");
+        user = MAPPER.readValue(Fixtures.user(0), User.class);
+    }
+
+    @Benchmark
+    public QueryResult<User> deserializePage() throws IOException {
+        return queryResultReader.readValue(page);
+    }
+
+    @Benchmark
+    public String serializeUser() throws IOException {
+        return userWriter.writeValueAsString(user);
+    }
+}
@@ -4,32 +4,66 @@ package org.osiam.client;
  */
 
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import static org.apache.http.HttpStatus.SC_NOT_MODIFIED;
 import static org.apache.http.HttpStatus.SC_OK;
 import static org.apache.http.HttpStatus.SC_CREATED;
 import static org.apache.http.HttpStatus.SC_UNAUTHORIZED;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.ParameterizedType;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectReader;
+import org.codehaus.jackson.map.ObjectWriter;
 import org.codehaus.jackson.map.SerializationConfig;
 import org.codehaus.jackson.map.type.TypeFactory;
-import org.codehaus.jackson.type.JavaType;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+import org.osiam.client.cache.ResourceCache;
+import org.osiam.client.cache.ResourceCache.VersionedResource;
+import org.osiam.client.connection.ConnectionPool;
+import org.osiam.client.connection.InterceptorChain;
+import org.osiam.client.connection.RequestInterceptor;
 import org.osiam.client.exception.ConnectionInitializationException;
 import org.osiam.client.exception.NoResultException;
 import org.osiam.client.exception.UnauthorizedException;
+import org.osiam.client.metrics.RequestMetrics;
+import org.osiam.client.metrics.RequestTimer;
 import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.AccessTokenProvider;
 import org.osiam.client.query.Query;
 import org.osiam.client.query.QueryResult;
 import org.osiam.resources.scim.CoreResource;
@@ -38,27 +72,61 @@ import org.osiam.resources.scim.CoreResource;
  * AbstractOsiamService provides all basic methods necessary to manipulate the Entities registered in the
  * given OSIAM installation. For the construction of an instance please use the included {@link AbstractOsiamService.Builder}
  */
-abstract class AbstractOsiamService<T extends CoreResource> {
+abstract class AbstractOsiamService<T extends CoreResource> implements Closeable {
 
+    /**
+     * The mapper is only used to derive the readers and writers, which are immutable and safe to share between
+     * threads. Its configuration must not be changed afterwards.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(SerializationConfig.Feature.FAIL_ON_EMPTY_BEANS, false);
+
+    private static final String BULK_SCHEMA = "urn:scim:schemas:core:1.0";
+
+    private String endpoint;
     private HttpGet webResource;
+    private HttpClient httpClient;
+    private ConnectionPool connectionPool;
+    private ConnectionPool ownConnectionPool;
+    private ExecutorService executor;
+    private ResourceCache<T> resourceCache;
+    private RequestMetrics metrics;
+    private List<RequestInterceptor> interceptors;
     private Class<T> type;
     private String typeName;
-    private ObjectMapper mapper;
+    private ObjectReader resourceReader;
+    private ObjectReader queryResultReader;
+    private ObjectWriter resourceWriter;
 
     /**
      * The protected constructor for the AbstractOsiamService. Please use the {@link AbstractOsiamService.Builder}
      * to construct one.
      *
-     * @param userWebResource a valid WebResource to connect to a given OSIAM server
+     * @param builder the builder holding the configuration of the service
      */
     @SuppressWarnings("unchecked")
-    protected AbstractOsiamService(HttpGet userWebResource) {
-        mapper = new ObjectMapper();
-        webResource = userWebResource;
+    protected AbstractOsiamService(Builder<T> builder) {
+        endpoint = builder.endpoint;
+        webResource = builder.getWebResource();
+        if (builder.connectionPool == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            ownConnectionPool = new ConnectionPool.Builder().build();
+            connectionPool = ownConnectionPool;
+        } else {
+            connectionPool = builder.connectionPool;
+        }
+        httpClient = connectionPool.getHttpClient();
+        executor = builder.getExecutor();
+        resourceCache = builder.resourceCache;
+        metrics = builder.metrics;
+        interceptors = Collections.unmodifiableList(new ArrayList<>(builder.interceptors));
         type = (Class<T>)
                 ((ParameterizedType) getClass().getGenericSuperclass())
                         .getActualTypeArguments()[0];
         typeName = type.getSimpleName();
+
+        resourceReader = MAPPER.reader(type);
+        queryResultReader = MAPPER.reader(TypeFactory.defaultInstance().constructParametricType(QueryResult.class, type));
+        resourceWriter = MAPPER.writerWithType(type);
     }
 
     /**
@@ -70,6 +138,126 @@ abstract class AbstractOsiamService<T extends CoreResource> {
         return webResource.getURI();
     }
 
+    /**
+     * Provide the pooled {@link HttpClient} this Service uses to perform its requests.
+     *
+     * @return The HttpClient used by this Service
+     */
+    protected HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Start measuring a request of this service for the configured {@link RequestMetrics}.
+     *
+     * @param operation the operation of the request, see {@link org.osiam.client.metrics.RequestSample#getOperation()}
+     * @return the running timer, which measures nothing if no metrics are configured
+     */
+    protected RequestTimer startTimer(String operation) {
+        return RequestTimer.start(metrics, operation, typeName);
+    }
+
+    /**
+     * Execute the given request through the configured {@link RequestInterceptor}s. Every request of the service has
+     * to be sent with this method.
+     *
+     * @param request the request to send
+     * @param timer   the timer of the call, see {@link #startTimer(String)}
+     * @return the response to the request
+     * @throws IOException if the request failed
+     */
+    protected HttpResponse execute(HttpUriRequest request, RequestTimer timer) throws IOException {
+        return InterceptorChain.execute(interceptors, connectionPool, timer, request);
+    }
+
+    /**
+     * Execute the given request and read its response with the given handler. The timer is finished afterwards.
+     *
+     * @param request the request to send
+     * @param timer   the timer of the call, see {@link #startTimer(String)}
+     * @param handler maps the response to the result of the call
+     * @param <R>     the type of the result
+     * @return the result of the call
+     * @throws ConnectionInitializationException
+     *         if the request failed
+     */
+    protected <R> R execute(HttpUriRequest request, RequestTimer timer, ResponseHandler<R> handler) {
+        try {
+            return handler.handleResponse(execute(request, timer));
+        } catch (IOException e) {
+            throw new ConnectionInitializationException("Unable to setup connection", e);
+        } finally {
+            timer.finish();
+        }
+    }
+
+    /**
+     * Execute the given request with the non-blocking client of the {@link ConnectionPool}. No thread waits while
+     * the request is underway; once the response has arrived it is read with the given handler on the executor of
+     * this service. The outcome is reported to the returned {@link Future} and, if given, to the callback, with the
+     * same exceptions the handler would throw. Cancelling the Future cancels the request. The request keeps to the
+     * {@link org.osiam.client.connection.Deadline} of the calling thread, if any.
+     *
+     * @param request  the request to send
+     * @param timer    the timer of the call, see {@link #startTimer(String)}
+     * @param handler  maps the response to the result of the call
+     * @param callback the callback to notify on completion, may be null
+     * @param <R>      the type of the result
+     * @return a Future holding the result of the call
+     */
+    protected <R> Future<R> executeAsync(HttpUriRequest request, final RequestTimer timer,
+                                         final ResponseHandler<R> handler, FutureCallback<R> callback) {
+        final Exchange<R> future = new Exchange<>(callback);
+        try {
+            future.start(InterceptorChain.executeAsync(interceptors, connectionPool, timer, request,
+                    new FutureCallback<HttpResponse>() {
+                        @Override
+                        public void completed(HttpResponse response) {
+                            handle(response, timer, handler, future);
+                        }
+
+                        @Override
+                        public void failed(Exception e) {
+                            timer.finish();
+                            future.failed(e instanceof IOException ? new ConnectionInitializationException("Unable to setup connection", e) : e); // NOSONAR - false-positive from clover; if-expression is correct
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            timer.finish();
+                            future.cancel(false);
+                        }
+                    }));
+        } catch (RuntimeException e) {
+            timer.finish();
+            future.failed(e);
+        }
+        return future;
+    }
+
+    private <R> void handle(final HttpResponse response, final RequestTimer timer, final ResponseHandler<R> handler,
+                            final BasicFuture<R> future) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.completed(handler.handleResponse(response));
+                    } catch (IOException e) {
+                        future.failed(new ConnectionInitializationException("Unable to setup connection", e));
+                    } catch (RuntimeException e) {
+                        future.failed(e);
+                    } finally {
+                        timer.finish();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            timer.finish();
+            future.failed(e);
+        }
+    }
+
     /**
      * Retrieve the Resource of the given Type with the given id. If no resource with the given id can be found, an
      * {@link NoResultException} is thrown.
@@ -83,8 +271,6 @@ abstract class AbstractOsiamService<T extends CoreResource> {
      *                               if the connection to the given OSIAM service could be initialized
      */
     protected T getResourceByUUID(UUID id, AccessToken accessToken) {
-        final T resource;
-
         if (id == null) { // NOSONAR - false-positive from clover; if-expression is correct
             throw new IllegalArgumentException("The given id can't be null.");
         }
@@ -93,17 +279,319 @@ abstract class AbstractOsiamService<T extends CoreResource> {
             throw new IllegalArgumentException("The given accessToken can't be null.");
         }
 
+        VersionedResource<T> stale = null;
+        if (resourceCache != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            T cached = resourceCache.get(id);
+            if (cached != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                return cached;
+            }
+            stale = resourceCache.getVersioned(id);
+        }
+
+        return execute(resourceRequest(id, accessToken, stale), startTimer("get"), resourceHandler(id, stale));
+    }
+
+    private HttpGet resourceRequest(UUID id, AccessToken accessToken, VersionedResource<T> stale) {
+        HttpGet realWebResource = createRealWebResource(accessToken);
+        realWebResource.setURI(uriOf(webResource.getURI() + "/" + id.toString()));
+        if (stale != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            realWebResource.addHeader("If-None-Match", stale.getVersion());
+        }
+        return realWebResource;
+    }
+
+    /**
+     * Reads a resource retrieved by its id. On 304 Not Modified the given stale resource, captured together with the
+     * version sent in If-None-Match, is current and returned, even if the cache has dropped it meanwhile.
+     */
+    private ResponseHandler<T> resourceHandler(final UUID id, final VersionedResource<T> stale) {
+        return new ResponseHandler<T>() {
+            @Override
+            public T handleResponse(HttpResponse response) throws IOException {
+                int httpStatus = response.getStatusLine().getStatusCode();
+
+                if (httpStatus == SC_NOT_MODIFIED && stale != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    resourceCache.revalidate(id, stale.getVersion());
+                    return stale.getResource();
+                }
+
+                if (httpStatus != SC_OK) { // NOSONAR - false-positive from clover; if-expression is correct
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    switch (httpStatus) {
+                        case SC_UNAUTHORIZED:
+                            throw new UnauthorizedException("You are not authorized to access OSIAM. Please make sure your access token is valid");
+                        case SC_NOT_FOUND:
+                            if (resourceCache != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                                resourceCache.invalidate(id);
+                            }
+                            throw new NoResultException("No " + typeName + " with given UUID " + id);
+                        default:
+                            throw new ConnectionInitializationException(String.format("Unable to setup connection (HTTP Status Code: %d)", httpStatus));
+                    }
+                }
+
+                T resource = mapSingleResourceResponse(response.getEntity().getContent());
+                if (resourceCache != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                    resourceCache.put(id, resource, versionOf(response, resource));
+                }
+                return resource;
+            }
+        };
+    }
+
+    private String versionOf(HttpResponse response, T resource) {
+        Header eTag = response.getFirstHeader("ETag");
+        if (eTag != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            return eTag.getValue();
+        }
+        return resource.getMeta() == null ? null : resource.getMeta().getVersion(); // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    protected QueryResult<T> getAllResources(AccessToken accessToken) {
+        return searchResources("", accessToken);
+    }
+
+    protected QueryResult<T> searchResources(String queryString, AccessToken accessToken) {
+        return execute(queryRequest(queryString, accessToken), startTimer("search"), queryResultHandler());
+    }
+
+    private ResponseHandler<QueryResult<T>> queryResultHandler() {
+        return new ResponseHandler<QueryResult<T>>() {
+            @Override
+            public QueryResult<T> handleResponse(HttpResponse response) {
+                checkQueryStatus(response);
+                try {
+                    return queryResultReader.readValue(response.getEntity().getContent());
+                } catch (IOException e) {
+                    throw new ConnectionInitializationException("Unable to deserialize query result", e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Search for resources and hand each found resource to the given handler as soon as it has been parsed, instead
+     * of building the whole page in memory first.
+     *
+     * @param queryString the query to pass to the OSIAM service
+     * @param accessToken the access token from OSIAM for the actual session
+     * @param handler     receives the found resources in the order of the response
+     * @return the total number of resources matching the query
+     */
+    protected int searchResources(String queryString, AccessToken accessToken, ResourceHandler<T> handler) {
+        if (handler == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given handler can't be null.");
+        }
+
+        RequestTimer timer = startTimer("search");
+        try (JsonParser parser = MAPPER.getJsonFactory().createJsonParser(requestQueryResult(queryString, accessToken, timer))) {
+            int totalResults = 0;
+            if (parser.nextToken() != JsonToken.START_OBJECT) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new ConnectionInitializationException("Unable to deserialize query result: no JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("totalResults".equals(field)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    totalResults = parser.getIntValue();
+                } else if ("Resources".equals(field) && value == JsonToken.START_ARRAY) { // NOSONAR - false-positive from clover; if-expression is correct
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        handler.handle(resourceReader.<T>readValue(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return totalResults;
+        } catch (IOException e) {
+            throw new ConnectionInitializationException("Unable to deserialize query result", e);
+        } finally {
+            timer.finish();
+        }
+    }
+
+    private InputStream requestQueryResult(String queryString, AccessToken accessToken, RequestTimer timer) {
+        HttpGet realWebResource = queryRequest(queryString, accessToken);
         try {
-            // TODO: httpClient as instance member
-            DefaultHttpClient httpclient = new DefaultHttpClient();
-            
-            HttpGet realWebResource = createRealWebResource(accessToken);
-            realWebResource.setURI(new URI(webResource.getURI() + "/" + id.toString()));
-            
-            HttpResponse response = httpclient.execute(realWebResource);
+            HttpResponse response = execute(realWebResource, timer);
+            checkQueryStatus(response);
+            return response.getEntity().getContent();
+        } catch (IOException e) {
+            throw new ConnectionInitializationException("Unable to setup connection", e);
+        }
+    }
+
+    private HttpGet queryRequest(String queryString, AccessToken accessToken) {
+        if (accessToken == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given accessToken can't be null.");
+        }
+
+        HttpGet realWebResource = createRealWebResource(accessToken);
+        realWebResource.setURI(uriOf(webResource.getURI() + (queryString.isEmpty() ? "" : "?" + queryString))); // NOSONAR - false-positive from clover; if-expression is correct
+        return realWebResource;
+    }
+
+    private static void checkQueryStatus(HttpResponse response) {
+        int httpStatus = response.getStatusLine().getStatusCode();
+
+        if (httpStatus != SC_OK) { // NOSONAR - false-positive from clover; if-expression is correct
+            EntityUtils.consumeQuietly(response.getEntity());
+            switch (httpStatus) {
+                case SC_UNAUTHORIZED:
+                    throw new UnauthorizedException("You are not authorized to access OSIAM. Please make sure your access token is valid");
+                default:
+                    throw new ConnectionInitializationException(String.format("Unable to setup connection (HTTP Status Code: %d)", httpStatus));
+            }
+        }
+    }
+
+    protected QueryResult<T> searchResources(Query query, AccessToken accessToken) {
+        if (query == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given queryBuilder can't be null.");
+        }
+        return searchResources(query.toString(), accessToken);
+    }
+
+    protected int searchResources(Query query, AccessToken accessToken, ResourceHandler<T> handler) {
+        if (query == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given queryBuilder can't be null.");
+        }
+        return searchResources(query.toString(), accessToken, handler);
+    }
+
+    protected Iterable<T> iterateResources(Query query, AccessToken accessToken) {
+        return iterateResources(query, fixedAccessToken(accessToken));
+    }
+
+    protected Iterable<T> iterateResources(Query query, AccessTokenProvider accessTokenProvider) {
+        return new PagingIterable<>(this, query, accessTokenProvider);
+    }
+
+    protected ScanIterable<T> scanResources(Query query, AccessToken accessToken, ScanOptions options) {
+        return scanResources(query, fixedAccessToken(accessToken), options);
+    }
+
+    protected ScanIterable<T> scanResources(Query query, AccessTokenProvider accessTokenProvider, ScanOptions options) {
+        return new ParallelPagingIterable<>(this, query, accessTokenProvider, options);
+    }
+
+    /**
+     * Take the current access token from the given provider.
+     *
+     * @param accessTokenProvider the provider of the access token
+     * @return the access token to send with the next request
+     */
+    protected static AccessToken accessTokenFrom(AccessTokenProvider accessTokenProvider) {
+        if (accessTokenProvider == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given accessTokenProvider can't be null.");
+        }
+        return accessTokenProvider.getAccessToken();
+    }
+
+    protected static AccessTokenProvider fixedAccessToken(final AccessToken accessToken) {
+        if (accessToken == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given accessToken can't be null.");
+        }
+        return new AccessTokenProvider() {
+            @Override
+            public AccessToken getAccessToken() {
+                return accessToken;
+            }
+        };
+    }
+
+    protected Future<T> getResourceByUUIDAsync(UUID id, AccessToken accessToken, FutureCallback<T> callback) {
+        if (id == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given id can't be null.");
+        }
+
+        if (accessToken == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given accessToken can't be null.");
+        }
+
+        VersionedResource<T> stale = null;
+        if (resourceCache != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            T cached = resourceCache.get(id);
+            if (cached != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                BasicFuture<T> future = new BasicFuture<>(callback);
+                future.completed(cached);
+                return future;
+            }
+            stale = resourceCache.getVersioned(id);
+        }
+
+        return executeAsync(resourceRequest(id, accessToken, stale), startTimer("get"), resourceHandler(id, stale),
+                callback);
+    }
+
+    protected Future<QueryResult<T>> getAllResourcesAsync(AccessToken accessToken, FutureCallback<QueryResult<T>> callback) {
+        return searchResourcesAsync("", accessToken, callback);
+    }
+
+    protected Future<QueryResult<T>> searchResourcesAsync(String queryString, AccessToken accessToken,
+                                                          FutureCallback<QueryResult<T>> callback) {
+        return executeAsync(queryRequest(queryString, accessToken), startTimer("search"), queryResultHandler(), callback);
+    }
+
+    protected Future<QueryResult<T>> searchResourcesAsync(Query query, AccessToken accessToken,
+                                                          FutureCallback<QueryResult<T>> callback) {
+        if (query == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given queryBuilder can't be null.");
+        }
+        return searchResourcesAsync(query.toString(), accessToken, callback);
+    }
+
+    protected Future<Void> deleteResourceByUUIDAsync(UUID id, AccessToken accessToken, FutureCallback<Void> callback) {
+        return executeAsync(deleteRequest(id, accessToken), startTimer("delete"), deleteHandler(id), callback);
+    }
+
+    protected Future<T> createResourceAsync(T resource, AccessToken accessToken, FutureCallback<T> callback) {
+        return executeAsync(createRequest(resource, accessToken), startTimer("create"), createHandler(), callback);
+    }
+
+    private void invalidateCachedResource(String id) {
+        if (resourceCache == null || id == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            return;
+        }
+        try {
+            resourceCache.invalidate(UUID.fromString(id));
+        } catch (IllegalArgumentException e) { // NOSONAR - resources are only cached under valid UUIDs
+            return;
+        }
+    }
+
+    protected T updateResource(UUID id, T original, T modified, AccessToken accessToken) {
+        if (id == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given id can't be null.");
+        }
+        if (original == null || modified == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given original and modified resource can't be null.");
+        }
+        if (accessToken == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given accessToken can't be null.");
+        }
+
+        ObjectNode patch = ResourceDiff.patchOf(MAPPER.valueToTree(original), MAPPER.valueToTree(modified));
+        if (patch == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            return modified;
+        }
+
+        if (resourceCache != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            resourceCache.invalidate(id);
+        }
+
+        RequestTimer timer = startTimer("update");
+        try {
+            HttpPatch realWebResource = new HttpPatch(uriOf(webResource.getURI() + "/" + id.toString()));
+            realWebResource.setHeaders(createRealWebResource(accessToken).getAllHeaders());
+            realWebResource.setEntity(new StringEntity(MAPPER.writeValueAsString(patch), ContentType.APPLICATION_JSON));
+
+            HttpResponse response = execute(realWebResource, timer);
             int httpStatus = response.getStatusLine().getStatusCode();
 
             if (httpStatus != SC_OK) { // NOSONAR - false-positive from clover; if-expression is correct
+                EntityUtils.consumeQuietly(response.getEntity());
                 switch (httpStatus) {
                     case SC_UNAUTHORIZED:
                         throw new UnauthorizedException("You are not authorized to access OSIAM. Please make sure your access token is valid");
@@ -114,37 +602,90 @@ abstract class AbstractOsiamService<T extends CoreResource> {
                 }
             }
 
-            InputStream content = response.getEntity().getContent();
-            resource = mapSingleResourceResponse(content);
-
+            T resource = mapSingleResourceResponse(response.getEntity().getContent());
+            if (resourceCache != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                resourceCache.put(id, resource, versionOf(response, resource));
+            }
             return resource;
-        } catch (IOException | URISyntaxException e) {
+        } catch (IOException e) {
             throw new ConnectionInitializationException("Unable to setup connection", e);
+        } finally {
+            timer.finish();
         }
     }
 
-    protected QueryResult<T> getAllResources(AccessToken accessToken) {
-        return searchResources("", accessToken);
-    }
+    protected List<BulkResult<T>> bulkResources(List<BulkOperation> operations, AccessTokenProvider accessTokenProvider,
+                                                BulkOptions options) {
+        if (operations == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given operations can't be null.");
+        }
+        if (options == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given bulk options can't be null.");
+        }
+        for (BulkOperation operation : operations) {
+            if (operation.getResource() != null && !type.isInstance(operation.getResource())) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The operations can only contain resources of type " + typeName + ".");
+            }
+        }
 
-    protected QueryResult<T> searchResources(String queryString, AccessToken accessToken) {
-        final InputStream queryResult;
+        List<BulkResult<T>> results = new ArrayList<>(operations.size());
+        int errors = 0;
+        for (int from = 0; from < operations.size(); from += options.getBatchSize()) {
+            List<BulkOperation> batch = operations.subList(from, Math.min(from + options.getBatchSize(), operations.size()));
+            int remainingErrors = options.getFailOnErrors() - errors;
+            if (options.getFailOnErrors() > 0 && remainingErrors <= 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                results.addAll(notProcessed(batch));
+                continue;
+            }
+            List<BulkResult<T>> batchResults = sendBulkRequest(batch, accessTokenFrom(accessTokenProvider),
+                    options.getFailOnErrors() > 0 ? remainingErrors : 0); // NOSONAR - false-positive from clover; if-expression is correct
+            for (BulkResult<T> result : batchResults) {
+                if (result.isProcessed() && !result.isSuccessful()) { // NOSONAR - false-positive from clover; if-expression is correct
+                    errors++;
+                }
+            }
+            results.addAll(batchResults);
+        }
+        return results;
+    }
 
-        if (accessToken == null) { // NOSONAR - false-positive from clover; if-expression is correct
-            throw new IllegalArgumentException("The given accessToken can't be null.");
+    private List<BulkResult<T>> sendBulkRequest(List<BulkOperation> batch, AccessToken accessToken, int failOnErrors) {
+        ObjectNode request = MAPPER.createObjectNode();
+        request.putArray("schemas").add(BULK_SCHEMA);
+        if (failOnErrors > 0) { // NOSONAR - false-positive from clover; if-expression is correct
+            request.put("failOnErrors", failOnErrors);
+        }
+        ArrayNode operations = request.putArray("Operations");
+        String path = "/" + typeName + "s";
+        for (int i = 0; i < batch.size(); i++) {
+            BulkOperation operation = batch.get(i);
+            ObjectNode operationNode = operations.addObject();
+            operationNode.put("method", operation.getMethod().name());
+            operationNode.put("bulkId", String.valueOf(i));
+            if (operation.getId() == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                operationNode.put("path", path);
+            } else {
+                operationNode.put("path", path + "/" + operation.getId());
+                if (resourceCache != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                    resourceCache.invalidate(operation.getId());
+                }
+            }
+            if (operation.getResource() != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                operationNode.put("data", MAPPER.valueToTree(operation.getResource()));
+            }
         }
 
+        RequestTimer timer = startTimer("bulk");
         try {
-            // TODO: httpClient as instance member
-            DefaultHttpClient httpclient = new DefaultHttpClient();
-            
-            HttpGet realWebResource = createRealWebResource(accessToken);
-            realWebResource.setURI(new URI(webResource.getURI() + (queryString.isEmpty() ? "" : "?" + queryString))); // NOSONAR - false-positive from clover; if-expression is correct
-            
-            HttpResponse response = httpclient.execute(realWebResource);
+            HttpPost realWebResource = new HttpPost(uriOf(endpoint + "/Bulk"));
+            realWebResource.setHeaders(createRealWebResource(accessToken).getAllHeaders());
+            realWebResource.setEntity(new StringEntity(MAPPER.writeValueAsString(request), ContentType.APPLICATION_JSON));
+
+            HttpResponse response = execute(realWebResource, timer);
             int httpStatus = response.getStatusLine().getStatusCode();
 
             if (httpStatus != SC_OK) { // NOSONAR - false-positive from clover; if-expression is correct
+                EntityUtils.consumeQuietly(response.getEntity());
                 switch (httpStatus) {
                     case SC_UNAUTHORIZED:
                         throw new UnauthorizedException("You are not authorized to access OSIAM. Please make sure your access token is valid");
@@ -153,33 +694,59 @@ abstract class AbstractOsiamService<T extends CoreResource> {
                 }
             }
 
-            queryResult = response.getEntity().getContent();
-
-            final QueryResult<T> result;
-            JavaType queryResultType = TypeFactory.defaultInstance().constructParametricType(QueryResult.class, type);
+            JsonNode content = MAPPER.readTree(response.getEntity().getContent());
+            return mapBulkResponse(batch, content.path("Operations"));
+        } catch (IOException e) {
+            throw new ConnectionInitializationException("Unable to setup connection", e);
+        } finally {
+            timer.finish();
+        }
+    }
 
-            try {
-                result = mapper.readValue(queryResult, queryResultType);
-            } catch (IOException e) {
-                throw new ConnectionInitializationException("Unable to deserialize query result", e);
+    private List<BulkResult<T>> mapBulkResponse(List<BulkOperation> batch, JsonNode operations) throws IOException {
+        List<BulkResult<T>> results = notProcessed(batch);
+        for (int i = 0; i < operations.size(); i++) {
+            JsonNode operationNode = operations.get(i);
+            int index = operationNode.has("bulkId") ? operationNode.get("bulkId").asInt(-1) : i; // NOSONAR - false-positive from clover; if-expression is correct
+            if (index < 0 || index >= batch.size()) { // NOSONAR - false-positive from clover; if-expression is correct
+                continue;
             }
-            return result;
+            BulkOperation operation = batch.get(index);
+            JsonNode status = operationNode.path("status");
+            int code = status.isObject() ? status.path("code").asInt() : status.asInt(); // NOSONAR - false-positive from clover; if-expression is correct
+            JsonNode responseNode = operationNode.path("response");
 
-        } catch (IOException | URISyntaxException e) {
-            throw new ConnectionInitializationException("Unable to setup connection", e);
+            T resource = null;
+            String errorDescription = null;
+            if (code < 200 || code >= 300) { // NOSONAR - range of the HTTP success codes
+                errorDescription = errorDescriptionOf(responseNode);
+            } else if (responseNode.isObject() && operation.getMethod() != BulkOperation.Method.DELETE) { // NOSONAR - false-positive from clover; if-expression is correct
+                resource = resourceReader.readValue(responseNode);
+            }
+            results.set(index, new BulkResult<>(operation, code, operationNode.path("location").getTextValue(),
+                    resource, errorDescription));
         }
+        return results;
+    }
 
+    private static String errorDescriptionOf(JsonNode response) {
+        JsonNode description = response.path("Errors").path(0).path("description");
+        if (description.isMissingNode()) { // NOSONAR - false-positive from clover; if-expression is correct
+            description = response.path("detail");
+        }
+        return description.getTextValue();
     }
 
-    protected QueryResult<T> searchResources(Query query, AccessToken accessToken) {
-        if (query == null) { // NOSONAR - false-positive from clover; if-expression is correct
-            throw new IllegalArgumentException("The given queryBuilder can't be null.");
+    private List<BulkResult<T>> notProcessed(List<BulkOperation> batch) {
+        List<BulkResult<T>> results = new ArrayList<>(batch.size());
+        for (BulkOperation operation : batch) {
+            results.add(new BulkResult<T>(operation, 0, null, null, null));
         }
-        return searchResources(query.toString(), accessToken);
+        return results;
     }
 
     protected T mapSingleResourceResponse(InputStream content) throws IOException {
-	return mapper.readValue(content, type);
+        return resourceReader.readValue(content);
     }
 
     protected HttpGet createRealWebResource(AccessToken accessToken) {
@@ -194,6 +761,17 @@ abstract class AbstractOsiamService<T extends CoreResource> {
         }
     }
 
+    /**
+     * Shut down the connection pool the service created for itself because its builder was given none. A pool given
+     * to the builder is left open, as other services may share it. The service can't be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (ownConnectionPool != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            ownConnectionPool.shutdown();
+        }
+    }
+
     /**
      * The Builder class is used to prove a WebResource to build the needed Service
      *
@@ -203,6 +781,11 @@ abstract class AbstractOsiamService<T extends CoreResource> {
         private String endpoint;
         private Class<T> type;
         private String typeName;
+        private ConnectionPool connectionPool;
+        private ExecutorService executor;
+        private ResourceCache<T> resourceCache;
+        private RequestMetrics metrics;
+        private List<RequestInterceptor> interceptors = new ArrayList<>();
 
         /**
          * Set up the Builder for the construction of  an {@link AbstractOsiamService} instance for the OAuth2 service at
@@ -219,6 +802,88 @@ abstract class AbstractOsiamService<T extends CoreResource> {
             typeName = type.getSimpleName();
         }
 
+        /**
+         * Use the given {@link ConnectionPool} for all requests of the service. A pool can be shared between several
+         * services. If no pool is given, the service gets a pool of its own with the default settings, which is shut
+         * down when the service is closed. The default settings don't limit the time of a request; configure the
+         * connect, read and connection request timeouts on a pool of your own.
+         *
+         * @param connectionPool the pool to take the connections from
+         * @return The builder itself
+         */
+        protected Builder<T> connectionPool(ConnectionPool connectionPool) {
+            this.connectionPool = connectionPool;
+            return this;
+        }
+
+        /**
+         * Use the given {@link ExecutorService} to read the responses of the asynchronous operations of the service.
+         * The requests themselves are sent by the non-blocking client of the {@link ConnectionPool}, so no thread of
+         * the executor waits for OSIAM; a few threads are enough for many calls in flight. If no executor is given,
+         * the service uses a bounded pool of daemon threads shared by all services, with one thread per processor.
+         * The executor is not shut down when the service is closed.
+         *
+         * @param executor the executor for asynchronous operations
+         * @return The builder itself
+         */
+        protected Builder<T> executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Keep the resources retrieved by their id in the given {@link ResourceCache} and answer later lookups of
+         * the same id from it. Once the time to live of a resource has run out, it is requested again with its
+         * version in the If-None-Match header; if OSIAM answers 304 Not Modified the cached resource is used without
+         * reading a body. Resources created or deleted through the service are removed from the cache. If no cache is
+         * given, every lookup is sent to OSIAM.
+         *
+         * @param resourceCache the cache for resources retrieved by their id
+         * @return The builder itself
+         */
+        protected Builder<T> resourceCache(ResourceCache<T> resourceCache) {
+            this.resourceCache = resourceCache;
+            return this;
+        }
+
+        /**
+         * Report every request of the service to the given {@link RequestMetrics}, with its status, its size and the
+         * time it spent getting a connection, waiting for OSIAM and reading the response. If no metrics are given,
+         * nothing is measured.
+         *
+         * @param metrics the metrics to report the requests to
+         * @return The builder itself
+         */
+        protected Builder<T> metrics(RequestMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Pass every request of the service through the given {@link RequestInterceptor}, for example to add trace
+         * headers. Interceptors are called in the order they were added before a request, and in the reverse order
+         * after it.
+         *
+         * @param interceptor the interceptor to add
+         * @return The builder itself
+         */
+        protected Builder<T> interceptor(RequestInterceptor interceptor) {
+            if (interceptor == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The given interceptor can't be null.");
+            }
+            interceptors.add(interceptor);
+            return this;
+        }
+
+        /**
+         * provides the ExecutorService for asynchronous operations
+         *
+         * @return The configured executor or a default one
+         */
+        protected ExecutorService getExecutor() {
+            return executor == null ? DefaultExecutor.INSTANCE : executor; // NOSONAR - false-positive from clover; if-expression is correct
+        }
+
         /**
          * creates a WebResource to the needed endpoint
          *
@@ -238,7 +903,14 @@ abstract class AbstractOsiamService<T extends CoreResource> {
     }
     
     protected void deleteResourceByUUID(UUID id, AccessToken accessToken) {
+        execute(deleteRequest(id, accessToken), startTimer("delete"), deleteHandler(id));
+    }
 
+    /**
+     * Create the request deleting the resource with the given id. The resource is removed from the cache right away,
+     * whether the request succeeds or not.
+     */
+    private HttpDelete deleteRequest(UUID id, AccessToken accessToken) {
         if (id == null) { // NOSONAR - false-positive from clover; if-expression is correct
             throw new IllegalArgumentException("The given id can't be null.");
         }
@@ -247,37 +919,43 @@ abstract class AbstractOsiamService<T extends CoreResource> {
             throw new IllegalArgumentException("The given accessToken can't be null.");
         }
 
-        try {
-            // TODO: httpClient as instance member
-            DefaultHttpClient httpclient = new DefaultHttpClient();
-            
-            URI uri = new URI(webResource.getURI() + "/" + id.toString());
-            
-            HttpDelete realWebResource = new HttpDelete(uri);
-            realWebResource.addHeader("Authorization", "Bearer " + accessToken.getToken());
+        if (resourceCache != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            resourceCache.invalidate(id);
+        }
 
-            HttpResponse response = httpclient.execute(realWebResource);
-            int httpStatus = response.getStatusLine().getStatusCode();
+        HttpDelete realWebResource = new HttpDelete(uriOf(webResource.getURI() + "/" + id.toString()));
+        realWebResource.addHeader("Authorization", "Bearer " + accessToken.getToken());
+        return realWebResource;
+    }
 
-            if (httpStatus != SC_OK) { // NOSONAR - false-positive from clover; if-expression is correct
-                switch (httpStatus) {
-                    case SC_UNAUTHORIZED:
-                        throw new UnauthorizedException("You are not authorized to access OSIAM. Please make sure your access token is valid");
-                    case SC_NOT_FOUND:
-                        throw new NoResultException("No " + typeName + " with given UUID " + id);
-                    default:
-                        throw new ConnectionInitializationException(String.format("Unable to setup connection (HTTP Status Code: %d)", httpStatus));
+    private ResponseHandler<Void> deleteHandler(final UUID id) {
+        return new ResponseHandler<Void>() {
+            @Override
+            public Void handleResponse(HttpResponse response) throws IOException {
+                int httpStatus = response.getStatusLine().getStatusCode();
+
+                if (httpStatus != SC_OK) { // NOSONAR - false-positive from clover; if-expression is correct
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    switch (httpStatus) {
+                        case SC_UNAUTHORIZED:
+                            throw new UnauthorizedException("You are not authorized to access OSIAM. Please make sure your access token is valid");
+                        case SC_NOT_FOUND:
+                            throw new NoResultException("No " + typeName + " with given UUID " + id);
+                        default:
+                            throw new ConnectionInitializationException(String.format("Unable to setup connection (HTTP Status Code: %d)", httpStatus));
+                    }
                 }
+                EntityUtils.consume(response.getEntity());
+                return null;
             }
-
-        } catch (IOException | URISyntaxException e) {
-            throw new ConnectionInitializationException("Unable to setup connection", e);
-        }
+        };
     }
     
     protected T createResource(T resource , AccessToken accessToken) {
-        final T returnResource;
+        return execute(createRequest(resource, accessToken), startTimer("create"), createHandler());
+    }
 
+    private HttpPost createRequest(T resource, AccessToken accessToken) {
         if (resource == null) { // NOSONAR - false-positive from clover; if-expression is correct
             throw new IllegalArgumentException("The given resource can't be null.");
         }
@@ -286,40 +964,113 @@ abstract class AbstractOsiamService<T extends CoreResource> {
             throw new IllegalArgumentException("The given accessToken can't be null.");
         }
 
+        HttpPost realWebResource = new HttpPost(webResource.getURI());
+        realWebResource.addHeader("Authorization", "Bearer " + accessToken.getToken());
         try {
-            // TODO: httpClient as instance member
-            DefaultHttpClient httpclient = new DefaultHttpClient();
-            
-            HttpPost realWebResource = new HttpPost(webResource.getURI());
-            realWebResource.addHeader("Authorization", "Bearer " + accessToken.getToken());
-            
-            ObjectMapper mapper = new ObjectMapper(  );
-
-            mapper.configure( SerializationConfig.Feature.FAIL_ON_EMPTY_BEANS, false );
-            
-            String userAsString = mapper.writeValueAsString( resource );
-            
-            realWebResource.setEntity(new StringEntity(userAsString, 
+            String userAsString = resourceWriter.writeValueAsString(resource);
+            realWebResource.setEntity(new StringEntity(userAsString,
                     ContentType.create("application/json")));
-            
-            HttpResponse response = httpclient.execute(realWebResource);
-            int httpStatus = response.getStatusLine().getStatusCode();
+        } catch (IOException e) {
+            throw new ConnectionInitializationException("Unable to setup connection", e);
+        }
+        return realWebResource;
+    }
 
-            if (httpStatus != SC_CREATED) { // NOSONAR - false-positive from clover; if-expression is correct
-                switch (httpStatus) {
-                    case SC_UNAUTHORIZED:
-                        throw new UnauthorizedException("You are not authorized to access OSIAM. Please make sure your access token is valid");
-                    default:
-                        throw new ConnectionInitializationException(String.format("Unable to setup connection (HTTP Status Code: %d)", httpStatus));
+    private ResponseHandler<T> createHandler() {
+        return new ResponseHandler<T>() {
+            @Override
+            public T handleResponse(HttpResponse response) throws IOException {
+                int httpStatus = response.getStatusLine().getStatusCode();
+
+                if (httpStatus != SC_CREATED) { // NOSONAR - false-positive from clover; if-expression is correct
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    switch (httpStatus) {
+                        case SC_UNAUTHORIZED:
+                            throw new UnauthorizedException("You are not authorized to access OSIAM. Please make sure your access token is valid");
+                        default:
+                            throw new ConnectionInitializationException(String.format("Unable to setup connection (HTTP Status Code: %d)", httpStatus));
+                    }
                 }
-            }
 
-            InputStream content = response.getEntity().getContent();
-            returnResource = mapSingleResourceResponse(content);
+                T returnResource = mapSingleResourceResponse(response.getEntity().getContent());
+                invalidateCachedResource(returnResource.getId());
+                return returnResource;
+            }
+        };
+    }
 
-            return returnResource;
-        } catch (IOException e) {
+    /**
+     * Parse the given URI of a request.
+     *
+     * @param uri the URI as string
+     * @return the parsed URI
+     * @throws ConnectionInitializationException
+     *         if the URI is not valid
+     */
+    protected static URI uriOf(String uri) {
+        try {
+            return new URI(uri);
+        } catch (URISyntaxException e) {
             throw new ConnectionInitializationException("Unable to setup connection", e);
         }
     }
+
+    /**
+     * The Future of an asynchronous call, which cancels the running request when it is cancelled.
+     */
+    private static final class Exchange<R> extends BasicFuture<R> {
+
+        private volatile Future<HttpResponse> request;
+
+        private Exchange(FutureCallback<R> callback) {
+            super(callback);
+        }
+
+        private void start(Future<HttpResponse> request) {
+            this.request = request;
+            if (isCancelled()) { // NOSONAR - false-positive from clover; if-expression is correct
+                request.cancel(true);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Future<HttpResponse> running = request;
+            if (cancelled && running != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                running.cancel(true);
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * Holds the executor reading the responses of asynchronous calls for services not given one, which is shared by
+     * all of them and only started once asynchronous calls are used. Reading a response doesn't wait for OSIAM, so
+     * a thread per processor is enough; once its queue is full, the responses are read on the I/O thread.
+     */
+    private static final class DefaultExecutor {
+
+        private static final int QUEUE_CAPACITY = 1024;
+        private static final long KEEP_ALIVE_SECONDS = 60;
+        private static final ThreadPoolExecutor INSTANCE;
+
+        static {
+            int threads = Runtime.getRuntime().availableProcessors();
+            final AtomicInteger count = new AtomicInteger();
+            INSTANCE = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "osiam-async-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+            INSTANCE.allowCoreThreadTimeOut(true);
+        }
+
+        private DefaultExecutor() {
+        }
+    }
 }
@@ -0,0 +1,96 @@
+package org.osiam.client;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.UUID;
+
+import org.osiam.resources.scim.CoreResource;
+
+/**
+ * A BulkOperation describes one create, replace or delete of a resource within a SCIM bulk request. Operations are
+ * created with the static factory methods and passed in a list to the bulk method of the user or group service.
+ */
+public final class BulkOperation {
+
+    /**
+     * The HTTP method of a bulk operation.
+     */
+    public enum Method {
+        POST, PUT, DELETE
+    }
+
+    private final Method method;
+    private final UUID id;
+    private final CoreResource resource;
+
+    private BulkOperation(Method method, UUID id, CoreResource resource) {
+        this.method = method;
+        this.id = id;
+        this.resource = resource;
+    }
+
+    /**
+     * Create the given resource.
+     *
+     * @param resource the resource to create
+     * @return the operation
+     */
+    public static BulkOperation create(CoreResource resource) {
+        if (resource == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given resource can't be null.");
+        }
+        return new BulkOperation(Method.POST, null, resource);
+    }
+
+    /**
+     * Replace the resource with the given id by the given resource.
+     *
+     * @param id       the id of the resource to replace
+     * @param resource the new state of the resource
+     * @return the operation
+     */
+    public static BulkOperation replace(UUID id, CoreResource resource) {
+        if (id == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given id can't be null.");
+        }
+        if (resource == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given resource can't be null.");
+        }
+        return new BulkOperation(Method.PUT, id, resource);
+    }
+
+    /**
+     * Delete the resource with the given id.
+     *
+     * @param id the id of the resource to delete
+     * @return the operation
+     */
+    public static BulkOperation delete(UUID id) {
+        if (id == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given id can't be null.");
+        }
+        return new BulkOperation(Method.DELETE, id, null);
+    }
+
+    /**
+     * @return the HTTP method of the operation
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return the id of the replaced or deleted resource, null for a create
+     */
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * @return the created or replacing resource, null for a delete
+     */
+    public CoreResource getResource() {
+        return resource;
+    }
+}
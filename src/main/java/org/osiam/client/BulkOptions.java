@@ -0,0 +1,84 @@
+package org.osiam.client;
+/*
+ * for licensing see the file license.txt.
+ */
+
+/**
+ * BulkOptions configure how a list of {@link BulkOperation}s is sent to the SCIM bulk endpoint. For the construction
+ * of an instance please use the included {@link BulkOptions.Builder}.
+ */
+public final class BulkOptions { // NOSONAR - Builder constructs instances of this class
+
+    private final int batchSize;
+    private final int failOnErrors;
+
+    private BulkOptions(Builder builder) {
+        batchSize = builder.batchSize;
+        failOnErrors = builder.failOnErrors;
+    }
+
+    /**
+     * @return the number of operations sent in one bulk request
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return the number of failed operations after which no further operation is processed, 0 if all operations
+     *         are processed regardless of errors
+     */
+    public int getFailOnErrors() {
+        return failOnErrors;
+    }
+
+    /**
+     * The Builder class is used to construct instances of the {@link BulkOptions}.
+     */
+    public static class Builder {
+
+        private static final int DEFAULT_BATCH_SIZE = 100;
+
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private int failOnErrors;
+
+        /**
+         * Set the number of operations sent in one bulk request. It must not exceed the maximum number of operations
+         * the OSIAM server accepts. Default is 100.
+         *
+         * @param batchSize the number of operations per request
+         * @return The builder itself
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 1) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The batch size has to be positive.");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Stop processing once the given number of operations has failed, counted over all batches. The remaining
+         * operations are reported as not processed. By default all operations are processed.
+         *
+         * @param failOnErrors the number of tolerated errors
+         * @return The builder itself
+         */
+        public Builder failOnErrors(int failOnErrors) {
+            if (failOnErrors < 1) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The number of errors has to be positive.");
+            }
+            this.failOnErrors = failOnErrors;
+            return this;
+        }
+
+        /**
+         * Construct the {@link BulkOptions} with the parameters passed to this builder.
+         *
+         * @return BulkOptions configured accordingly.
+         */
+        public BulkOptions build() {
+            return new BulkOptions(this);
+        }
+    }
+}
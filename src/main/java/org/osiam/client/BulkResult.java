@@ -0,0 +1,77 @@
+package org.osiam.client;
+/*
+ * for licensing see the file license.txt.
+ */
+
+/**
+ * A BulkResult reports the outcome of one {@link BulkOperation}. The results of a bulk call are returned in the order
+ * of the given operations.
+ *
+ * @param <T> a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+ */
+public final class BulkResult<T> {
+
+    private final BulkOperation operation;
+    private final int status;
+    private final String location;
+    private final T resource;
+    private final String errorDescription;
+
+    BulkResult(BulkOperation operation, int status, String location, T resource, String errorDescription) {
+        this.operation = operation;
+        this.status = status;
+        this.location = location;
+        this.resource = resource;
+        this.errorDescription = errorDescription;
+    }
+
+    /**
+     * @return the operation this result belongs to
+     */
+    public BulkOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the HTTP status code OSIAM reported for the operation, or 0 if the operation was not processed
+     *         because the number of allowed errors had been reached
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true if OSIAM processed the operation successfully
+     */
+    public boolean isSuccessful() {
+        return status >= 200 && status < 300; // NOSONAR - range of the HTTP success codes
+    }
+
+    /**
+     * @return true if OSIAM processed the operation, successfully or not
+     */
+    public boolean isProcessed() {
+        return status != 0;
+    }
+
+    /**
+     * @return the location of the created or replaced resource, may be null
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * @return the created or replaced resource if OSIAM sent it back, otherwise null
+     */
+    public T getResource() {
+        return resource;
+    }
+
+    /**
+     * @return the description of the error if the operation failed, may be null
+     */
+    public String getErrorDescription() {
+        return errorDescription;
+    }
+}
@@ -0,0 +1,30 @@
+package org.osiam.client;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An Iterator holding resources that have to be released if the iteration is abandoned before its end, like the page
+ * requests of a scan still running. It is meant to be used with try-with-resources:
+ *
+ * <pre>
+ * try (CloseableIterator&lt;User&gt; users = userService.scanUsers(query, accessToken, options).iterator()) {
+ *     while (users.hasNext()) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @param <T> the type of the iterated elements
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+    /**
+     * Release the resources of this iterator. It has no further elements afterwards. Closing it again has no effect.
+     */
+    @Override
+    void close();
+}
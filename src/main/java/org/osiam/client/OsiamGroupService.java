@@ -3,10 +3,18 @@ package org.osiam.client;
  * for licensing see the file license.txt.
  */
 
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
-import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.osiam.client.cache.ResourceCache;
+import org.osiam.client.connection.ConnectionPool;
+import org.osiam.client.connection.RequestInterceptor;
+import org.osiam.client.metrics.RequestMetrics;
 import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.AccessTokenProvider;
 import org.osiam.client.query.Query;
 import org.osiam.client.query.QueryResult;
 import org.osiam.resources.scim.Group;
@@ -22,10 +30,10 @@ public final class OsiamGroupService extends AbstractOsiamService<Group> { // NO
      * The private constructor for the OsiamGroupService. Please use the {@link OsiamGroupService.Builder}
      * to construct one.
      *
-     * @param groupWebResource a valid WebResource to connect to a given OSIAM server
+     * @param builder the builder holding the configuration of the service
      */
-    private OsiamGroupService(HttpGet groupWebResource) {
-        super(groupWebResource);
+    private OsiamGroupService(Builder builder) {
+        super(builder);
     }
 
     /**
@@ -79,6 +87,239 @@ public final class OsiamGroupService extends AbstractOsiamService<Group> { // NO
         return searchResources(query, accessToken);
     }
 
+    /**
+     * Search for existing groups by the given {@link Query} and hand each found group to the handler as soon as it
+     * has been read from the response, instead of holding the whole page in memory.
+     *
+     * @param query       containing the needed search where statement
+     * @param accessToken the OSIAM access token from for the current session
+     * @param handler     receives the found Groups in the order of the response
+     * @return the total number of Groups matching the query
+     */
+    public int searchGroups(Query query, AccessToken accessToken, ResourceHandler<Group> handler) {
+        return searchResources(query, accessToken, handler);
+    }
+
+    /**
+     * Iterate over all groups found by the given {@link Query}, starting at the page the query points to. The pages
+     * are requested lazily: the next page is only fetched from OSIAM once the iteration has passed the current one,
+     * and only the current page is kept in memory.
+     *
+     * @param query       containing the needed search where statement
+     * @param accessToken the OSIAM access token from for the current session
+     * @return an Iterable over all found Groups
+     */
+    public Iterable<Group> iterateGroups(Query query, AccessToken accessToken) {
+        return iterateResources(query, accessToken);
+    }
+
+    /**
+     * Scan all groups found by the given {@link Query}, starting at the page the query points to. After the first
+     * page has arrived, the remaining pages are requested concurrently by the non-blocking client of this service as
+     * configured by the given {@link ScanOptions}. A failed page request is thrown when the iteration reaches it.
+     * The iterators of the scan are {@link CloseableIterator}s; closing one that is abandoned before its end cancels
+     * the page requests still running, best done with try-with-resources:
+     *
+     * <pre>
+     * try (CloseableIterator&lt;Group&gt; groups = service.scanGroups(query, accessToken, options).iterator()) {
+     *     while (groups.hasNext()) {
+     *         ...
+     *     }
+     * }
+     * </pre>
+     *
+     * @param query       containing the needed search where statement
+     * @param accessToken the OSIAM access token from for the current session
+     * @param options     the parallelism, in-flight window and ordering of the scan
+     * @return a ScanIterable over all found Groups
+     */
+    public ScanIterable<Group> scanGroups(Query query, AccessToken accessToken, ScanOptions options) {
+        return scanResources(query, accessToken, options);
+    }
+
+    /**
+     * Retrieve a single Group with the given id, authorized by the access token of the given provider.
+     *
+     * @param id                  the uuid of the wanted group
+     * @param accessTokenProvider provides the access token for the request
+     * @return the group with the given id.
+     * @see #getGroupByUUID(UUID, AccessToken)
+     */
+    public Group getGroupByUUID(UUID id, AccessTokenProvider accessTokenProvider) {
+        return getResourceByUUID(id, accessTokenFrom(accessTokenProvider));
+    }
+
+    /**
+     * Retrieve the first page of all {@link Group} resources, authorized by the access token of the given provider.
+     *
+     * @param accessTokenProvider provides the access token for the request
+     * @return a QueryResult Containing a list of all groups
+     * @see #getAllGroups(AccessToken)
+     */
+    public QueryResult<Group> getAllGroups(AccessTokenProvider accessTokenProvider) {
+        return getAllResources(accessTokenFrom(accessTokenProvider));
+    }
+
+    /**
+     * Search for existing groups by a given {@link Query}, authorized by the access token of the given provider.
+     *
+     * @param query               containing the needed search where statement
+     * @param accessTokenProvider provides the access token for the request
+     * @return a QueryResult containing a list of all found Groups
+     * @see #searchGroups(Query, AccessToken)
+     */
+    public QueryResult<Group> searchGroups(Query query, AccessTokenProvider accessTokenProvider) {
+        return searchResources(query, accessTokenFrom(accessTokenProvider));
+    }
+
+    /**
+     * Iterate over all groups found by the given {@link Query}. Every page is requested with the access token the
+     * provider hands out at that moment, so an iteration may outlive a single token.
+     *
+     * @param query               containing the needed search where statement
+     * @param accessTokenProvider provides the access token for each page
+     * @return an Iterable over all found Groups
+     * @see #iterateGroups(Query, AccessToken)
+     */
+    public Iterable<Group> iterateGroups(Query query, AccessTokenProvider accessTokenProvider) {
+        return iterateResources(query, accessTokenProvider);
+    }
+
+    /**
+     * Scan all groups found by the given {@link Query}. Every page is requested with the access token the provider
+     * hands out at that moment, so a scan may outlive a single token.
+     *
+     * @param query               containing the needed search where statement
+     * @param accessTokenProvider provides the access token for each page
+     * @param options             the parallelism, in-flight window and ordering of the scan
+     * @return a ScanIterable over all found Groups
+     * @see #scanGroups(Query, AccessToken, ScanOptions)
+     */
+    public ScanIterable<Group> scanGroups(Query query, AccessTokenProvider accessTokenProvider, ScanOptions options) {
+        return scanResources(query, accessTokenProvider, options);
+    }
+
+    /**
+     * Update the Group with the given id by sending only the differences between the original and the modified
+     * Group in a PATCH request. Attributes that are null or missing in the modified Group but set in the original
+     * are removed; values missing from a multi-valued attribute are deleted. If both are equal, no request is sent
+     * and the modified Group is returned.
+     *
+     * @param id          the uuid of the group to update
+     * @param original    the group as it was retrieved from OSIAM
+     * @param modified    the group with the wanted changes
+     * @param accessToken the OSIAM access token from for the current session
+     * @return the updated Group as returned by OSIAM
+     * @throws UnauthorizedException if the request could not be authorized.
+     * @throws NoResultException     if no group with the given id can be found
+     * @throws ConnectionInitializationException
+     *                               if no connection to the given OSIAM services could be initialized
+     */
+    public Group updateGroup(UUID id, Group original, Group modified, AccessToken accessToken) {
+        return updateResource(id, original, modified, accessToken);
+    }
+
+    /**
+     * Update the Group with the given id, authorized by the access token of the given provider.
+     *
+     * @param id                  the uuid of the group to update
+     * @param original            the group as it was retrieved from OSIAM
+     * @param modified            the group with the wanted changes
+     * @param accessTokenProvider provides the access token for the request
+     * @return the updated Group as returned by OSIAM
+     * @see #updateGroup(UUID, Group, Group, AccessToken)
+     */
+    public Group updateGroup(UUID id, Group original, Group modified, AccessTokenProvider accessTokenProvider) {
+        return updateResource(id, original, modified, accessTokenFrom(accessTokenProvider));
+    }
+
+    /**
+     * Send the given create, replace and delete operations on Groups to the SCIM bulk endpoint of OSIAM, packed
+     * into requests of the batch size configured by the given {@link BulkOptions}. The returned results are in the
+     * order of the operations.
+     *
+     * @param operations  the operations to perform
+     * @param accessToken the OSIAM access token from for the current session
+     * @param options     the batch size and error tolerance of the bulk requests
+     * @return the result of each operation
+     * @throws UnauthorizedException if a bulk request could not be authorized.
+     * @throws ConnectionInitializationException
+     *                               if no connection to the given OSIAM services could be initialized
+     */
+    public List<BulkResult<Group>> bulkGroups(List<BulkOperation> operations, AccessToken accessToken, BulkOptions options) {
+        return bulkResources(operations, fixedAccessToken(accessToken), options);
+    }
+
+    /**
+     * Send the given operations on Groups to the SCIM bulk endpoint of OSIAM. Every bulk request is sent with the
+     * access token the provider hands out at that moment.
+     *
+     * @param operations          the operations to perform
+     * @param accessTokenProvider provides the access token for each bulk request
+     * @param options             the batch size and error tolerance of the bulk requests
+     * @return the result of each operation
+     * @see #bulkGroups(List, AccessToken, BulkOptions)
+     */
+    public List<BulkResult<Group>> bulkGroups(List<BulkOperation> operations, AccessTokenProvider accessTokenProvider,
+                                        BulkOptions options) {
+        return bulkResources(operations, accessTokenProvider, options);
+    }
+
+    /**
+     * Retrieve a single Group with the given id without blocking. The request is sent by the non-blocking client of
+     * the {@link ConnectionPool}, so no thread waits for OSIAM, and its response is read on the executor of the
+     * service. The outcome of the request is reported to the returned {@link Future} and, if given, to the callback.
+     * A failed request reports the same exception {@link #getGroupByUUID(UUID, AccessToken)} would throw; invalid
+     * arguments are rejected right away.
+     *
+     * @param id          the uuid of the wanted group
+     * @param accessToken the access token from OSIAM for the current session.
+     * @param callback    notified when the request completes, may be null
+     * @return a Future holding the group with the given id
+     */
+    public Future<Group> getGroupByUUIDAsync(UUID id, AccessToken accessToken, FutureCallback<Group> callback) {
+        return getResourceByUUIDAsync(id, accessToken, callback);
+    }
+
+    /**
+     * Retrieve the first page of all {@link Group} resources without blocking the calling thread.
+     *
+     * @param accessToken the OSIAM access token for the current session
+     * @param callback    notified when the request completes, may be null
+     * @return a Future holding a QueryResult containing the groups
+     * @see #getGroupByUUIDAsync(UUID, AccessToken, FutureCallback)
+     */
+    public Future<QueryResult<Group>> getAllGroupsAsync(AccessToken accessToken, FutureCallback<QueryResult<Group>> callback) {
+        return getAllResourcesAsync(accessToken, callback);
+    }
+
+    /**
+     * Search for existing groups by a given search string without blocking the calling thread.
+     *
+     * @param queryString a string containing the needed search where statement
+     * @param accessToken the OSIAM access token from for the current session
+     * @param callback    notified when the request completes, may be null
+     * @return a Future holding a QueryResult containing the found groups
+     * @see #searchGroups(String, AccessToken)
+     */
+    public Future<QueryResult<Group>> searchGroupsAsync(String queryString, AccessToken accessToken,
+                                                        FutureCallback<QueryResult<Group>> callback) {
+        return searchResourcesAsync(queryString, accessToken, callback);
+    }
+
+    /**
+     * Search for existing groups by a given {@link Query} without blocking the calling thread.
+     *
+     * @param query       containing the needed search where statement
+     * @param accessToken the OSIAM access token from for the current session
+     * @param callback    notified when the request completes, may be null
+     * @return a Future holding a QueryResult containing the found groups
+     */
+    public Future<QueryResult<Group>> searchGroupsAsync(Query query, AccessToken accessToken,
+                                                        FutureCallback<QueryResult<Group>> callback) {
+        return searchResourcesAsync(query, accessToken, callback);
+    }
+
     /**
      * The Builder is used to construct instances of the {@link OsiamGroupService}
      */
@@ -94,13 +335,73 @@ public final class OsiamGroupService extends AbstractOsiamService<Group> { // NO
             super(endpoint);
         }
 
+        /**
+         * Keep the Groups retrieved by their id in the given {@link ResourceCache}.
+         *
+         * @param resourceCache the cache for Groups retrieved by their id
+         * @return The builder itself
+         */
+        @Override
+        public Builder resourceCache(ResourceCache<Group> resourceCache) {
+            super.resourceCache(resourceCache);
+            return this;
+        }
+
+        /**
+         * Report every request of the service to the given {@link RequestMetrics}.
+         *
+         * @param metrics the metrics to report the requests to
+         * @return The builder itself
+         */
+        @Override
+        public Builder metrics(RequestMetrics metrics) {
+            super.metrics(metrics);
+            return this;
+        }
+
+        /**
+         * Pass every request of the service through the given {@link RequestInterceptor}.
+         *
+         * @param interceptor the interceptor to add
+         * @return The builder itself
+         */
+        @Override
+        public Builder interceptor(RequestInterceptor interceptor) {
+            super.interceptor(interceptor);
+            return this;
+        }
+
+        /**
+         * Use the given {@link ConnectionPool} for all requests of the service.
+         *
+         * @param connectionPool the pool to take the connections from
+         * @return The builder itself
+         */
+        @Override
+        public Builder connectionPool(ConnectionPool connectionPool) {
+            super.connectionPool(connectionPool);
+            return this;
+        }
+
+        /**
+         * Use the given {@link ExecutorService} to read the responses of the asynchronous operations of the service.
+         *
+         * @param executor the executor for asynchronous operations
+         * @return The builder itself
+         */
+        @Override
+        public Builder executor(ExecutorService executor) {
+            super.executor(executor);
+            return this;
+        }
+
         /**
          * constructs a OsiamGroupService with the given values
          *
          * @return a valid OsiamGroupService
          */
         public OsiamGroupService build() {
-            return new OsiamGroupService(super.getWebResource());
+            return new OsiamGroupService(this);
         }
     }
 }
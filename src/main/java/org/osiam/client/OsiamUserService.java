@@ -8,18 +8,25 @@ import static org.apache.http.HttpStatus.SC_OK;
 import static org.apache.http.HttpStatus.SC_UNAUTHORIZED;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.util.EntityUtils;
+import org.osiam.client.cache.ResourceCache;
+import org.osiam.client.connection.ConnectionPool;
+import org.osiam.client.connection.RequestInterceptor;
 import org.osiam.client.exception.ConnectionInitializationException;
 import org.osiam.client.exception.NoResultException;
 import org.osiam.client.exception.UnauthorizedException;
+import org.osiam.client.metrics.RequestMetrics;
 import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.AccessTokenProvider;
 import org.osiam.client.query.Query;
 import org.osiam.client.query.QueryResult;
 import org.osiam.resources.scim.User;
@@ -34,10 +41,10 @@ public final class OsiamUserService extends AbstractOsiamService<User> { // NOSO
      * The private constructor for the OSIAMUserService. Please use the {@link OsiamUserService.Builder}
      * to construct one.
      *
-     * @param userWebResource a valid WebResource to connect to a given OSIAM server
+     * @param builder the builder holding the configuration of the service
      */
-    private OsiamUserService(HttpGet userWebResource) {
-        super(userWebResource);
+    private OsiamUserService(Builder builder) {
+        super(builder);
     }
 
     /**
@@ -73,39 +80,40 @@ public final class OsiamUserService extends AbstractOsiamService<User> { // NOSO
      *                               if no connection to the given OSIAM services could be initialized
      */
     public User getMe(AccessToken accessToken) {
-	final User user;
+        return execute(meRequest(accessToken), startTimer("getMe"), meHandler());
+    }
 
+    private HttpGet meRequest(AccessToken accessToken) {
         if (accessToken == null) { // NOSONAR - false-positive from clover; if-expression is correct
             throw new IllegalArgumentException("The given accessToken can't be null.");
         }
 
-        try {
-            DefaultHttpClient httpclient = new DefaultHttpClient();
-            
-            HttpGet realWebresource = createRealWebResource(accessToken);
-            realWebresource.setURI(new URI(getUri() + "/me"));
-            
-            HttpResponse response = httpclient.execute(realWebresource);
-            int httpStatus = response.getStatusLine().getStatusCode();
-
-            if (httpStatus != SC_OK) { // NOSONAR - false-positive from clover; if-expression is correct
-                switch (httpStatus) {
-                    case SC_UNAUTHORIZED:
-                        throw new UnauthorizedException("You are not authorized to access OSIAM. Please make sure your access token is valid");
-                    case SC_NOT_FOUND:
-                        throw new NoResultException("No User could be found, who holds the supplied access token");
-                    default:
-                        throw new ConnectionInitializationException(String.format("Unable to setup connection (HTTP Status Code: %d)", httpStatus));
-                }
-            }
+        HttpGet realWebresource = createRealWebResource(accessToken);
+        realWebresource.setURI(uriOf(getUri() + "/me"));
+        return realWebresource;
+    }
 
-            InputStream content = response.getEntity().getContent();
-            user = mapSingleResourceResponse(content);
+    private ResponseHandler<User> meHandler() {
+        return new ResponseHandler<User>() {
+            @Override
+            public User handleResponse(HttpResponse response) throws IOException {
+                int httpStatus = response.getStatusLine().getStatusCode();
 
-            return user;
-        } catch (IOException | URISyntaxException e) {
-            throw new ConnectionInitializationException("Unable to setup connection", e);
-        }
+                if (httpStatus != SC_OK) { // NOSONAR - false-positive from clover; if-expression is correct
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    switch (httpStatus) {
+                        case SC_UNAUTHORIZED:
+                            throw new UnauthorizedException("You are not authorized to access OSIAM. Please make sure your access token is valid");
+                        case SC_NOT_FOUND:
+                            throw new NoResultException("No User could be found, who holds the supplied access token");
+                        default:
+                            throw new ConnectionInitializationException(String.format("Unable to setup connection (HTTP Status Code: %d)", httpStatus));
+                    }
+                }
+
+                return mapSingleResourceResponse(response.getEntity().getContent());
+            }
+        };
     }
 
     public QueryResult<User> getAllUsers(AccessToken accessToken) {
@@ -137,6 +145,299 @@ public final class OsiamUserService extends AbstractOsiamService<User> { // NOSO
         return super.searchResources(query, accessToken);
     }
 
+    /**
+     * Search for existing Users by the given {@link Query} and hand each found User to the handler as soon as it has
+     * been read from the response. Unlike {@link #searchUsers(Query, AccessToken)} the page is never held in memory
+     * as a whole, which keeps the heap small and the first result early for large page sizes.
+     *
+     * @param query       containing the query to execute.
+     * @param accessToken the OSIAM access token from for the current session
+     * @param handler     receives the found Users in the order of the response
+     * @return the total number of Users matching the query
+     * @throws UnauthorizedException if the request could not be authorized.
+     * @throws ConnectionInitializationException
+     *                               if no connection to the given OSIAM services could be initialized
+     */
+    public int searchUsers(Query query, AccessToken accessToken, ResourceHandler<User> handler) {
+        return searchResources(query, accessToken, handler);
+    }
+
+    /**
+     * Iterate over all Users found by the given {@link Query}, starting at the page the query points to. The pages
+     * are requested lazily: the next page is only fetched from OSIAM once the iteration has passed the current one,
+     * and only the current page is kept in memory.
+     *
+     * @param query       containing the query to execute.
+     * @param accessToken the OSIAM access token from for the current session
+     * @return an Iterable over all found Users
+     * @throws UnauthorizedException if a page request could not be authorized.
+     * @throws ConnectionInitializationException
+     *                               if no connection to the given OSIAM services could be initialized
+     */
+    public Iterable<User> iterateUsers(Query query, AccessToken accessToken) {
+        return iterateResources(query, accessToken);
+    }
+
+    /**
+     * Scan all Users found by the given {@link Query}, starting at the page the query points to. After the first
+     * page has arrived, the remaining pages are requested concurrently by the non-blocking client of this service as
+     * configured by the given {@link ScanOptions}. A failed page request is thrown when the iteration reaches it.
+     * The iterators of the scan are {@link CloseableIterator}s; closing one that is abandoned before its end cancels
+     * the page requests still running, best done with try-with-resources:
+     *
+     * <pre>
+     * try (CloseableIterator&lt;User&gt; users = service.scanUsers(query, accessToken, options).iterator()) {
+     *     while (users.hasNext()) {
+     *         ...
+     *     }
+     * }
+     * </pre>
+     *
+     * @param query       containing the query to execute.
+     * @param accessToken the OSIAM access token from for the current session
+     * @param options     the parallelism, in-flight window and ordering of the scan
+     * @return a ScanIterable over all found Users
+     * @throws UnauthorizedException if a page request could not be authorized.
+     * @throws ConnectionInitializationException
+     *                               if no connection to the given OSIAM services could be initialized
+     */
+    public ScanIterable<User> scanUsers(Query query, AccessToken accessToken, ScanOptions options) {
+        return scanResources(query, accessToken, options);
+    }
+
+    /**
+     * Retrieve a single User with the given id, authorized by the access token of the given provider.
+     *
+     * @param id                  the uuid of the wanted user
+     * @param accessTokenProvider provides the access token for the request
+     * @return The user with the given id
+     * @see #getUserByUUID(UUID, AccessToken)
+     */
+    public User getUserByUUID(UUID id, AccessTokenProvider accessTokenProvider) {
+        return getResourceByUUID(id, accessTokenFrom(accessTokenProvider));
+    }
+
+    public void deleteUserByUUID(UUID id, AccessTokenProvider accessTokenProvider) {
+        deleteResourceByUUID(id, accessTokenFrom(accessTokenProvider));
+    }
+
+    public User createUser(User user, AccessTokenProvider accessTokenProvider) {
+        return createResource(user, accessTokenFrom(accessTokenProvider));
+    }
+
+    /**
+     * Retrieve the User who holds the access token of the given provider.
+     *
+     * @param accessTokenProvider provides the access token for the request
+     * @return the User who holds the access token
+     * @see #getMe(AccessToken)
+     */
+    public User getMe(AccessTokenProvider accessTokenProvider) {
+        return getMe(accessTokenFrom(accessTokenProvider));
+    }
+
+    public QueryResult<User> getAllUsers(AccessTokenProvider accessTokenProvider) {
+        return getAllResources(accessTokenFrom(accessTokenProvider));
+    }
+
+    /**
+     * Search for existing Users by the given {@link Query}, authorized by the access token of the given provider.
+     *
+     * @param query               containing the query to execute.
+     * @param accessTokenProvider provides the access token for the request
+     * @return a QueryResult Containing a list of all found Users
+     * @see #searchUsers(Query, AccessToken)
+     */
+    public QueryResult<User> searchUsers(Query query, AccessTokenProvider accessTokenProvider) {
+        return searchResources(query, accessTokenFrom(accessTokenProvider));
+    }
+
+    /**
+     * Iterate over all Users found by the given {@link Query}. Every page is requested with the access token the
+     * provider hands out at that moment, so an iteration may outlive a single token.
+     *
+     * @param query               containing the query to execute.
+     * @param accessTokenProvider provides the access token for each page
+     * @return an Iterable over all found Users
+     * @see #iterateUsers(Query, AccessToken)
+     */
+    public Iterable<User> iterateUsers(Query query, AccessTokenProvider accessTokenProvider) {
+        return iterateResources(query, accessTokenProvider);
+    }
+
+    /**
+     * Scan all Users found by the given {@link Query}. Every page is requested with the access token the provider
+     * hands out at that moment, so a scan may outlive a single token.
+     *
+     * @param query               containing the query to execute.
+     * @param accessTokenProvider provides the access token for each page
+     * @param options             the parallelism, in-flight window and ordering of the scan
+     * @return a ScanIterable over all found Users
+     * @see #scanUsers(Query, AccessToken, ScanOptions)
+     */
+    public ScanIterable<User> scanUsers(Query query, AccessTokenProvider accessTokenProvider, ScanOptions options) {
+        return scanResources(query, accessTokenProvider, options);
+    }
+
+    /**
+     * Update the User with the given id by sending only the differences between the original and the modified
+     * User in a PATCH request. Attributes that are null or missing in the modified User but set in the original
+     * are removed; values missing from a multi-valued attribute are deleted. If both are equal, no request is sent
+     * and the modified User is returned.
+     *
+     * @param id          the uuid of the user to update
+     * @param original    the user as it was retrieved from OSIAM
+     * @param modified    the user with the wanted changes
+     * @param accessToken the OSIAM access token from for the current session
+     * @return the updated User as returned by OSIAM
+     * @throws UnauthorizedException if the request could not be authorized.
+     * @throws NoResultException     if no user with the given id can be found
+     * @throws ConnectionInitializationException
+     *                               if no connection to the given OSIAM services could be initialized
+     */
+    public User updateUser(UUID id, User original, User modified, AccessToken accessToken) {
+        return updateResource(id, original, modified, accessToken);
+    }
+
+    /**
+     * Update the User with the given id, authorized by the access token of the given provider.
+     *
+     * @param id                  the uuid of the user to update
+     * @param original            the user as it was retrieved from OSIAM
+     * @param modified            the user with the wanted changes
+     * @param accessTokenProvider provides the access token for the request
+     * @return the updated User as returned by OSIAM
+     * @see #updateUser(UUID, User, User, AccessToken)
+     */
+    public User updateUser(UUID id, User original, User modified, AccessTokenProvider accessTokenProvider) {
+        return updateResource(id, original, modified, accessTokenFrom(accessTokenProvider));
+    }
+
+    /**
+     * Send the given create, replace and delete operations on Users to the SCIM bulk endpoint of OSIAM, packed
+     * into requests of the batch size configured by the given {@link BulkOptions}. The returned results are in the
+     * order of the operations.
+     *
+     * @param operations  the operations to perform
+     * @param accessToken the OSIAM access token from for the current session
+     * @param options     the batch size and error tolerance of the bulk requests
+     * @return the result of each operation
+     * @throws UnauthorizedException if a bulk request could not be authorized.
+     * @throws ConnectionInitializationException
+     *                               if no connection to the given OSIAM services could be initialized
+     */
+    public List<BulkResult<User>> bulkUsers(List<BulkOperation> operations, AccessToken accessToken, BulkOptions options) {
+        return bulkResources(operations, fixedAccessToken(accessToken), options);
+    }
+
+    /**
+     * Send the given operations on Users to the SCIM bulk endpoint of OSIAM. Every bulk request is sent with the
+     * access token the provider hands out at that moment.
+     *
+     * @param operations          the operations to perform
+     * @param accessTokenProvider provides the access token for each bulk request
+     * @param options             the batch size and error tolerance of the bulk requests
+     * @return the result of each operation
+     * @see #bulkUsers(List, AccessToken, BulkOptions)
+     */
+    public List<BulkResult<User>> bulkUsers(List<BulkOperation> operations, AccessTokenProvider accessTokenProvider,
+                                        BulkOptions options) {
+        return bulkResources(operations, accessTokenProvider, options);
+    }
+
+    /**
+     * Retrieve a single User with the given id without blocking. The request is sent by the non-blocking client of
+     * the {@link ConnectionPool}, so no thread waits for OSIAM, and its response is read on the executor of the
+     * service. The outcome of the request is reported to the returned {@link Future} and, if given, to the callback.
+     * A failed request reports the same exception {@link #getUserByUUID(UUID, AccessToken)} would throw; invalid
+     * arguments are rejected right away.
+     *
+     * @param id          the uuid of the wanted user
+     * @param accessToken the OSIAM access token from for the current session
+     * @param callback    notified when the request completes, may be null
+     * @return a Future holding the user with the given id
+     */
+    public Future<User> getUserByUUIDAsync(UUID id, AccessToken accessToken, FutureCallback<User> callback) {
+        return getResourceByUUIDAsync(id, accessToken, callback);
+    }
+
+    /**
+     * Delete the User with the given id without blocking the calling thread.
+     *
+     * @param id          the uuid of the user to delete
+     * @param accessToken the OSIAM access token from for the current session
+     * @param callback    notified when the request completes, may be null
+     * @return a Future that completes when the user has been deleted
+     * @see #getUserByUUIDAsync(UUID, AccessToken, FutureCallback)
+     */
+    public Future<Void> deleteUserByUUIDAsync(UUID id, AccessToken accessToken, FutureCallback<Void> callback) {
+        return deleteResourceByUUIDAsync(id, accessToken, callback);
+    }
+
+    /**
+     * Create the given User without blocking the calling thread.
+     *
+     * @param user        the user to create
+     * @param accessToken the OSIAM access token from for the current session
+     * @param callback    notified when the request completes, may be null
+     * @return a Future holding the user as it was created by OSIAM
+     * @see #getUserByUUIDAsync(UUID, AccessToken, FutureCallback)
+     */
+    public Future<User> createUserAsync(User user, AccessToken accessToken, FutureCallback<User> callback) {
+        return createResourceAsync(user, accessToken, callback);
+    }
+
+    /**
+     * Retrieve the User who holds the given access token without blocking the calling thread.
+     *
+     * @param accessToken the OSIAM access token from for the current session
+     * @param callback    notified when the request completes, may be null
+     * @return a Future holding the user who holds the access token
+     * @see #getUserByUUIDAsync(UUID, AccessToken, FutureCallback)
+     */
+    public Future<User> getMeAsync(AccessToken accessToken, FutureCallback<User> callback) {
+        return executeAsync(meRequest(accessToken), startTimer("getMe"), meHandler(), callback);
+    }
+
+    /**
+     * Retrieve the first page of all Users without blocking the calling thread.
+     *
+     * @param accessToken the OSIAM access token from for the current session
+     * @param callback    notified when the request completes, may be null
+     * @return a Future holding a QueryResult containing the users
+     * @see #getUserByUUIDAsync(UUID, AccessToken, FutureCallback)
+     */
+    public Future<QueryResult<User>> getAllUsersAsync(AccessToken accessToken, FutureCallback<QueryResult<User>> callback) {
+        return getAllResourcesAsync(accessToken, callback);
+    }
+
+    /**
+     * Search for existing Users by a given search string without blocking the calling thread.
+     *
+     * @param queryString The string with the query that should be passed to the OSIAM service
+     * @param accessToken the OSIAM access token from for the current session
+     * @param callback    notified when the request completes, may be null
+     * @return a Future holding a QueryResult containing the found users
+     * @see #searchUsers(String, AccessToken)
+     */
+    public Future<QueryResult<User>> searchUsersAsync(String queryString, AccessToken accessToken,
+                                                      FutureCallback<QueryResult<User>> callback) {
+        return searchResourcesAsync(queryString, accessToken, callback);
+    }
+
+    /**
+     * Search for existing Users by the given {@link Query} without blocking the calling thread.
+     *
+     * @param query       containing the query to execute.
+     * @param accessToken the OSIAM access token from for the current session
+     * @param callback    notified when the request completes, may be null
+     * @return a Future holding a QueryResult containing the found users
+     */
+    public Future<QueryResult<User>> searchUsersAsync(Query query, AccessToken accessToken,
+                                                      FutureCallback<QueryResult<User>> callback) {
+        return searchResourcesAsync(query, accessToken, callback);
+    }
+
     /**
      * The Builder class is used to construct instances of the {@link OsiamUserService}
      */
@@ -152,13 +453,74 @@ public final class OsiamUserService extends AbstractOsiamService<User> { // NOSO
             super(endpoint);
         }
 
+        /**
+         * Keep the Users retrieved by their id in the given {@link ResourceCache}. Users created or deleted through
+         * the service are removed from the cache.
+         *
+         * @param resourceCache the cache for Users retrieved by their id
+         * @return The builder itself
+         */
+        @Override
+        public Builder resourceCache(ResourceCache<User> resourceCache) {
+            super.resourceCache(resourceCache);
+            return this;
+        }
+
+        /**
+         * Report every request of the service to the given {@link RequestMetrics}.
+         *
+         * @param metrics the metrics to report the requests to
+         * @return The builder itself
+         */
+        @Override
+        public Builder metrics(RequestMetrics metrics) {
+            super.metrics(metrics);
+            return this;
+        }
+
+        /**
+         * Pass every request of the service through the given {@link RequestInterceptor}.
+         *
+         * @param interceptor the interceptor to add
+         * @return The builder itself
+         */
+        @Override
+        public Builder interceptor(RequestInterceptor interceptor) {
+            super.interceptor(interceptor);
+            return this;
+        }
+
+        /**
+         * Use the given {@link ConnectionPool} for all requests of the service.
+         *
+         * @param connectionPool the pool to take the connections from
+         * @return The builder itself
+         */
+        @Override
+        public Builder connectionPool(ConnectionPool connectionPool) {
+            super.connectionPool(connectionPool);
+            return this;
+        }
+
+        /**
+         * Use the given {@link ExecutorService} to read the responses of the asynchronous operations of the service.
+         *
+         * @param executor the executor for asynchronous operations
+         * @return The builder itself
+         */
+        @Override
+        public Builder executor(ExecutorService executor) {
+            super.executor(executor);
+            return this;
+        }
+
         /**
          * constructs an OsiamUserService with the given values
          *
          * @return a valid OsiamUserService
          */
         public OsiamUserService build() {
-            return new OsiamUserService(super.getWebResource());
+            return new OsiamUserService(this);
         }
     }
 }
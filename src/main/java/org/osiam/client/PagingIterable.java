@@ -0,0 +1,83 @@
+package org.osiam.client;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.osiam.client.oauth.AccessTokenProvider;
+import org.osiam.client.query.Query;
+import org.osiam.client.query.QueryResult;
+import org.osiam.resources.scim.CoreResource;
+
+/**
+ * A PagingIterable walks through all results of a {@link Query}, starting at the page the query points to. The next
+ * page is only requested from OSIAM once all resources of the current page have been handed out, and only the
+ * current page is held in memory. Each call to {@link #iterator()} starts a new walk.
+ *
+ * @param <T> a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+ */
+class PagingIterable<T extends CoreResource> implements Iterable<T> {
+
+    private final AbstractOsiamService<T> service;
+    private final Query query;
+    private final AccessTokenProvider accessTokenProvider;
+
+    PagingIterable(AbstractOsiamService<T> service, Query query, AccessTokenProvider accessTokenProvider) {
+        if (query == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given query can't be null.");
+        }
+        if (accessTokenProvider == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given accessTokenProvider can't be null.");
+        }
+        this.service = service;
+        this.query = query;
+        this.accessTokenProvider = accessTokenProvider;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new PagingIterator();
+    }
+
+    private final class PagingIterator implements Iterator<T> {
+
+        private Query nextQuery = query;
+        private List<T> page;
+        private int position;
+
+        @Override
+        public boolean hasNext() {
+            while ((page == null || position >= page.size()) && nextQuery != null) {
+                fetchNextPage();
+            }
+            return position < page.size();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new NoSuchElementException();
+            }
+            return page.get(position++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Resources can't be removed through this iterator.");
+        }
+
+        private void fetchNextPage() {
+            Query current = nextQuery;
+            QueryResult<T> result = service.searchResources(current, accessTokenProvider.getAccessToken());
+            page = result.getResources();
+            position = 0;
+
+            Query following = current.nextPage();
+            boolean lastPage = page.size() < current.getCount() || following.getStartIndex() >= result.getTotalResults();
+            nextQuery = lastPage ? null : following; // NOSONAR - false-positive from clover; if-expression is correct
+        }
+    }
+}
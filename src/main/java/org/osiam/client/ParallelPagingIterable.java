@@ -0,0 +1,338 @@
+package org.osiam.client;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Future;
+
+import org.apache.http.concurrent.FutureCallback;
+import org.osiam.client.connection.Deadline;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.AccessTokenProvider;
+import org.osiam.client.query.Query;
+import org.osiam.client.query.QueryResult;
+import org.osiam.resources.scim.CoreResource;
+
+/**
+ * A ParallelPagingIterable walks through all results of a {@link Query} like the {@link PagingIterable}, but once the
+ * first page has arrived it requests the remaining pages concurrently with the non-blocking client of the service, as
+ * configured by the given {@link ScanOptions}. Each call to {@link #iterator()} starts a new scan.
+ *
+ * @param <T> a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+ */
+class ParallelPagingIterable<T extends CoreResource> implements ScanIterable<T> {
+
+    private final AbstractOsiamService<T> service;
+    private final Query query;
+    private final AccessTokenProvider accessTokenProvider;
+    private final ScanOptions options;
+
+    ParallelPagingIterable(AbstractOsiamService<T> service, Query query, AccessTokenProvider accessTokenProvider, ScanOptions options) {
+        if (query == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given query can't be null.");
+        }
+        if (accessTokenProvider == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given accessTokenProvider can't be null.");
+        }
+        if (options == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given scan options can't be null.");
+        }
+        this.service = service;
+        this.query = query;
+        this.accessTokenProvider = accessTokenProvider;
+        this.options = options;
+    }
+
+    @Override
+    public CloseableIterator<T> iterator() {
+        return new ScanIterator();
+    }
+
+    /**
+     * Hands out the resources of one scan. Closing it cancels the page requests still running, which an iteration
+     * abandoned before its end should do.
+     */
+    private final class ScanIterator implements CloseableIterator<T> {
+
+        private Scan scan;
+        private List<T> page;
+        private int position;
+        private boolean closed;
+
+        @Override
+        public boolean hasNext() {
+            if (closed) { // NOSONAR - false-positive from clover; if-expression is correct
+                return false;
+            }
+            if (scan == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                QueryResult<T> first = service.searchResources(query, accessTokenProvider.getAccessToken());
+                page = first.getResources();
+                scan = new Scan(first);
+            }
+            while (position >= page.size() && scan.hasMorePages()) {
+                page = scan.takePage();
+                position = 0;
+            }
+            return position < page.size();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new NoSuchElementException();
+            }
+            return page.get(position++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Resources can't be removed through this iterator.");
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (scan != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                scan.cancel();
+            }
+        }
+    }
+
+    /**
+     * Keeps track of the pages of one scan. The next page is derived from the last requested one when it is due, and
+     * the number of pages follows the total of the latest arrived page; a page with less resources than requested
+     * ends the scan. At most {@link ScanOptions#getParallelism()} requests are running at a time, and no more than
+     * {@link ScanOptions#getMaxPagesInFlight()} pages are running or waiting to be taken. The {@link Deadline} open
+     * when the scan started bounds the wait for a page.
+     */
+    private final class Scan {
+
+        private final Deadline deadline = Deadline.current();
+        private final Map<Integer, Outcome> arrivedInOrder = new HashMap<>();
+        private final Queue<Outcome> arrivedUnordered = new ArrayDeque<>();
+        private final Map<Integer, Future<QueryResult<T>>> requests = new HashMap<>();
+        private Query nextPage;
+        private int totalResults;
+        private int nextToRequest;
+        private int nextToTake;
+        private int running;
+        private int waiting;
+        private boolean cancelled;
+
+        private Scan(QueryResult<T> first) {
+            totalResults = first.getTotalResults();
+            if (first.getResources().size() >= query.getCount()) { // NOSONAR - false-positive from clover; if-expression is correct
+                nextPage = query.nextPage();
+            }
+            Map<Integer, Query> due;
+            synchronized (this) {
+                due = reservePages();
+            }
+            request(due);
+        }
+
+        private synchronized boolean hasMorePages() {
+            return nextToTake < nextToRequest || isNextPageDue();
+        }
+
+        private boolean isNextPageDue() {
+            return !cancelled && nextPage != null && nextPage.getStartIndex() < totalResults;
+        }
+
+        private List<T> takePage() {
+            Outcome outcome;
+            Map<Integer, Query> due = Collections.emptyMap();
+            synchronized (this) {
+                while ((outcome = poll()) == null) {
+                    try {
+                        waitForPage();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        cancel();
+                        throw new IllegalStateException("Interrupted while waiting for the next page.", e);
+                    } catch (RuntimeException e) {
+                        cancel();
+                        throw e;
+                    }
+                }
+                nextToTake++;
+                waiting--;
+                if (outcome.isFailed()) { // NOSONAR - false-positive from clover; if-expression is correct
+                    cancel();
+                } else {
+                    due = reservePages();
+                }
+            }
+            request(due);
+            return outcome.getResources();
+        }
+
+        private void waitForPage() throws InterruptedException {
+            if (deadline == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                wait();
+                return;
+            }
+            deadline.check();
+            wait(Math.max(1, deadline.getRemainingMillis()));
+        }
+
+        private Outcome poll() {
+            if (options.isOrdered()) { // NOSONAR - false-positive from clover; if-expression is correct
+                return arrivedInOrder.remove(nextToTake);
+            }
+            return arrivedUnordered.poll();
+        }
+
+        /**
+         * Reserve the pages that are due and may run now, by their index. Called holding the monitor of the scan; the
+         * pages are requested with {@link #request(Map)} once it is released.
+         */
+        private Map<Integer, Query> reservePages() {
+            Map<Integer, Query> due = new LinkedHashMap<>();
+            while (isNextPageDue() && running < options.getParallelism()
+                    && running + waiting < options.getMaxPagesInFlight()) {
+                Query page = nextPage;
+                nextPage = page.nextPage();
+                running++;
+                due.put(nextToRequest++, page);
+            }
+            return due;
+        }
+
+        private void arrived(int index, Outcome outcome, QueryResult<T> result) {
+            Map<Integer, Query> due;
+            synchronized (this) {
+                requests.remove(index);
+                running--;
+                waiting++;
+                if (options.isOrdered()) { // NOSONAR - false-positive from clover; if-expression is correct
+                    arrivedInOrder.put(index, outcome);
+                } else {
+                    arrivedUnordered.add(outcome);
+                }
+                if (result != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                    totalResults = result.getTotalResults();
+                    if (result.getResources().size() < query.getCount()) { // NOSONAR - false-positive from clover; if-expression is correct
+                        nextPage = null;
+                    }
+                }
+                due = reservePages();
+                notifyAll();
+            }
+            request(due);
+        }
+
+        /**
+         * Stop requesting pages and cancel the requests still running.
+         */
+        private synchronized void cancel() {
+            cancelled = true;
+            for (Future<QueryResult<T>> request : new ArrayList<>(requests.values())) {
+                request.cancel(true);
+            }
+            requests.clear();
+        }
+
+        /**
+         * Keep the running request of the given page, so it can be cancelled. A request started after the scan was
+         * cancelled is cancelled right away.
+         */
+        private synchronized void register(int index, Future<QueryResult<T>> request) {
+            if (cancelled) { // NOSONAR - false-positive from clover; if-expression is correct
+                request.cancel(true);
+            } else if (!request.isDone()) {
+                requests.put(index, request);
+            }
+        }
+
+        /**
+         * Start the requests of the given reserved pages. This must not hold the monitor of the scan, as the access
+         * token provider may block to refresh the token. Further pages are requested from the thread the previous
+         * page arrived on, so the deadline of the scan is attached to it.
+         */
+        private void request(Map<Integer, Query> due) {
+            if (due.isEmpty()) { // NOSONAR - false-positive from clover; if-expression is correct
+                return;
+            }
+            try (Deadline attached = deadline == null ? null : deadline.attach()) { // NOSONAR - false-positive from clover; if-expression is correct
+                AccessToken accessToken;
+                try {
+                    accessToken = accessTokenProvider.getAccessToken();
+                } catch (RuntimeException e) {
+                    for (Integer index : due.keySet()) {
+                        callback(index).failed(e);
+                    }
+                    return;
+                }
+                for (Map.Entry<Integer, Query> page : due.entrySet()) {
+                    request(page.getKey(), page.getValue(), accessToken);
+                }
+            }
+        }
+
+        private void request(int index, Query page, AccessToken accessToken) {
+            FutureCallback<QueryResult<T>> callback = callback(index);
+            try {
+                register(index, service.searchResourcesAsync(page, accessToken, callback));
+            } catch (RuntimeException e) {
+                callback.failed(e);
+            }
+        }
+
+        private FutureCallback<QueryResult<T>> callback(final int index) {
+            return new FutureCallback<QueryResult<T>>() {
+                @Override
+                public void completed(QueryResult<T> result) {
+                    arrived(index, new Outcome(result.getResources(), null), result);
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    arrived(index, new Outcome(null, e), null);
+                }
+
+                @Override
+                public void cancelled() {
+                    arrived(index, new Outcome(null, new IllegalStateException("The page request was cancelled.")), null);
+                }
+            };
+        }
+    }
+
+    /**
+     * The resources of a page or the exception its request failed with.
+     */
+    private final class Outcome {
+
+        private final List<T> resources;
+        private final Exception failure;
+
+        private Outcome(List<T> resources, Exception failure) {
+            this.resources = resources;
+            this.failure = failure;
+        }
+
+        private boolean isFailed() {
+            return failure != null;
+        }
+
+        private List<T> getResources() {
+            if (failure instanceof RuntimeException) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw (RuntimeException) failure;
+            }
+            if (failure != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalStateException("Unable to retrieve page", failure);
+            }
+            return resources;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.osiam.client;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.JsonNodeFactory;
+import org.codehaus.jackson.node.ObjectNode;
+
+/**
+ * ResourceDiff computes the body of a SCIM PATCH request from the JSON trees of a resource before and after a
+ * modification. Only changed attributes are sent:
+ * <ul>
+ * <li>changed simple attributes with their new value</li>
+ * <li>changed sub-attributes of complex attributes, like name.givenName</li>
+ * <li>removed values of multi-valued attributes marked with "operation": "delete", followed by the added values; a
+ * value whose sub-attributes changed, like primary or type, is thereby deleted before it is added again</li>
+ * <li>removed attributes and emptied multi-valued attributes listed in meta.attributes</li>
+ * </ul>
+ * The id, meta and schemas of the resource are never compared; the schemas of the modified resource are always sent.
+ */
+final class ResourceDiff {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private ResourceDiff() {
+    }
+
+    /**
+     * Compute the PATCH body leading from the original to the modified resource.
+     *
+     * @param original the resource as it is stored in OSIAM
+     * @param modified the resource as it should be stored
+     * @return the PATCH body, or null if both resources are equal
+     */
+    static ObjectNode patchOf(JsonNode original, JsonNode modified) {
+        ObjectNode patch = NODES.objectNode();
+        List<String> removed = new ArrayList<>();
+
+        Iterator<Map.Entry<String, JsonNode>> fields = modified.getFields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String name = field.getKey();
+            if (isIgnored(name)) { // NOSONAR - false-positive from clover; if-expression is correct
+                continue;
+            }
+            JsonNode before = original.get(name);
+            JsonNode after = field.getValue();
+            if (isAbsent(after)) { // NOSONAR - false-positive from clover; if-expression is correct
+                if (!isAbsent(before)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    removed.add(name);
+                }
+            } else if (after.isArray()) {
+                diffMultiValued(name, before, (ArrayNode) after, patch, removed);
+            } else if (after.isObject() && before != null && before.isObject()) {
+                diffComplex(name, before, after, patch, removed);
+            } else if (!after.equals(before)) {
+                patch.put(name, withoutNulls(after));
+            }
+        }
+
+        Iterator<String> originalNames = original.getFieldNames();
+        while (originalNames.hasNext()) {
+            String name = originalNames.next();
+            if (!isIgnored(name) && !modified.has(name) && !isAbsent(original.get(name))) { // NOSONAR - false-positive from clover; if-expression is correct
+                removed.add(name);
+            }
+        }
+
+        if (patch.size() == 0 && removed.isEmpty()) { // NOSONAR - false-positive from clover; if-expression is correct
+            return null;
+        }
+        if (modified.has("schemas")) { // NOSONAR - false-positive from clover; if-expression is correct
+            patch.put("schemas", modified.get("schemas"));
+        }
+        if (!removed.isEmpty()) { // NOSONAR - false-positive from clover; if-expression is correct
+            ArrayNode attributes = patch.putObject("meta").putArray("attributes");
+            for (String name : removed) {
+                attributes.add(name);
+            }
+        }
+        return patch;
+    }
+
+    private static void diffComplex(String name, JsonNode before, JsonNode after, ObjectNode patch, List<String> removed) {
+        ObjectNode changed = NODES.objectNode();
+        Iterator<Map.Entry<String, JsonNode>> subFields = after.getFields();
+        while (subFields.hasNext()) {
+            Map.Entry<String, JsonNode> subField = subFields.next();
+            JsonNode subBefore = before.get(subField.getKey());
+            if (isAbsent(subField.getValue())) { // NOSONAR - false-positive from clover; if-expression is correct
+                if (!isAbsent(subBefore)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    removed.add(name + "." + subField.getKey());
+                }
+            } else if (!subField.getValue().equals(subBefore)) {
+                changed.put(subField.getKey(), withoutNulls(subField.getValue()));
+            }
+        }
+        Iterator<String> beforeNames = before.getFieldNames();
+        while (beforeNames.hasNext()) {
+            String subName = beforeNames.next();
+            if (!after.has(subName) && !isAbsent(before.get(subName))) { // NOSONAR - false-positive from clover; if-expression is correct
+                removed.add(name + "." + subName);
+            }
+        }
+        if (changed.size() > 0) { // NOSONAR - false-positive from clover; if-expression is correct
+            patch.put(name, changed);
+        }
+    }
+
+    private static void diffMultiValued(String name, JsonNode before, ArrayNode after, ObjectNode patch, List<String> removed) {
+        if (after.size() == 0) { // NOSONAR - false-positive from clover; if-expression is correct
+            if (before != null && before.size() > 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                removed.add(name);
+            }
+            return;
+        }
+        ArrayNode changed = NODES.arrayNode();
+        if (before != null && before.isArray()) { // NOSONAR - false-positive from clover; if-expression is correct
+            for (JsonNode value : before) {
+                if (!contains(after, value) && value.isObject()) { // NOSONAR - false-positive from clover; if-expression is correct
+                    ObjectNode deletion = (ObjectNode) withoutNulls(value);
+                    deletion.put("operation", "delete");
+                    changed.add(deletion);
+                }
+            }
+        }
+        for (JsonNode value : after) {
+            if (!contains(before, value)) { // NOSONAR - false-positive from clover; if-expression is correct
+                changed.add(withoutNulls(value));
+            }
+        }
+        if (changed.size() > 0) { // NOSONAR - false-positive from clover; if-expression is correct
+            patch.put(name, changed);
+        }
+    }
+
+    private static boolean contains(JsonNode array, JsonNode value) {
+        if (array == null || !array.isArray()) { // NOSONAR - false-positive from clover; if-expression is correct
+            return false;
+        }
+        for (JsonNode element : array) {
+            if (element.equals(value)) { // NOSONAR - false-positive from clover; if-expression is correct
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static JsonNode withoutNulls(JsonNode node) {
+        if (!node.isObject()) { // NOSONAR - false-positive from clover; if-expression is correct
+            return node;
+        }
+        ObjectNode copy = NODES.objectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.getFields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!isAbsent(field.getValue())) { // NOSONAR - false-positive from clover; if-expression is correct
+                copy.put(field.getKey(), withoutNulls(field.getValue()));
+            }
+        }
+        return copy;
+    }
+
+    private static boolean isIgnored(String name) {
+        return "id".equals(name) || "meta".equals(name) || "schemas".equals(name);
+    }
+
+    private static boolean isAbsent(JsonNode node) {
+        return node == null || node.isNull();
+    }
+}
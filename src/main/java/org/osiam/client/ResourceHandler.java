@@ -0,0 +1,22 @@
+package org.osiam.client;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import org.osiam.resources.scim.CoreResource;
+
+/**
+ * A ResourceHandler receives the resources of a search one by one, as soon as each of them has been parsed from the
+ * response of the OSIAM service.
+ *
+ * @param <T> a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+ */
+public interface ResourceHandler<T extends CoreResource> {
+
+    /**
+     * Called once for every resource of the search result, in the order of the response.
+     *
+     * @param resource the parsed resource
+     */
+    void handle(T resource);
+}
@@ -0,0 +1,16 @@
+package org.osiam.client;
+/*
+ * for licensing see the file license.txt.
+ */
+
+/**
+ * The Iterable a scan returns. Each call to {@link #iterator()} starts a new scan, whose iterator should be closed if
+ * the iteration may end early, see {@link CloseableIterator}.
+ *
+ * @param <T> a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+ */
+public interface ScanIterable<T> extends Iterable<T> {
+
+    @Override
+    CloseableIterator<T> iterator();
+}
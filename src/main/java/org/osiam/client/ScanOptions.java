@@ -0,0 +1,105 @@
+package org.osiam.client;
+/*
+ * for licensing see the file license.txt.
+ */
+
+/**
+ * ScanOptions configure how a full scan over all pages of a query fetches its pages. Once the first page has arrived
+ * the total number of resources is known, so several of the following pages can be requested at the same time. For
+ * the construction of an instance please use the included {@link ScanOptions.Builder}.
+ */
+public final class ScanOptions { // NOSONAR - Builder constructs instances of this class
+
+    private final int parallelism;
+    private final int maxPagesInFlight;
+    private final boolean ordered;
+
+    private ScanOptions(Builder builder) {
+        parallelism = builder.parallelism;
+        maxPagesInFlight = Math.max(builder.maxPagesInFlight, builder.parallelism);
+        ordered = builder.ordered;
+    }
+
+    /**
+     * @return the number of pages that are requested from OSIAM at the same time
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return the number of pages that are requested or held in memory but not yet handed out
+     */
+    public int getMaxPagesInFlight() {
+        return maxPagesInFlight;
+    }
+
+    /**
+     * @return true if the pages are handed out in the order of the query, false if in the order of their arrival
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * The Builder class is used to construct instances of the {@link ScanOptions}.
+     */
+    public static class Builder {
+
+        private static final int DEFAULT_PARALLELISM = 4;
+
+        private int parallelism = DEFAULT_PARALLELISM;
+        private int maxPagesInFlight = 2 * DEFAULT_PARALLELISM;
+        private boolean ordered = true;
+
+        /**
+         * Set the number of pages that are requested from OSIAM at the same time. Default is 4.
+         *
+         * @param parallelism the number of concurrent page requests
+         * @return The builder itself
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The parallelism has to be positive.");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Set the number of pages that may be requested or waiting in memory before the caller has consumed them.
+         * This bounds the memory a scan needs if the caller is slower than OSIAM. Default is twice the parallelism;
+         * it is never less than the parallelism.
+         *
+         * @param maxPagesInFlight the maximum number of pages in flight
+         * @return The builder itself
+         */
+        public Builder maxPagesInFlight(int maxPagesInFlight) {
+            if (maxPagesInFlight < 1) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The maximum number of pages in flight has to be positive.");
+            }
+            this.maxPagesInFlight = maxPagesInFlight;
+            return this;
+        }
+
+        /**
+         * Hand out the pages in the order of the query (default) or as soon as they arrive.
+         *
+         * @param ordered true to keep the order of the query
+         * @return The builder itself
+         */
+        public Builder ordered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * Construct the {@link ScanOptions} with the parameters passed to this builder.
+         *
+         * @return ScanOptions configured accordingly.
+         */
+        public ScanOptions build() {
+            return new ScanOptions(this);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package org.osiam.client.cache;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A ResourceCache holds resources retrieved by their id for a limited time. It keeps at most the configured number
+ * of resources and evicts the least recently used one to make room for a new one. A resource cached together with
+ * its version is kept after its time to live has run out, so it can be revalidated with OSIAM instead of being
+ * downloaded again. A cache is safe to use from several threads. For the construction of an instance please use the
+ * included {@link ResourceCache.Builder}.
+ *
+ * @param <T> a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+ */
+public final class ResourceCache<T> { // NOSONAR - Builder constructs instances of this class
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int maximumSize;
+    private final long timeToLiveMillis;
+    private final Map<UUID, CacheEntry<T>> entries;
+    private long hitCount;
+    private long missCount;
+    private long revalidationCount;
+
+    private ResourceCache(Builder<T> builder) {
+        maximumSize = builder.maximumSize;
+        timeToLiveMillis = builder.timeToLiveMillis;
+        entries = new LinkedHashMap<UUID, CacheEntry<T>>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CacheEntry<T>> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Provide the resource with the given id if it has been cached and its time to live has not run out yet.
+     *
+     * @param id the id of the resource
+     * @return the cached resource or null
+     */
+    public synchronized T get(UUID id) {
+        CacheEntry<T> entry = entries.get(id);
+        if (entry == null || entry.isExpired()) { // NOSONAR - false-positive from clover; if-expression is correct
+            if (entry != null && entry.version == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                entries.remove(id);
+            }
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.resource;
+    }
+
+    /**
+     * Cache the given resource under the given id.
+     *
+     * @param id       the id of the resource
+     * @param resource the resource to cache
+     */
+    public void put(UUID id, T resource) {
+        put(id, resource, null);
+    }
+
+    /**
+     * Cache the given resource under the given id together with its version, as sent by OSIAM in the ETag header or
+     * in meta.version.
+     *
+     * @param id       the id of the resource
+     * @param resource the resource to cache
+     * @param version  the version of the resource, may be null
+     */
+    public synchronized void put(UUID id, T resource, String version) {
+        entries.put(id, new CacheEntry<>(resource, version, System.currentTimeMillis() + timeToLiveMillis));
+    }
+
+    /**
+     * Provide the version of the resource with the given id, even if its time to live has run out.
+     *
+     * @param id the id of the resource
+     * @return the cached version or null if the resource or its version is unknown
+     */
+    public synchronized String getVersion(UUID id) {
+        CacheEntry<T> entry = entries.get(id);
+        return entry == null ? null : entry.version; // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    /**
+     * Provide the resource with the given id together with the version it was cached with, even if its time to live
+     * has run out, to revalidate it with OSIAM. The resource stays usable if the entry is evicted meanwhile.
+     *
+     * @param id the id of the resource
+     * @return the cached resource and its version or null if the resource or its version is unknown
+     */
+    public synchronized VersionedResource<T> getVersioned(UUID id) {
+        CacheEntry<T> entry = entries.get(id);
+        if (entry == null || entry.version == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            return null;
+        }
+        return new VersionedResource<>(entry.resource, entry.version);
+    }
+
+    /**
+     * Mark the resource with the given id as still valid after OSIAM confirmed that the given version is current, and
+     * start its time to live anew.
+     *
+     * @param id      the id of the resource
+     * @param version the version OSIAM confirmed
+     * @return the cached resource or null if the cache holds no resource with the given version any more
+     */
+    public synchronized T revalidate(UUID id, String version) {
+        CacheEntry<T> entry = entries.get(id);
+        if (entry == null || version == null || !version.equals(entry.version)) { // NOSONAR - false-positive from clover; if-expression is correct
+            return null;
+        }
+        revalidationCount++;
+        entries.put(id, new CacheEntry<>(entry.resource, version, System.currentTimeMillis() + timeToLiveMillis));
+        return entry.resource;
+    }
+
+    /**
+     * Remove the resource with the given id from the cache.
+     *
+     * @param id the id of the resource
+     */
+    public synchronized void invalidate(UUID id) {
+        entries.remove(id);
+    }
+
+    /**
+     * Remove all resources from the cache.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * @return the number of cached resources, including those whose time to live has run out but that are kept for
+     *         revalidation or have not been looked up since
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of lookups that were answered from the cache
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of lookups that found no valid resource in the cache
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of missed lookups for which OSIAM confirmed that the cached version is still current
+     */
+    public synchronized long getRevalidationCount() {
+        return revalidationCount;
+    }
+
+    /**
+     * A cached resource together with the version it was cached with.
+     *
+     * @param <T> a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+     */
+    public static final class VersionedResource<T> {
+
+        private final T resource;
+        private final String version;
+
+        private VersionedResource(T resource, String version) {
+            this.resource = resource;
+            this.version = version;
+        }
+
+        public T getResource() {
+            return resource;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+    }
+
+    private static final class CacheEntry<T> {
+
+        private final T resource;
+        private final String version;
+        private final long expiresAt;
+
+        private CacheEntry(T resource, String version, long expiresAt) {
+            this.resource = resource;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+
+    /**
+     * The Builder class is used to construct instances of the {@link ResourceCache}.
+     *
+     * @param <T> a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+     */
+    public static class Builder<T> {
+
+        private static final int DEFAULT_MAXIMUM_SIZE = 1000;
+        private static final long DEFAULT_TIME_TO_LIVE_SECONDS = 60;
+
+        private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+        private long timeToLiveMillis = TimeUnit.SECONDS.toMillis(DEFAULT_TIME_TO_LIVE_SECONDS);
+
+        /**
+         * Set the number of resources the cache holds at most. Default is 1000.
+         *
+         * @param maximumSize the maximum number of cached resources
+         * @return The builder itself
+         */
+        public Builder<T> maximumSize(int maximumSize) {
+            if (maximumSize < 1) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The maximum size has to be positive.");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Set the time a resource is handed out from the cache after it was retrieved. Default is 60 seconds.
+         *
+         * @param timeToLive the time to live of a cached resource
+         * @param unit       the unit of the time
+         * @return The builder itself
+         */
+        public Builder<T> timeToLive(long timeToLive, TimeUnit unit) {
+            if (timeToLive <= 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The time to live has to be positive.");
+            }
+            this.timeToLiveMillis = unit.toMillis(timeToLive);
+            return this;
+        }
+
+        /**
+         * Construct the {@link ResourceCache} with the parameters passed to this builder.
+         *
+         * @return A ResourceCache configured accordingly.
+         */
+        public ResourceCache<T> build() {
+            return new ResourceCache<>(this);
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package org.osiam.client.connection;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.osiam.client.exception.ConnectionInitializationException;
+import org.osiam.client.metrics.RequestTimer;
+
+/**
+ * A ConnectionPool holds a thread-safe {@link HttpClient} whose connections are pooled and kept alive between
+ * requests, and a non-blocking {@link HttpAsyncClient} for the asynchronous operations of the services. One pool can
+ * be shared by all OSIAM services talking to the same server. For the construction of an instance please use the
+ * included {@link ConnectionPool.Builder}.
+ */
+public final class ConnectionPool { // NOSONAR - Builder constructs instances of this class
+
+    private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "osiam-connection-evictor");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final Eviction eviction;
+    private final int maxConnections;
+    private final int maxConnectionsPerRoute;
+    private final KeepAliveStrategy keepAliveStrategy;
+    private final RequestConfig requestConfig;
+    private final IOReactorConfig reactorConfig;
+    private PoolingNHttpClientConnectionManager asyncConnectionManager;
+    private volatile CloseableHttpAsyncClient asyncClient;
+    private boolean shutdown;
+
+    private ConnectionPool(Builder builder) {
+        maxConnections = builder.maxConnections;
+        maxConnectionsPerRoute = builder.maxConnectionsPerRoute;
+        keepAliveStrategy = new KeepAliveStrategy(builder.keepAliveMillis);
+        requestConfig = RequestConfig.custom()
+                .setConnectTimeout(builder.connectTimeoutMillis)
+                .setSocketTimeout(builder.readTimeoutMillis)
+                .setConnectionRequestTimeout(builder.connectionRequestTimeoutMillis)
+                .build();
+        reactorConfig = IOReactorConfig.custom()
+                .setConnectTimeout(builder.connectTimeoutMillis)
+                .setSoTimeout(builder.readTimeoutMillis)
+                .build();
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(builder.maxConnections);
+        connectionManager.setDefaultMaxPerRoute(builder.maxConnectionsPerRoute);
+
+        httpClient = RequestTimer.install(HttpClients.custom())
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .build();
+
+        eviction = new Eviction(this, builder.idleTimeoutMillis);
+    }
+
+    /**
+     * Provide the pooled {@link HttpClient}. The client is thread-safe and must not be shut down directly, please use
+     * {@link #shutdown()} instead.
+     *
+     * @return the HttpClient backed by this pool
+     */
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Provide the non-blocking {@link HttpAsyncClient} of this pool. Its requests don't occupy a thread while they
+     * wait for OSIAM; they are served by a few I/O threads, which are started on first use. The client keeps
+     * connections of its own, limited and kept alive like those of {@link #getHttpClient()}. It must not be closed
+     * directly, please use {@link #shutdown()} instead.
+     *
+     * @return the HttpAsyncClient backed by this pool
+     * @throws IllegalStateException if the pool has been shut down
+     * @throws ConnectionInitializationException
+     *                               if the I/O threads could not be started
+     */
+    public HttpAsyncClient getAsyncClient() {
+        CloseableHttpAsyncClient client = asyncClient;
+        if (client != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            return client;
+        }
+        synchronized (this) {
+            if (shutdown) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalStateException("The connection pool has been shut down.");
+            }
+            if (asyncClient == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                asyncClient = startAsyncClient();
+            }
+            return asyncClient;
+        }
+    }
+
+    /**
+     * @return the timeouts configured for the requests of this pool, shared by both clients
+     */
+    RequestConfig getRequestConfig() {
+        return requestConfig;
+    }
+
+    private CloseableHttpAsyncClient startAsyncClient() {
+        DefaultConnectingIOReactor ioReactor;
+        try {
+            ioReactor = new DefaultConnectingIOReactor(reactorConfig, new DaemonThreadFactory("osiam-io-dispatcher"));
+        } catch (IOReactorException e) {
+            throw new ConnectionInitializationException("Unable to start the I/O threads of the connection pool", e);
+        }
+        asyncConnectionManager = new PoolingNHttpClientConnectionManager(ioReactor);
+        asyncConnectionManager.setMaxTotal(maxConnections);
+        asyncConnectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(asyncConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .setThreadFactory(new DaemonThreadFactory("osiam-io-reactor"))
+                .build();
+        client.start();
+        return client;
+    }
+
+    /**
+     * Closes all pooled connections, stops the I/O threads and the eviction of idle connections. The pool can't be
+     * used afterwards.
+     */
+    public void shutdown() {
+        eviction.cancel();
+        try {
+            httpClient.close();
+        } catch (IOException ignore) { // NOSONAR - closing the pooled connections can't fail
+            connectionManager.shutdown();
+        }
+        CloseableHttpAsyncClient client;
+        synchronized (this) {
+            shutdown = true;
+            client = asyncClient;
+        }
+        if (client != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            try {
+                client.close();
+            } catch (IOException ignore) { // NOSONAR - the pool is gone either way
+                return;
+            }
+        }
+    }
+
+    private void closeIdleConnections(long idleMillis) {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleMillis, TimeUnit.MILLISECONDS);
+        PoolingNHttpClientConnectionManager asyncManager;
+        synchronized (this) {
+            asyncManager = asyncConnectionManager;
+        }
+        if (asyncManager != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            asyncManager.closeExpiredConnections();
+            asyncManager.closeIdleConnections(idleMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Periodically closes expired and idle connections. The pool is only referenced weakly, so a pool that is no
+     * longer used and was never shut down can still be collected; the eviction stops itself then.
+     */
+    private static final class Eviction implements Runnable {
+
+        private final WeakReference<ConnectionPool> pool;
+        private final long idleMillis;
+        private final ScheduledFuture<?> future;
+
+        private Eviction(ConnectionPool pool, long idleMillis) {
+            this.pool = new WeakReference<>(pool);
+            this.idleMillis = idleMillis;
+            future = EVICTOR.scheduleWithFixedDelay(this, idleMillis, idleMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            ConnectionPool current = pool.get();
+            if (current == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                cancel();
+                return;
+            }
+            current.closeIdleConnections(idleMillis);
+        }
+
+        private void cancel() {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Keeps a connection alive as long as the server allows it in its Keep-Alive header, or for the configured
+     * duration if the server doesn't say.
+     */
+    private static final class KeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+        private static final int MILLIS = 1000;
+        private final long defaultKeepAliveMillis;
+
+        private KeepAliveStrategy(long defaultKeepAliveMillis) {
+            this.defaultKeepAliveMillis = defaultKeepAliveMillis;
+        }
+
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            HeaderElementIterator iterator = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (iterator.hasNext()) {
+                HeaderElement element = iterator.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                    try {
+                        return Long.parseLong(element.getValue()) * MILLIS;
+                    } catch (NumberFormatException ignore) { // NOSONAR - fall back to the default duration
+                    }
+                }
+            }
+            return defaultKeepAliveMillis;
+        }
+    }
+
+    /**
+     * Creates the daemon threads of the non-blocking client, so they don't keep an application from exiting.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * The Builder class is used to construct instances of the {@link ConnectionPool}.
+     */
+    public static class Builder {
+
+        private static final int DEFAULT_MAX_CONNECTIONS = 20;
+        private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+        private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30000;
+        private static final long DEFAULT_KEEP_ALIVE_MILLIS = 60000;
+
+        private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+        private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+        private long idleTimeoutMillis = DEFAULT_IDLE_TIMEOUT_MILLIS;
+        private long keepAliveMillis = DEFAULT_KEEP_ALIVE_MILLIS;
+        private int connectTimeoutMillis;
+        private int readTimeoutMillis;
+        private int connectionRequestTimeoutMillis;
+
+        /**
+         * Set the maximum number of connections held by the pool over all routes. Default is 20.
+         *
+         * @param maxConnections the maximum number of connections
+         * @return The builder itself
+         */
+        public Builder maxConnections(int maxConnections) {
+            if (maxConnections < 1) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The maximum number of connections has to be positive.");
+            }
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of connections held by the pool for a single OSIAM server. Default is 10.
+         *
+         * @param maxConnectionsPerRoute the maximum number of connections per route
+         * @return The builder itself
+         */
+        public Builder maxConnectionsPerRoute(int maxConnectionsPerRoute) {
+            if (maxConnectionsPerRoute < 1) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The maximum number of connections per route has to be positive.");
+            }
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        /**
+         * Set the time after which an unused connection is closed and removed from the pool. Default is 30 seconds.
+         *
+         * @param idleTimeout the idle time
+         * @param unit        the unit of the idle time
+         * @return The builder itself
+         */
+        public Builder idleTimeout(long idleTimeout, TimeUnit unit) {
+            if (idleTimeout <= 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The idle timeout has to be positive.");
+            }
+            this.idleTimeoutMillis = unit.toMillis(idleTimeout);
+            return this;
+        }
+
+        /**
+         * Set how long a connection is kept alive for reuse if the server doesn't send a Keep-Alive timeout.
+         * Default is 60 seconds.
+         *
+         * @param keepAlive the keep-alive duration
+         * @param unit      the unit of the keep-alive duration
+         * @return The builder itself
+         */
+        public Builder keepAlive(long keepAlive, TimeUnit unit) {
+            if (keepAlive <= 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The keep-alive duration has to be positive.");
+            }
+            this.keepAliveMillis = unit.toMillis(keepAlive);
+            return this;
+        }
+
+        /**
+         * Set how long opening a connection to OSIAM may take. By default there is no limit. Exceeding it raises a
+         * {@link org.osiam.client.exception.RequestTimeoutException}.
+         *
+         * @param connectTimeout the connect timeout
+         * @param unit           the unit of the connect timeout
+         * @return The builder itself
+         */
+        public Builder connectTimeout(long connectTimeout, TimeUnit unit) {
+            connectTimeoutMillis = toTimeoutMillis(connectTimeout, unit, "connect");
+            return this;
+        }
+
+        /**
+         * Set how long OSIAM may stay silent while a request is sent or its response is read. The timeout applies to
+         * every single read, not to the whole request; use a {@link Deadline} to bound a call. By default there is no
+         * limit. Exceeding it raises a {@link org.osiam.client.exception.RequestTimeoutException}.
+         *
+         * @param readTimeout the read timeout
+         * @param unit        the unit of the read timeout
+         * @return The builder itself
+         */
+        public Builder readTimeout(long readTimeout, TimeUnit unit) {
+            readTimeoutMillis = toTimeoutMillis(readTimeout, unit, "read");
+            return this;
+        }
+
+        /**
+         * Set how long a request may wait for a free connection once all connections of the pool are in use. By
+         * default there is no limit. Exceeding it raises a {@link org.osiam.client.exception.RequestTimeoutException}.
+         *
+         * @param connectionRequestTimeout the time to wait for a connection
+         * @param unit                     the unit of the time
+         * @return The builder itself
+         */
+        public Builder connectionRequestTimeout(long connectionRequestTimeout, TimeUnit unit) {
+            connectionRequestTimeoutMillis = toTimeoutMillis(connectionRequestTimeout, unit, "connection request");
+            return this;
+        }
+
+        private static int toTimeoutMillis(long timeout, TimeUnit unit, String name) {
+            long millis = unit.toMillis(timeout);
+            if (millis <= 0 || millis > Integer.MAX_VALUE) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The " + name + " timeout has to be positive and below 24 days.");
+            }
+            return (int) millis;
+        }
+
+        /**
+         * Construct the {@link ConnectionPool} with the parameters passed to this builder.
+         *
+         * @return A ConnectionPool configured accordingly.
+         */
+        public ConnectionPool build() {
+            return new ConnectionPool(this);
+        }
+    }
+}
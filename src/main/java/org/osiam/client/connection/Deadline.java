@@ -0,0 +1,111 @@
+package org.osiam.client.connection;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.osiam.client.exception.RequestTimeoutException;
+
+/**
+ * A Deadline bounds the time of all calls to OSIAM the current thread makes while it is open, including every page
+ * of a scan and the asynchronous calls it starts. Requests still running when the deadline expires are aborted and
+ * the call fails with a {@link RequestTimeoutException}:
+ *
+ * <pre>
+ * try (Deadline deadline = Deadline.start(2, TimeUnit.SECONDS)) {
+ *     for (User user : userService.scanUsers(query, tokenProvider, options)) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * Deadlines can be nested, but an inner deadline never extends the outer one. They have to be closed in the reverse
+ * order they were started in, which try-with-resources takes care of.
+ */
+public final class Deadline implements AutoCloseable {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    private final long expiresAt;
+    private final Deadline previous;
+
+    private Deadline(long expiresAt, Deadline previous) {
+        this.expiresAt = expiresAt;
+        this.previous = previous;
+        CURRENT.set(this);
+    }
+
+    /**
+     * Start a deadline for the current thread.
+     *
+     * @param timeout the time the calls may take
+     * @param unit    the unit of the time
+     * @return the open deadline, to be closed once the calls are done
+     */
+    public static Deadline start(long timeout, TimeUnit unit) {
+        if (timeout <= 0) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The timeout has to be positive.");
+        }
+        Deadline outer = CURRENT.get();
+        long expiresAt = System.nanoTime() + unit.toNanos(timeout);
+        if (outer != null && outer.expiresAt - expiresAt < 0) { // NOSONAR - false-positive from clover; if-expression is correct
+            expiresAt = outer.expiresAt;
+        }
+        return new Deadline(expiresAt, outer);
+    }
+
+    /**
+     * @return the deadline of the current thread, or null if none is open
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Open this deadline on the current thread as well, for work handed over to it from the thread that started the
+     * deadline.
+     *
+     * @return the deadline opened on the current thread, to be closed once the work is done
+     */
+    public Deadline attach() {
+        return new Deadline(expiresAt, CURRENT.get());
+    }
+
+    /**
+     * @return the milliseconds left until the deadline expires, 0 if it has expired
+     */
+    public long getRemainingMillis() {
+        long remaining = expiresAt - System.nanoTime();
+        return remaining <= 0 ? 0 : (remaining + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI; // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    public boolean isExpired() {
+        return expiresAt - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @throws RequestTimeoutException if the deadline has expired
+     */
+    public void check() {
+        if (isExpired()) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new RequestTimeoutException("The deadline of the call has expired.");
+        }
+    }
+
+    /**
+     * Close the deadline on the current thread and reopen the deadline it was started in, if any.
+     */
+    @Override
+    public void close() {
+        if (CURRENT.get() != this) { // NOSONAR - false-positive from clover; if-expression is correct
+            return;
+        }
+        if (previous == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.osiam.client.connection;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * A HeaderInterceptor sets a fixed header on every request, for example to tell OSIAM which application is calling.
+ * Headers that change per call, like trace ids, need an own {@link RequestInterceptor}.
+ */
+public final class HeaderInterceptor implements RequestInterceptor {
+
+    private final String name;
+    private final String value;
+
+    /**
+     * @param name  the name of the header
+     * @param value the value of the header
+     */
+    public HeaderInterceptor(String name, String value) {
+        if (name == null || value == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given header name and value can't be null.");
+        }
+        this.name = name;
+        this.value = value;
+    }
+
+    @Override
+    public void beforeRequest(HttpUriRequest request, Call call) {
+        request.setHeader(name, value);
+    }
+
+    @Override
+    public void afterResponse(HttpResponse response, Exception failure, Call call) {
+        // the header is set, there is nothing to do with the response
+    }
+
+    @Override
+    public String toString() {
+        return "HeaderInterceptor[" + name + "]";
+    }
+}
@@ -0,0 +1,166 @@
+package org.osiam.client.connection;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.osiam.client.metrics.RequestTimer;
+
+/**
+ * The InterceptorChain passes a request through the configured {@link RequestInterceptor}s and executes it with a
+ * client of the {@link ConnectionPool} of the service, within the {@link Deadline} of the current thread. All requests of the services are
+ * executed through {@link #execute} or, if asynchronous, through {@link #executeAsync}.
+ */
+public final class InterceptorChain implements RequestInterceptor.Call {
+
+    private final List<RequestInterceptor> interceptors;
+    private final RequestTimer timer;
+    private Map<String, Object> attributes;
+
+    private InterceptorChain(List<RequestInterceptor> interceptors, RequestTimer timer) {
+        this.interceptors = interceptors;
+        this.timer = timer;
+    }
+
+    /**
+     * Execute the given request through the given interceptors.
+     *
+     * @param interceptors the interceptors to call in order, may be empty
+     * @param pool         the pool holding the client to execute the request with
+     * @param timer        the timer measuring the call
+     * @param request      the request to send
+     * @return the response to the request
+     * @throws IOException if the request failed
+     * @throws org.osiam.client.exception.RequestTimeoutException
+     *                     if the request timed out or the deadline of the call has expired
+     */
+    public static HttpResponse execute(List<RequestInterceptor> interceptors, ConnectionPool pool,
+                                       RequestTimer timer, HttpUriRequest request) throws IOException {
+        InterceptorChain chain = new InterceptorChain(interceptors, timer);
+        chain.beforeRequest(request);
+        HttpResponse response;
+        try {
+            response = send(pool, timer, request);
+        } catch (IOException | RuntimeException e) {
+            chain.afterResponse(null, e);
+            throw e;
+        }
+        chain.afterResponse(response, null);
+        return response;
+    }
+
+    /**
+     * Execute the given request through the given interceptors with the non-blocking client of the given pool. The
+     * interceptors are called before the request on the calling thread, and after it on a thread of the pool.
+     *
+     * @param interceptors the interceptors to call in order, may be empty
+     * @param pool         the pool holding the client to execute the request with
+     * @param timer        the timer measuring the call
+     * @param request      the request to send
+     * @param callback     notified with the response, with the failure of the request or a
+     *                     {@link org.osiam.client.exception.RequestTimeoutException} if it timed out or the deadline
+     *                     of the call has expired
+     * @return the running exchange, which can be cancelled
+     * @throws org.osiam.client.exception.RequestTimeoutException
+     *                     if the deadline of the call has already expired
+     */
+    public static Future<HttpResponse> executeAsync(List<RequestInterceptor> interceptors, ConnectionPool pool,
+                                                    RequestTimer timer, HttpUriRequest request,
+                                                    final FutureCallback<HttpResponse> callback) {
+        final InterceptorChain chain = new InterceptorChain(interceptors, timer);
+        chain.beforeRequest(request);
+        final RequestGuard guard;
+        try {
+            guard = RequestGuard.guardAsync(request, pool.getRequestConfig());
+        } catch (RuntimeException e) {
+            chain.afterResponse(null, e);
+            throw e;
+        }
+        Future<HttpResponse> exchange = timer.execute(pool.getAsyncClient(), request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                guard.release();
+                chain.afterResponse(response, null);
+                callback.completed(response);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                Exception failure = guard.failedAsync(e);
+                chain.afterResponse(null, failure);
+                callback.failed(failure);
+            }
+
+            @Override
+            public void cancelled() {
+                Exception timeout = guard.cancelled();
+                if (timeout != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                    chain.afterResponse(null, timeout);
+                    callback.failed(timeout);
+                    return;
+                }
+                chain.afterResponse(null, new CancellationException("The call has been cancelled."));
+                callback.cancelled();
+            }
+        });
+        guard.cancelAtDeadline(exchange);
+        return exchange;
+    }
+
+    private static HttpResponse send(ConnectionPool pool, RequestTimer timer, HttpUriRequest request) throws IOException {
+        RequestGuard guard = RequestGuard.guard(request, pool.getRequestConfig());
+        try {
+            return guard.watch(timer.execute(pool.getHttpClient(), request));
+        } catch (IOException e) {
+            throw guard.failed(e);
+        }
+    }
+
+    private void beforeRequest(HttpUriRequest request) {
+        for (RequestInterceptor interceptor : interceptors) {
+            interceptor.beforeRequest(request, this);
+        }
+    }
+
+    private void afterResponse(HttpResponse response, Exception failure) {
+        for (int i = interceptors.size() - 1; i >= 0; i--) {
+            try {
+                interceptors.get(i).afterResponse(response, failure, this);
+            } catch (RuntimeException ignore) { // NOSONAR - a failing interceptor must not hide the outcome of the call
+                continue;
+            }
+        }
+    }
+
+    @Override
+    public String getOperation() {
+        return timer.getOperation();
+    }
+
+    @Override
+    public String getResourceType() {
+        return timer.getResourceType();
+    }
+
+    @Override
+    public synchronized Object getAttribute(String name) {
+        return attributes == null ? null : attributes.get(name); // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    @Override
+    public synchronized void setAttribute(String name, Object value) {
+        if (attributes == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            attributes = new HashMap<>();
+        }
+        attributes.put(name, value);
+    }
+}
@@ -0,0 +1,278 @@
+package org.osiam.client.connection;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.osiam.client.exception.RequestTimeoutException;
+
+/**
+ * Guards a single request against the timeouts of the pool and the {@link Deadline} of the call. The timeouts of a
+ * request are shortened to the time left until the deadline, in a copy of the RequestConfig of the pool set on the
+ * request, and a request still running at the deadline is aborted.
+ * Timeouts are reported as {@link RequestTimeoutException}, while sending the request as well as while reading the
+ * response. Asynchronous requests are guarded the same way, with the exchange cancelled instead of the request
+ * aborted.
+ */
+final class RequestGuard {
+
+    private final HttpUriRequest request;
+    private final Deadline deadline;
+    private volatile ScheduledFuture<?> abort;
+
+    private RequestGuard(HttpUriRequest request, Deadline deadline) {
+        this.request = request;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Guard the given request with the deadline of the current thread, if any.
+     *
+     * @param request    the request to send
+     * @param poolConfig the timeouts of the pool
+     * @return the guard of the request
+     * @throws RequestTimeoutException if the deadline has already expired
+     */
+    static RequestGuard guard(HttpUriRequest request, RequestConfig poolConfig) {
+        final RequestGuard guard = start(request, poolConfig);
+        if (guard.deadline != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            guard.abort = Aborter.INSTANCE.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    guard.request.abort();
+                }
+            }, guard.deadline.getRemainingMillis(), TimeUnit.MILLISECONDS);
+        }
+        return guard;
+    }
+
+    /**
+     * Guard the given asynchronous request with the deadline of the current thread, if any. Once the exchange has
+     * been started it has to be passed to {@link #cancelAtDeadline(Future)}.
+     *
+     * @param request    the request to send
+     * @param poolConfig the timeouts of the pool
+     * @return the guard of the request
+     * @throws RequestTimeoutException if the deadline has already expired
+     */
+    static RequestGuard guardAsync(HttpUriRequest request, RequestConfig poolConfig) {
+        return start(request, poolConfig);
+    }
+
+    private static RequestGuard start(HttpUriRequest request, RequestConfig poolConfig) {
+        RequestGuard guard = new RequestGuard(request, Deadline.current());
+        if (guard.deadline != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            guard.deadline.check();
+            guard.limitTimeouts(poolConfig);
+        }
+        return guard;
+    }
+
+    /**
+     * Cancel the given exchange if it is still running at the deadline.
+     *
+     * @param exchange the running exchange of the request
+     */
+    void cancelAtDeadline(final Future<?> exchange) {
+        if (deadline != null && !exchange.isDone()) { // NOSONAR - false-positive from clover; if-expression is correct
+            abort = Aborter.INSTANCE.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    exchange.cancel(true);
+                }
+            }, deadline.getRemainingMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop guarding the request once its exchange has ended.
+     *
+     * @return a {@link RequestTimeoutException} if the exchange was cancelled because the deadline has expired,
+     *         null otherwise
+     */
+    RequestTimeoutException cancelled() {
+        release();
+        if (deadline != null && deadline.isExpired()) { // NOSONAR - false-positive from clover; if-expression is correct
+            return new RequestTimeoutException("The deadline of the call has expired.");
+        }
+        return null;
+    }
+
+    /**
+     * Keep guarding the given response until its body has been read or closed.
+     *
+     * @param response the response to the request
+     * @return the response
+     */
+    HttpResponse watch(HttpResponse response) {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            release();
+        } else {
+            response.setEntity(new GuardedEntity(entity));
+        }
+        return response;
+    }
+
+    /**
+     * Report the given failure of the request as {@link RequestTimeoutException} if it was caused by a timeout.
+     *
+     * @param e the failure of the request
+     * @return the failure if it wasn't caused by a timeout
+     */
+    IOException failed(IOException e) {
+        RequestTimeoutException timeout = timeoutOf(e);
+        if (timeout != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw timeout;
+        }
+        return e;
+    }
+
+    /**
+     * Report the given failure of the asynchronous request as {@link RequestTimeoutException} if it was caused by a
+     * timeout.
+     *
+     * @param e the failure of the exchange
+     * @return the failure to report
+     */
+    Exception failedAsync(Exception e) {
+        RequestTimeoutException timeout = timeoutOf(e);
+        return timeout == null ? e : timeout; // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    private RequestTimeoutException timeoutOf(Exception e) {
+        release();
+        if (e instanceof ConnectTimeoutException || e instanceof TimeoutException) { // NOSONAR - false-positive from clover; if-expression is correct
+            return new RequestTimeoutException("Unable to get a connection to OSIAM in time", e);
+        }
+        if (e instanceof SocketTimeoutException) { // NOSONAR - false-positive from clover; if-expression is correct
+            return new RequestTimeoutException("OSIAM didn't answer in time", e);
+        }
+        if (deadline != null && deadline.isExpired()) { // NOSONAR - false-positive from clover; if-expression is correct
+            return new RequestTimeoutException("The deadline of the call has expired.", e);
+        }
+        return null;
+    }
+
+    /**
+     * Stop guarding the request, for example once its response has arrived.
+     */
+    void release() {
+        if (abort != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            abort.cancel(false);
+        }
+    }
+
+    private void limitTimeouts(RequestConfig poolConfig) {
+        if (!(request instanceof HttpRequestBase)) { // NOSONAR - false-positive from clover; if-expression is correct
+            return;
+        }
+        int remaining = (int) Math.max(1, Math.min(Integer.MAX_VALUE, deadline.getRemainingMillis()));
+        ((HttpRequestBase) request).setConfig(RequestConfig.copy(poolConfig)
+                .setConnectTimeout((int) limit(poolConfig.getConnectTimeout(), remaining))
+                .setSocketTimeout((int) limit(poolConfig.getSocketTimeout(), remaining))
+                .setConnectionRequestTimeout((int) limit(poolConfig.getConnectionRequestTimeout(), remaining))
+                .build());
+    }
+
+    private static long limit(long timeout, int remaining) {
+        return timeout <= 0 ? remaining : Math.min(timeout, remaining); // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    /**
+     * Reports timeouts while the response body is read and stops guarding once it has been read or closed.
+     */
+    private final class GuardedEntity extends HttpEntityWrapper {
+
+        private GuardedEntity(HttpEntity entity) {
+            super(entity);
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            try {
+                return new GuardedStream(super.getContent());
+            } catch (IOException e) {
+                throw failed(e);
+            }
+        }
+    }
+
+    private final class GuardedStream extends FilterInputStream {
+
+        private GuardedStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int read = super.read();
+                if (read < 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                    release();
+                }
+                return read;
+            } catch (IOException e) {
+                throw failed(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                int read = super.read(buffer, offset, length);
+                if (read < 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                    release();
+                }
+                return read;
+            } catch (IOException e) {
+                throw failed(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            release();
+            super.close();
+        }
+    }
+
+    /**
+     * Holds the thread aborting requests at their deadline, which is only started once deadlines are used.
+     */
+    private static final class Aborter {
+
+        private static final ScheduledThreadPoolExecutor INSTANCE = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "osiam-deadline");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        static {
+            INSTANCE.setRemoveOnCancelPolicy(true);
+        }
+
+        private Aborter() {
+        }
+    }
+}
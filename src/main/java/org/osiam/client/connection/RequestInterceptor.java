@@ -0,0 +1,84 @@
+package org.osiam.client.connection;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * A RequestInterceptor is called for every request a service sends to OSIAM, synchronous as well as asynchronous. It
+ * can change the request before it is sent and look at its outcome, for example to propagate trace headers or to log
+ * slow calls:
+ *
+ * <pre>
+ * public void beforeRequest(HttpUriRequest request, Call call) {
+ *     request.setHeader("X-B3-TraceId", currentTraceId());
+ *     call.setAttribute("started", System.nanoTime());
+ * }
+ *
+ * public void afterResponse(HttpResponse response, Exception failure, Call call) {
+ *     long nanos = System.nanoTime() - (Long) call.getAttribute("started");
+ *     ...
+ * }
+ * </pre>
+ *
+ * Interceptors are configured in the builders of the services. They are called in the order they were added before a
+ * request is sent, and in the reverse order once it is done. {@link #beforeRequest} runs on the thread starting the
+ * call. {@link #afterResponse} runs once the response has arrived and before the service reads it; for asynchronous
+ * calls that is a thread of the {@link ConnectionPool}, so it must not block. An interceptor is shared by all calls of
+ * a service, so it has to be thread-safe.
+ */
+public interface RequestInterceptor {
+
+    /**
+     * Called before the request is sent. The interceptor may change the request, for example add headers. An
+     * exception thrown here fails the call before anything is sent.
+     *
+     * @param request the request to send
+     * @param call    the call the request belongs to
+     */
+    void beforeRequest(HttpUriRequest request, Call call);
+
+    /**
+     * Called once the call is done, with either the response or the failure. The body of the response has not been
+     * read yet and must not be consumed. Runtime exceptions thrown here are ignored, they don't change the outcome of
+     * the call.
+     *
+     * @param response the response to the request, null if the request failed
+     * @param failure  the reason the request failed, null if a response arrived
+     * @param call     the call the request belongs to
+     */
+    void afterResponse(HttpResponse response, Exception failure, Call call);
+
+    /**
+     * A single call of a service. It carries attributes from {@link #beforeRequest} to {@link #afterResponse}.
+     */
+    interface Call {
+
+        /**
+         * @return the operation of the service, like get or search, see
+         *         {@link org.osiam.client.metrics.RequestSample#getOperation()}
+         */
+        String getOperation();
+
+        /**
+         * @return User, Group or AccessToken
+         */
+        String getResourceType();
+
+        /**
+         * @param name the name of the attribute
+         * @return the value of the attribute, or null if it isn't set
+         */
+        Object getAttribute(String name);
+
+        /**
+         * Keep a value for the rest of the call. Attributes are shared by all interceptors of the call.
+         *
+         * @param name  the name of the attribute
+         * @param value the value of the attribute
+         */
+        void setAttribute(String name, Object value);
+    }
+}
@@ -0,0 +1,22 @@
+package org.osiam.client.exception;
+/*
+ * for licensing see the file license.txt.
+ */
+
+/**
+ * Thrown if OSIAM didn't answer within the configured timeouts of the
+ * {@link org.osiam.client.connection.ConnectionPool}, or the {@link org.osiam.client.connection.Deadline} of the call
+ * has expired.
+ */
+public class RequestTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RequestTimeoutException(String message) {
+        super(message);
+    }
+
+    public RequestTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,74 @@
+package org.osiam.client.metrics;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * HistogramMetrics keep {@link OperationMetrics} for every combination of resource type and operation in memory.
+ * One instance can be shared by all services, so the requests of a whole application can be read in one place:
+ *
+ * <pre>
+ * HistogramMetrics metrics = new HistogramMetrics();
+ * OsiamUserService userService = new OsiamUserService.Builder(endpoint).metrics(metrics).build();
+ * ...
+ * long p99 = metrics.get("User", "search").getServerWaitLatency().getValueAtPercentile(99);
+ * </pre>
+ */
+public final class HistogramMetrics implements RequestMetrics {
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(RequestSample sample) {
+        String key = keyOf(sample.getResourceType(), sample.getOperation());
+        OperationMetrics metrics = operations.get(key);
+        if (metrics == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            OperationMetrics created = new OperationMetrics();
+            metrics = operations.putIfAbsent(key, created);
+            metrics = metrics == null ? created : metrics; // NOSONAR - false-positive from clover; if-expression is correct
+        }
+        metrics.record(sample);
+    }
+
+    /**
+     * @param resourceType User, Group or AccessToken
+     * @param operation    the operation, see {@link RequestSample#getOperation()}
+     * @return the measurements of the operation, or null if it wasn't called yet
+     */
+    public OperationMetrics get(String resourceType, String operation) {
+        return operations.get(keyOf(resourceType, operation));
+    }
+
+    /**
+     * @return the measurements of all called operations by resource type and operation, like "User.search", sorted
+     *         by name
+     */
+    public Map<String, OperationMetrics> getAll() {
+        return new TreeMap<>(operations);
+    }
+
+    /**
+     * Drop all measurements, for example at the start of a new reporting interval.
+     */
+    public void reset() {
+        operations.clear();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, OperationMetrics> entry : getAll().entrySet()) {
+            report.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        return report.toString();
+    }
+
+    private static String keyOf(String resourceType, String operation) {
+        return resourceType + "." + operation;
+    }
+}
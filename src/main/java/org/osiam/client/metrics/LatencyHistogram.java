@@ -0,0 +1,125 @@
+package org.osiam.client.metrics;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A LatencyHistogram counts durations in buckets of fixed relative width, in the way of an HDR histogram: durations
+ * below 128 nanoseconds are counted exactly, longer ones in 64 buckets per power of two, so every reported value is
+ * at most 1/64 above the recorded one. Durations above 2^45 nanoseconds, some 9.7 hours, are counted as that maximum.
+ * Recording is lock-free and safe from several threads; the memory used is fixed.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+    private static final long HIGHEST_TRACKABLE = (1L << 45) - 1;
+    private static final double PERCENT = 100.0;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(HIGHEST_TRACKABLE) + 1);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Count the given duration. Negative durations are ignored.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) { // NOSONAR - false-positive from clover; if-expression is correct
+            return;
+        }
+        counts.incrementAndGet(indexOf(Math.min(nanos, HIGHEST_TRACKABLE)));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return the longest recorded duration in nanoseconds, 0 if none was recorded
+     */
+    public long getMax() {
+        return maxNanos.get();
+    }
+
+    /**
+     * @return the mean of the recorded durations in nanoseconds, 0 if none was recorded
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalNanos.get() / count; // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    /**
+     * Provide the duration the given percentage of the recorded durations didn't exceed, like
+     * {@code getValueAtPercentile(99)} for the p99.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the duration in nanoseconds, 0 if none was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > PERCENT) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+        }
+        long count = totalCount.get();
+        if (count == 0) { // NOSONAR - false-positive from clover; if-expression is correct
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / PERCENT * count));
+        long seen = 0;
+        for (int index = 0; index < counts.length(); index++) {
+            seen += counts.get(index);
+            if (seen >= rank) { // NOSONAR - false-positive from clover; if-expression is correct
+                return Math.min(highestValueOf(index), getMax());
+            }
+        }
+        // durations recorded while counting may have raised the rank above the counted ones
+        return getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH, "count=%d, mean=%.3fms, p50=%.3fms, p90=%.3fms, p99=%.3fms, p99.9=%.3fms, max=%.3fms",
+                getCount(), millis(getMean()), millis(getValueAtPercentile(50)), millis(getValueAtPercentile(90)),
+                millis(getValueAtPercentile(99)), millis(getValueAtPercentile(99.9)), millis(getMax()));
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    static int indexOf(long value) {
+        int magnitude = Long.SIZE - Long.numberOfLeadingZeros(value);
+        if (magnitude <= SUB_BUCKET_BITS) { // NOSONAR - false-positive from clover; if-expression is correct
+            return (int) value;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (int) (value >>> shift) - SUB_BUCKET_HALF;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) { // NOSONAR - false-positive from clover; if-expression is correct
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,112 @@
+package org.osiam.client.metrics;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The aggregated measurements of one operation on one resource type, like the searches for Users. All values are
+ * updated concurrently, so values read one after another may belong to different numbers of calls.
+ */
+public final class OperationMetrics {
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final ConcurrentMap<Integer, AtomicLong> errorsByStatus = new ConcurrentHashMap<>();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final LatencyHistogram connection = new LatencyHistogram();
+    private final LatencyHistogram serverWait = new LatencyHistogram();
+    private final LatencyHistogram deserialization = new LatencyHistogram();
+    private final LatencyHistogram total = new LatencyHistogram();
+
+    void record(RequestSample sample) {
+        calls.incrementAndGet();
+        if (sample.isError()) { // NOSONAR - false-positive from clover; if-expression is correct
+            errors.incrementAndGet();
+            AtomicLong counter = errorsByStatus.get(sample.getStatus());
+            if (counter == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                AtomicLong created = new AtomicLong();
+                counter = errorsByStatus.putIfAbsent(sample.getStatus(), created);
+                counter = counter == null ? created : counter; // NOSONAR - false-positive from clover; if-expression is correct
+            }
+            counter.incrementAndGet();
+        }
+        bytesSent.addAndGet(sample.getBytesSent());
+        bytesReceived.addAndGet(sample.getBytesReceived());
+        connection.record(sample.getConnectionNanos());
+        serverWait.record(sample.getServerWaitNanos());
+        deserialization.record(sample.getDeserializationNanos());
+        total.record(sample.getTotalNanos());
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * @return the number of calls without response or with a status of 400 or above
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * @return the number of errors by HTTP status, sorted by status; 0 stands for calls without response
+     */
+    public Map<Integer, Long> getErrorsByStatus() {
+        Map<Integer, Long> snapshot = new TreeMap<>();
+        for (Map.Entry<Integer, AtomicLong> entry : errorsByStatus.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().get());
+        }
+        return snapshot;
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * @return the time taken to get a connection, see {@link RequestSample}
+     */
+    public LatencyHistogram getConnectionLatency() {
+        return connection;
+    }
+
+    /**
+     * @return the time waited for the head of the response, see {@link RequestSample}
+     */
+    public LatencyHistogram getServerWaitLatency() {
+        return serverWait;
+    }
+
+    /**
+     * @return the time taken to read and map the response body, see {@link RequestSample}
+     */
+    public LatencyHistogram getDeserializationLatency() {
+        return deserialization;
+    }
+
+    /**
+     * @return the time of the whole call
+     */
+    public LatencyHistogram getTotalLatency() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "calls=" + getCalls() + ", errors=" + getErrorsByStatus() + ", bytesSent=" + getBytesSent()
+                + ", bytesReceived=" + getBytesReceived() + "\n  connection: " + connection + "\n  server wait: "
+                + serverWait + "\n  deserialization: " + deserialization + "\n  total: " + total;
+    }
+}
@@ -0,0 +1,20 @@
+package org.osiam.client.metrics;
+/*
+ * for licensing see the file license.txt.
+ */
+
+/**
+ * RequestMetrics receive a {@link RequestSample} for every request a service sends to OSIAM. Configure an
+ * implementation in the builders of the services, like {@link HistogramMetrics}, or forward the samples to the
+ * metrics library of the application. Samples are delivered on the thread that made the request, so an implementation
+ * has to be thread-safe and should return quickly. Exceptions thrown by it are ignored.
+ */
+public interface RequestMetrics {
+
+    /**
+     * Record the measurements of a completed request.
+     *
+     * @param sample the measurements
+     */
+    void record(RequestSample sample);
+}
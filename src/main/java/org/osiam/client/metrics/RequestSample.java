@@ -0,0 +1,100 @@
+package org.osiam.client.metrics;
+/*
+ * for licensing see the file license.txt.
+ */
+
+/**
+ * The measurements of a single request to OSIAM. A request passes three phases:
+ * <ol>
+ * <li>connection: taking a connection from the pool, or opening a new one</li>
+ * <li>server wait: sending the request and waiting for the head of the response</li>
+ * <li>deserialization: reading and mapping the body of the response, until the service returns</li>
+ * </ol>
+ * A phase that was not reached, for example because the connection failed, is reported as -1.
+ */
+public final class RequestSample {
+
+    private final String operation;
+    private final String resourceType;
+    private final int status;
+    private final long bytesSent;
+    private final long bytesReceived;
+    private final long connectionNanos;
+    private final long serverWaitNanos;
+    private final long deserializationNanos;
+    private final long totalNanos;
+
+    RequestSample(String operation, String resourceType, int status, long bytesSent, long bytesReceived, // NOSONAR - the sample is only built by the RequestTimer
+                  long connectionNanos, long serverWaitNanos, long deserializationNanos, long totalNanos) {
+        this.operation = operation;
+        this.resourceType = resourceType;
+        this.status = status;
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+        this.connectionNanos = connectionNanos;
+        this.serverWaitNanos = serverWaitNanos;
+        this.deserializationNanos = deserializationNanos;
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * @return the operation of the service: get, search, create, update, delete, bulk, getMe, token or refreshToken
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return User, Group or AccessToken
+     */
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    /**
+     * @return the HTTP status of the response, 0 if no response was received
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true if no response was received or its status is 400 or above
+     */
+    public boolean isError() {
+        return status == 0 || status >= 400; // NOSONAR - the HTTP error codes start at 400
+    }
+
+    /**
+     * @return the number of bytes of the request body
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * @return the number of bytes of the response body read by the service
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public long getConnectionNanos() {
+        return connectionNanos;
+    }
+
+    public long getServerWaitNanos() {
+        return serverWaitNanos;
+    }
+
+    public long getDeserializationNanos() {
+        return deserializationNanos;
+    }
+
+    /**
+     * @return the time from the start of the request until the service returned or threw an exception
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+}
@@ -0,0 +1,354 @@
+package org.osiam.client.metrics;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+/**
+ * A RequestTimer measures one request of a service and reports it to the configured {@link RequestMetrics}. The
+ * services start a timer per request, execute the request through it and finish it when they return:
+ *
+ * <pre>
+ * RequestTimer timer = RequestTimer.start(metrics, "get", "User");
+ * try {
+ *     HttpResponse response = timer.execute(httpClient, request);
+ *     ...
+ * } finally {
+ *     timer.finish();
+ * }
+ * </pre>
+ *
+ * The phases of a request are told apart by the {@link #requestInterceptor()} and the {@link #responseInterceptor()},
+ * which {@link #install} registers on an HttpClientBuilder; every {@link org.osiam.client.connection.ConnectionPool}
+ * has them. Without them only the total time is measured. Requests
+ * executed with an {@link HttpAsyncClient} are measured while their request is written and their response read, so
+ * they need no interceptors. Without metrics a timer measures nothing.
+ */
+public final class RequestTimer {
+
+    private static final String CONTEXT_ATTRIBUTE = RequestTimer.class.getName();
+    private static final int NOT_MEASURED = -1;
+
+    private static final HttpRequestInterceptor REQUEST_INTERCEPTOR = new HttpRequestInterceptor() {
+        @Override
+        public void process(HttpRequest request, HttpContext context) {
+            RequestTimer timer = (RequestTimer) context.getAttribute(CONTEXT_ATTRIBUTE);
+            if (timer != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                timer.requestSent(request);
+            }
+        }
+    };
+
+    private static final HttpResponseInterceptor RESPONSE_INTERCEPTOR = new HttpResponseInterceptor() {
+        @Override
+        public void process(HttpResponse response, HttpContext context) {
+            RequestTimer timer = (RequestTimer) context.getAttribute(CONTEXT_ATTRIBUTE);
+            if (timer != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                timer.responseReceived(response);
+            }
+        }
+    };
+
+    private final RequestMetrics metrics;
+    private final String operation;
+    private final String resourceType;
+    private final long started;
+    private long sent;
+    private long received;
+    private int status;
+    private long bytesSent;
+    private long bytesReceived;
+    private boolean finished;
+
+    private RequestTimer(RequestMetrics metrics, String operation, String resourceType) {
+        this.metrics = metrics;
+        this.operation = operation;
+        this.resourceType = resourceType;
+        started = metrics == null ? 0 : System.nanoTime(); // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    /**
+     * Start measuring a request.
+     *
+     * @param metrics      the metrics to report to, may be null
+     * @param operation    the operation of the service, see {@link RequestSample#getOperation()}
+     * @param resourceType User, Group or AccessToken
+     * @return the running timer
+     */
+    public static RequestTimer start(RequestMetrics metrics, String operation, String resourceType) {
+        return new RequestTimer(metrics, operation, resourceType);
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    /**
+     * The interceptor taking the time a request has been handed to its connection. Requests not executed through a
+     * timer pass it unchanged. The request interceptors of an HttpClientBuilder run before the connection is taken
+     * from the pool, so {@link #install} runs this one from the request executor of the client instead.
+     *
+     * @return the shared request interceptor
+     */
+    public static HttpRequestInterceptor requestInterceptor() {
+        return REQUEST_INTERCEPTOR;
+    }
+
+    /**
+     * The interceptor taking the time the head of a response has arrived and counting the bytes of its body. Requests
+     * not executed through a timer pass it unchanged.
+     *
+     * @return the shared response interceptor
+     */
+    public static HttpResponseInterceptor responseInterceptor() {
+        return RESPONSE_INTERCEPTOR;
+    }
+
+    /**
+     * Register the interceptors telling the phases of a request apart on the given builder.
+     *
+     * @param builder the builder of the client to measure
+     * @return the given builder
+     */
+    public static HttpClientBuilder install(HttpClientBuilder builder) {
+        return builder
+                .setRequestExecutor(new HttpRequestExecutor() {
+                    @Override
+                    protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection connection,
+                                                         HttpContext context) throws IOException, HttpException {
+                        REQUEST_INTERCEPTOR.process(request, context);
+                        return super.doSendRequest(request, connection, context);
+                    }
+                })
+                .addInterceptorFirst(RESPONSE_INTERCEPTOR);
+    }
+
+    /**
+     * Execute the given request with the given client and take the status of the response.
+     *
+     * @param httpClient the client to execute the request with
+     * @param request    the request
+     * @return the response
+     * @throws IOException if the request failed
+     */
+    public HttpResponse execute(HttpClient httpClient, HttpUriRequest request) throws IOException {
+        if (metrics == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            return httpClient.execute(request);
+        }
+        HttpContext context = new BasicHttpContext();
+        context.setAttribute(CONTEXT_ATTRIBUTE, this);
+        HttpResponse response = httpClient.execute(request, context);
+        status = response.getStatusLine().getStatusCode();
+        return response;
+    }
+
+    /**
+     * Execute the given request with the given non-blocking client. The body of the response is read into memory
+     * before the callback is notified.
+     *
+     * @param httpAsyncClient the client to execute the request with
+     * @param request         the request
+     * @param callback        notified once the response has been read or the request failed
+     * @return the Future of the response
+     */
+    public Future<HttpResponse> execute(HttpAsyncClient httpAsyncClient, HttpUriRequest request,
+                                        FutureCallback<HttpResponse> callback) {
+        HttpAsyncRequestProducer producer = HttpAsyncMethods.create(request);
+        if (metrics == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            return httpAsyncClient.execute(producer, new BasicAsyncResponseConsumer(), callback);
+        }
+        return httpAsyncClient.execute(new TimedProducer(producer), new TimedConsumer(), callback);
+    }
+
+    /**
+     * Stop measuring and report the request. Only the first call has an effect.
+     */
+    public void finish() {
+        if (metrics == null || finished) { // NOSONAR - false-positive from clover; if-expression is correct
+            return;
+        }
+        finished = true;
+        long now = System.nanoTime();
+        long connection = sent == 0 ? NOT_MEASURED : sent - started; // NOSONAR - false-positive from clover; if-expression is correct
+        long serverWait = sent == 0 || received == 0 ? NOT_MEASURED : received - sent; // NOSONAR - false-positive from clover; if-expression is correct
+        long deserialization = received == 0 ? NOT_MEASURED : now - received; // NOSONAR - false-positive from clover; if-expression is correct
+        try {
+            metrics.record(new RequestSample(operation, resourceType, status, bytesSent, bytesReceived, connection,
+                    serverWait, deserialization, now - started));
+        } catch (RuntimeException ignore) { // NOSONAR - failing metrics must not fail the request or hide its outcome
+            return;
+        }
+    }
+
+    private void requestSent(HttpRequest request) {
+        sent = System.nanoTime();
+        if (request instanceof HttpEntityEnclosingRequest) { // NOSONAR - false-positive from clover; if-expression is correct
+            HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+            if (entity != null && entity.getContentLength() > 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                bytesSent = entity.getContentLength();
+            }
+        }
+    }
+
+    private void responseReceived(HttpResponse response) {
+        received = System.nanoTime();
+        HttpEntity entity = response.getEntity();
+        if (entity != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            response.setEntity(new CountingEntity(entity));
+        }
+    }
+
+    /**
+     * Takes the time the request has been written on its connection.
+     */
+    private final class TimedProducer implements HttpAsyncRequestProducer {
+
+        private final HttpAsyncRequestProducer producer;
+        private HttpRequest request;
+
+        private TimedProducer(HttpAsyncRequestProducer producer) {
+            this.producer = producer;
+        }
+
+        @Override
+        public HttpHost getTarget() {
+            return producer.getTarget();
+        }
+
+        @Override
+        public HttpRequest generateRequest() throws IOException, HttpException {
+            request = producer.generateRequest();
+            return request;
+        }
+
+        @Override
+        public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+            producer.produceContent(encoder, ioControl);
+        }
+
+        @Override
+        public void requestCompleted(HttpContext context) {
+            requestSent(request);
+            producer.requestCompleted(context);
+        }
+
+        @Override
+        public void failed(Exception e) {
+            producer.failed(e);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return producer.isRepeatable();
+        }
+
+        @Override
+        public void resetRequest() throws IOException {
+            producer.resetRequest();
+        }
+
+        @Override
+        public void close() throws IOException {
+            producer.close();
+        }
+    }
+
+    /**
+     * Takes the status of the response and counts the bytes of its body as they arrive.
+     */
+    private final class TimedConsumer extends BasicAsyncResponseConsumer {
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) throws IOException {
+            received = System.nanoTime();
+            status = response.getStatusLine().getStatusCode();
+            super.onResponseReceived(response);
+        }
+
+        @Override
+        protected void onContentReceived(final ContentDecoder decoder, IOControl ioControl) throws IOException {
+            super.onContentReceived(new ContentDecoder() {
+                @Override
+                public int read(ByteBuffer buffer) throws IOException {
+                    int read = decoder.read(buffer);
+                    if (read > 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                        bytesReceived += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public boolean isCompleted() {
+                    return decoder.isCompleted();
+                }
+            }, ioControl);
+        }
+    }
+
+    /**
+     * Counts the bytes of the response body as they are read, which also works for chunked responses.
+     */
+    private final class CountingEntity extends HttpEntityWrapper {
+
+        private CountingEntity(HttpEntity entity) {
+            super(entity);
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new FilterInputStream(super.getContent()) {
+                @Override
+                public int read() throws IOException {
+                    int read = super.read();
+                    if (read >= 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                        bytesReceived++;
+                    }
+                    return read;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                        bytesReceived += read;
+                    }
+                    return read;
+                }
+            };
+        }
+    }
+}
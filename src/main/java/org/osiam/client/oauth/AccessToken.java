@@ -5,6 +5,7 @@ package org.osiam.client.oauth;
 
 import java.util.Date;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import org.codehaus.jackson.annotate.JsonProperty;
 
@@ -39,13 +40,13 @@ public class AccessToken {
     }
 
     /**
-     * Refreshing of tokens is not yet implemented in OSIAM
+     * Retrieve the refresh token that can be exchanged for a new access token with
+     * {@link AuthService#refreshAccessToken(AccessToken)}.
      *
-     * @return Nothing at this point.
-     * @throws NoSuchMethodError
+     * @return The refresh token string or null if none was granted
      */
     public String getRefreshToken() {
-        throw new NoSuchMethodError("Not yet implemented");
+        return refreshToken;
     }
 
     /**
@@ -76,6 +77,18 @@ public class AccessToken {
         return now > retrievedOn + (long) expiresIn * MILLIS;
     }
 
+    /**
+     * checks if the access token will not be valid anymore after the given time
+     *
+     * @param duration the time from now
+     * @param unit     the unit of the time
+     * @return true if the access token expires within the given time
+     */
+    public boolean expiresWithin(long duration, TimeUnit unit) {
+        long now = new Date().getTime();
+        return now + unit.toMillis(duration) > retrievedOn + (long) expiresIn * MILLIS;
+    }
+
     /**
      * Retrieve the possible Scopes of this AccessToken
      *
@@ -113,7 +126,7 @@ public class AccessToken {
         if (expiresIn != that.expiresIn) { // NOSONAR - false-positive from clover; if-expression is correct
             return false;
         }
-        if (!refreshToken.equals(that.refreshToken)) { // NOSONAR - false-positive from clover; if-expression is correct
+        if (!Objects.equals(refreshToken, that.refreshToken)) { // NOSONAR - false-positive from clover; if-expression is correct
             return false;
         }
         if (!scope.equals(that.scope)) { // NOSONAR - false-positive from clover; if-expression is correct
@@ -0,0 +1,127 @@
+package org.osiam.client.oauth;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.osiam.client.exception.ConnectionInitializationException;
+import org.osiam.client.exception.UnauthorizedException;
+
+/**
+ * The AccessTokenManager caches the {@link AccessToken} retrieved by an {@link AuthService} and hands it out until
+ * it is about to expire. Shortly before that, the next caller renews it while all others keep using the still valid
+ * token. Once the token has expired, concurrent callers wait for a single retrieval instead of each asking the
+ * OAuth2 service on its own. If the token holds a refresh token, it is renewed with the cheaper refresh grant; the
+ * configured grant is only used for the first token, after {@link #invalidate()} or if the refresh is rejected.
+ * The manager is safe to use from several threads.
+ */
+public final class AccessTokenManager implements AccessTokenProvider {
+
+    private static final long DEFAULT_REFRESH_BEFORE_SECONDS = 30;
+    private static final int MILLIS = 1000;
+
+    private final AuthService authService;
+    private final long refreshBeforeMillis;
+    private final ReentrantLock retrievalLock = new ReentrantLock();
+    private volatile AccessToken accessToken;
+
+    /**
+     * Manage the access tokens of the given AuthService, renewing each token 30 seconds before it expires.
+     *
+     * @param authService the AuthService to retrieve the access tokens from
+     */
+    public AccessTokenManager(AuthService authService) {
+        this(authService, DEFAULT_REFRESH_BEFORE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Manage the access tokens of the given AuthService, renewing each token the given time before it expires. For
+     * tokens living shorter than twice that time, renewal starts after half of their lifetime.
+     *
+     * @param authService   the AuthService to retrieve the access tokens from
+     * @param refreshBefore the time before the expiration at which the token is renewed
+     * @param unit          the unit of the time
+     */
+    public AccessTokenManager(AuthService authService, long refreshBefore, TimeUnit unit) {
+        if (authService == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given authService can't be null.");
+        }
+        if (refreshBefore < 0) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The refresh time can't be negative.");
+        }
+        this.authService = authService;
+        this.refreshBeforeMillis = unit.toMillis(refreshBefore);
+    }
+
+    /**
+     * Provide the cached access token, renewing it first if it is about to expire.
+     *
+     * @return a valid AccessToken
+     */
+    @Override
+    public AccessToken getAccessToken() {
+        AccessToken current = accessToken;
+        if (isFresh(current)) { // NOSONAR - false-positive from clover; if-expression is correct
+            return current;
+        }
+
+        if (current != null && !current.isExpired()) { // NOSONAR - false-positive from clover; if-expression is correct
+            if (!retrievalLock.tryLock()) { // NOSONAR - false-positive from clover; if-expression is correct
+                return current;
+            }
+            try {
+                return renew();
+            } catch (RuntimeException e) { // NOSONAR - the current token is still valid, the next call tries again
+                return current;
+            } finally {
+                retrievalLock.unlock();
+            }
+        }
+
+        retrievalLock.lock();
+        try {
+            return renew();
+        } finally {
+            retrievalLock.unlock();
+        }
+    }
+
+    /**
+     * Discard the cached access token, for example after OSIAM rejected it. The next call to
+     * {@link #getAccessToken()} retrieves a new one.
+     */
+    public void invalidate() {
+        accessToken = null;
+    }
+
+    private AccessToken renew() {
+        AccessToken current = accessToken;
+        if (isFresh(current)) { // NOSONAR - another thread renewed the token while this one was waiting
+            return current;
+        }
+        current = current == null ? authService.retrieveAccessToken() : refresh(current); // NOSONAR - false-positive from clover; if-expression is correct
+        accessToken = current;
+        return current;
+    }
+
+    private AccessToken refresh(AccessToken expiring) {
+        if (expiring.getRefreshToken() == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            return authService.retrieveAccessToken();
+        }
+        try {
+            return authService.refreshAccessToken(expiring);
+        } catch (ConnectionInitializationException | UnauthorizedException e) { // NOSONAR - the refresh token may have expired as well
+            return authService.retrieveAccessToken();
+        }
+    }
+
+    private boolean isFresh(AccessToken token) {
+        if (token == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            return false;
+        }
+        long refreshBefore = Math.min(refreshBeforeMillis, (long) token.getExpiresIn() * MILLIS / 2);
+        return !token.expiresWithin(refreshBefore, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,22 @@
+package org.osiam.client.oauth;
+/*
+ * for licensing see the file license.txt.
+ */
+
+/**
+ * An AccessTokenProvider supplies the {@link AccessToken} to use for the next request against OSIAM. The OSIAM
+ * services accept a provider wherever they accept an AccessToken, and ask it once per request.
+ */
+public interface AccessTokenProvider {
+
+    /**
+     * Provide a valid access token.
+     *
+     * @return the access token to use for the next request
+     * @throws org.osiam.client.exception.ConnectionInitializationException
+     *          if a new access token is needed and can't be retrieved
+     * @throws org.osiam.client.exception.UnauthorizedException
+     *          if a new access token is needed and the credentials are not permitted to retrieve one
+     */
+    AccessToken getAccessToken();
+}
@@ -8,12 +8,14 @@ import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_UNAUTHORIZED;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,33 +25,55 @@ import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectReader;
+import org.osiam.client.connection.ConnectionPool;
+import org.osiam.client.connection.InterceptorChain;
+import org.osiam.client.connection.RequestInterceptor;
 import org.osiam.client.exception.ConnectionInitializationException;
 import org.osiam.client.exception.UnauthorizedException;
+import org.osiam.client.metrics.RequestMetrics;
+import org.osiam.client.metrics.RequestTimer;
 
 /**
  * The AuthService provides access to the OAuth2 service used to authorize requests. Please use the
- * {@link AuthService.Builder} to construct one.
+ * {@link AuthService.Builder} to construct one. A service built without a {@link ConnectionPool} creates a pool of
+ * its own, which is shut down by {@link #close()}.
  */
-public final class AuthService { // NOSONAR - Builder constructs instances of this class
+public final class AuthService implements Closeable { // NOSONAR - Builder constructs instances of this class
 
     private static final Charset CHARSET = Charset.forName("UTF-8");
-    private final HttpPost post;
+    private static final ObjectReader ACCESS_TOKEN_READER = new ObjectMapper().reader(AccessToken.class);
+    private final URI uri;
+    private final Header[] headers;
+    private final HttpEntity body;
+    private final ConnectionPool connectionPool;
+    private final ConnectionPool ownConnectionPool;
     private final String clientId;
     private final String endpoint;
+    private final RequestMetrics metrics;
+    private final List<RequestInterceptor> interceptors;
 
     private AuthService(Builder builder) {
-        post = new HttpPost(builder.endpoint);
-        post.setHeaders(builder.headers);
-        post.setEntity(builder.body);
+        uri = URI.create(builder.endpoint);
+        headers = builder.headers;
+        body = builder.body;
+        if (builder.connectionPool == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            ownConnectionPool = new ConnectionPool.Builder().build();
+            connectionPool = ownConnectionPool;
+        } else {
+            ownConnectionPool = null;
+            connectionPool = builder.connectionPool;
+        }
         clientId = builder.clientId;
         endpoint = builder.endpoint;
+        metrics = builder.metrics;
+        interceptors = Collections.unmodifiableList(new ArrayList<>(builder.interceptors));
     }
 
     /**
@@ -58,14 +82,17 @@ public final class AuthService { // NOSONAR - Builder constructs instances of th
      * @return The URI used by this AuthService
      */
     public URI getUri() {
-        return post.getURI();
+        return uri;
     }
 
-    private HttpResponse performRequest() {
-        HttpClient defaultHttpClient = new DefaultHttpClient();
+    private HttpResponse performRequest(HttpEntity requestBody, RequestTimer timer) {
+        HttpPost post = new HttpPost(uri);
+        post.setHeaders(headers);
+        post.setEntity(requestBody);
+
         final HttpResponse response;
         try {
-            response = defaultHttpClient.execute(post);
+            response = InterceptorChain.execute(interceptors, connectionPool, timer, post);
         } catch (IOException e) {
             throw new ConnectionInitializationException("Unable to perform Request ", e);
         }
@@ -82,10 +109,49 @@ public final class AuthService { // NOSONAR - Builder constructs instances of th
      *                               to retrieve an {@link AccessToken}
      */
     public AccessToken retrieveAccessToken() {
-        HttpResponse response = performRequest();
+        return requestAccessToken(body, "token");
+    }
+
+    /**
+     * Provide a new {@link AccessToken} in exchange for the refresh token of the given one. This grant does not
+     * send the user credentials again and is cheaper for the OAuth2 service than the grant this service is
+     * configured with.
+     *
+     * @param accessToken an AccessToken holding a refresh token
+     * @return a valid AccessToken
+     * @throws ConnectionInitializationException
+     *                               If the Service is unable to connect to the configured OAuth2 service or the
+     *                               refresh token was not accepted.
+     * @throws UnauthorizedException If the configured client credentials are not permitted to refresh the token
+     */
+    public AccessToken refreshAccessToken(AccessToken accessToken) {
+        if (accessToken == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given accessToken can't be null.");
+        }
+        if (accessToken.getRefreshToken() == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given accessToken holds no refresh token.");
+        }
+        List<NameValuePair> parameters = new ArrayList<>();
+        parameters.add(new BasicNameValuePair("grant_type", GrantType.REFRESH_TOKEN.getUrlParam()));
+        parameters.add(new BasicNameValuePair("refresh_token", accessToken.getRefreshToken()));
+        return requestAccessToken(Builder.encodeBody(parameters), "refreshToken");
+    }
+
+    private AccessToken requestAccessToken(HttpEntity requestBody, String operation) {
+        RequestTimer timer = RequestTimer.start(metrics, operation, "AccessToken");
+        try {
+            return requestAccessToken(requestBody, timer);
+        } finally {
+            timer.finish();
+        }
+    }
+
+    private AccessToken requestAccessToken(HttpEntity requestBody, RequestTimer timer) {
+        HttpResponse response = performRequest(requestBody, timer);
         int status = response.getStatusLine().getStatusCode();
 
         if (status != SC_OK) {
+            EntityUtils.consumeQuietly(response.getEntity());
             switch (status) {
                 case SC_BAD_REQUEST:
                     throw new ConnectionInitializationException(
@@ -109,14 +175,23 @@ public final class AuthService { // NOSONAR - Builder constructs instances of th
         final AccessToken accessToken;
         try {
             InputStream content = response.getEntity().getContent();
-            ObjectMapper mapper = new ObjectMapper();
-            accessToken = mapper.readValue(content, AccessToken.class);
+            accessToken = ACCESS_TOKEN_READER.readValue(content);
         } catch (IOException e) {
             throw new ConnectionInitializationException("Unable to retrieve access token: IOException", e);
         }
         return accessToken;
     }
 
+    /**
+     * Shut down the connection pool the service created for itself because its builder was given none. A pool given
+     * to the builder is left open, as other services may share it. The service can't be used afterwards.
+     */
+    @Override
+    public void close() {
+        if (ownConnectionPool != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            ownConnectionPool.shutdown();
+        }
+    }
 
     /**
      * The Builder class is used to construct instances of the {@link AuthService}.
@@ -133,6 +208,9 @@ public final class AuthService { // NOSONAR - Builder constructs instances of th
         private Map<String, String> requestParameters = new HashMap<>();
         private String endpoint;
         private HttpEntity body;
+        private ConnectionPool connectionPool;
+        private RequestMetrics metrics;
+        private List<RequestInterceptor> interceptors = new ArrayList<>();
 
         /**
          * Set up the Builder for the construction of  an {@link AuthService} instance for the OAuth2 service at
@@ -146,15 +224,17 @@ public final class AuthService { // NOSONAR - Builder constructs instances of th
         }
 
         /**
-         * Use the given {@link GrantType} to for the request. At this point only the grant type 'password' is supported.
+         * Use the given {@link GrantType} to for the request. The grant types 'password' and 'client_credentials' are
+         * supported. Tokens are refreshed with {@link AuthService#refreshAccessToken(AccessToken)}.
          *
          * @param grantType of the requested AuthCode
          * @return The builder itself
-         * @throws UnsupportedOperationException If the GrantType is anything else than GrantType.PASSWORD
+         * @throws UnsupportedOperationException If the GrantType is GrantType.REFRESH_TOKEN
          */
         public Builder grantType(GrantType grantType) {
-            if (!grantType.equals(GrantType.PASSWORD)) { // NOSONAR - false-positive from clover; if-expression is correct
-                throw new UnsupportedOperationException(grantType.getUrlParam() + " grant type not supported at this time");
+            if (grantType.equals(GrantType.REFRESH_TOKEN)) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new UnsupportedOperationException(grantType.getUrlParam()
+                        + " grant type is used through AuthService.refreshAccessToken");
             }
             this.grantType = grantType;
             return this;
@@ -204,6 +284,47 @@ public final class AuthService { // NOSONAR - Builder constructs instances of th
             return this;
         }
 
+        /**
+         * Use the given {@link ConnectionPool} for all requests of the service. A pool can be shared with the
+         * user and group services. If no pool is given, the service gets a pool of its own with the default settings,
+         * which is shut down when the service is {@link AuthService#close() closed}.
+         *
+         * @param connectionPool the pool to take the connections from
+         * @return The builder itself
+         */
+        public Builder connectionPool(ConnectionPool connectionPool) {
+            this.connectionPool = connectionPool;
+            return this;
+        }
+
+        /**
+         * Report every token request of the service to the given {@link RequestMetrics}, under the resource type
+         * AccessToken. If no metrics are given, nothing is measured.
+         *
+         * @param metrics the metrics to report the requests to
+         * @return The builder itself
+         */
+        public Builder metrics(RequestMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Pass every token request of the service through the given {@link RequestInterceptor}, for example to add
+         * trace headers. Interceptors are called in the order they were added before a request, and in the reverse
+         * order after it.
+         *
+         * @param interceptor the interceptor to add
+         * @return The builder itself
+         */
+        public Builder interceptor(RequestInterceptor interceptor) {
+            if (interceptor == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The given interceptor can't be null.");
+            }
+            interceptors.add(interceptor);
+            return this;
+        }
+
         /**
          * Construct the {@link AuthService} with the parameters passed to this builder.
          *
@@ -246,6 +367,10 @@ public final class AuthService { // NOSONAR - Builder constructs instances of th
             for (String key : requestParameters.keySet()) {
                 nameValuePairs.add(new BasicNameValuePair(key, requestParameters.get(key)));
             }
+            return encodeBody(nameValuePairs);
+        }
+
+        private static HttpEntity encodeBody(List<NameValuePair> nameValuePairs) {
             try {
                 return new UrlEncodedFormEntity(nameValuePairs);
             } catch (UnsupportedEncodingException e) {
@@ -8,11 +8,15 @@ package org.osiam.client.oauth;
  * At this point the following grant types are supported:
  * <ul>
  * <li>PASSWORD</li>
+ * <li>CLIENT_CREDENTIALS</li>
+ * <li>REFRESH_TOKEN, only to renew an already granted {@link AccessToken}</li>
  * </ul>
  */
 public enum GrantType {
 
-    PASSWORD("password");
+    PASSWORD("password"),
+    CLIENT_CREDENTIALS("client_credentials"),
+    REFRESH_TOKEN("refresh_token");
 
     private String urlParam;
 
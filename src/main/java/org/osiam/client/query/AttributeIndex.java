@@ -0,0 +1,53 @@
+package org.osiam.client.query;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.Locale;
+import java.util.Set;
+
+import org.osiam.client.query.metamodel.AttributeTable;
+import org.osiam.resources.scim.Meta;
+import org.osiam.resources.scim.MultiValuedAttribute;
+import org.osiam.resources.scim.Name;
+
+/**
+ * The AttributeIndex knows which attributes can be used in a query for a resource class. It reads the
+ * {@link AttributeTable} the MetamodelProcessor generates during the build: the private fields of a class and its
+ * super classes, and for users and groups every attribute of the metamodel. A lookup is a hash lookup of the lower
+ * case attribute name; classes the metamodel doesn't know have no valid attributes.
+ */
+final class AttributeIndex {
+
+    private AttributeIndex() {
+    }
+
+    /**
+     * Check whether the given attribute can be queried on the given class. Sub-attributes of meta, emails and name are
+     * checked against the fields of {@link Meta}, {@link MultiValuedAttribute} and {@link Name}.
+     *
+     * @param attribute the attribute, like userName or name.givenName
+     * @param clazz     the queried resource class
+     * @return true if the attribute can be queried
+     */
+    static boolean isValid(String attribute, Class<?> clazz) {
+        if (contains(clazz, attribute)) { // NOSONAR - false-positive from clover; if-expression is correct
+            return true;
+        }
+        if (attribute.startsWith("meta.")) { // NOSONAR - false-positive from clover; if-expression is correct
+            return contains(Meta.class, attribute.substring("meta.".length()));
+        }
+        if (attribute.startsWith("emails.")) { // NOSONAR - false-positive from clover; if-expression is correct
+            return contains(MultiValuedAttribute.class, attribute.substring("emails.".length()));
+        }
+        if (attribute.startsWith("name.")) { // NOSONAR - false-positive from clover; if-expression is correct
+            return contains(Name.class, attribute.substring("name.".length()));
+        }
+        return false;
+    }
+
+    private static boolean contains(Class<?> clazz, String attribute) {
+        Set<String> attributes = AttributeTable.of(clazz);
+        return attributes != null && attributes.contains(attribute.toLowerCase(Locale.ENGLISH));
+    }
+}
@@ -0,0 +1,184 @@
+package org.osiam.client.query;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.osiam.client.query.metamodel.Comparison;
+
+/**
+ * A node of the immutable expression tree behind a {@link Query.Filter}. The tree is compiled into a list of
+ * fragments: literal filter text as String, and {@link Comparison}s whose value is bound to a parameter later. Once
+ * its parameters are bound, it can also be evaluated against resources in memory, with the same precedence OSIAM
+ * applies to the compiled filter.
+ */
+abstract class FilterExpression {
+
+    /**
+     * Append the fragments of this expression to the given list.
+     *
+     * @param fragments the compiled fragments of the filter
+     */
+    abstract void compile(List<Object> fragments);
+
+    /**
+     * Bind the parameters of this expression, so it can be evaluated against any number of resources.
+     *
+     * @param bindings the values of the parameters of the filter
+     * @return an expression without parameters
+     */
+    abstract FilterExpression bind(Map<String, Object> bindings);
+
+    /**
+     * Evaluate this expression against the given resource. Its parameters must have been bound, see {@link #bind}.
+     *
+     * @param resource the resource to test
+     * @return true if the resource matches
+     */
+    abstract boolean matches(Object resource);
+
+    static FilterExpression comparison(Comparison comparison) {
+        return new ComparisonExpression(comparison);
+    }
+
+    static FilterExpression and(FilterExpression left, FilterExpression right) {
+        return new LogicalExpression(left, " and ", right);
+    }
+
+    static FilterExpression or(FilterExpression left, FilterExpression right) {
+        return new LogicalExpression(left, " or ", right);
+    }
+
+    static FilterExpression group(FilterExpression inner) {
+        return new GroupExpression("(", inner, false);
+    }
+
+    static FilterExpression not(FilterExpression inner) {
+        return new GroupExpression("not (", inner, true);
+    }
+
+    static void appendLiteral(List<Object> fragments, String literal) {
+        int last = fragments.size() - 1;
+        if (last >= 0 && fragments.get(last) instanceof String) { // NOSONAR - false-positive from clover; if-expression is correct
+            fragments.set(last, fragments.get(last) + literal);
+        } else {
+            fragments.add(literal);
+        }
+    }
+
+    private static final class ComparisonExpression extends FilterExpression {
+
+        private final Comparison comparison;
+
+        private ComparisonExpression(Comparison comparison) {
+            this.comparison = comparison;
+        }
+
+        @Override
+        void compile(List<Object> fragments) {
+            if (comparison.getParameter() == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                appendLiteral(fragments, comparison.toString());
+            } else {
+                fragments.add(comparison);
+            }
+        }
+
+        @Override
+        FilterExpression bind(Map<String, Object> bindings) {
+            if (comparison.getParameter() == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                return this;
+            }
+            Object value = bindings.get(comparison.getParameter().getName());
+            return new ComparisonExpression(value instanceof Date ? comparison.bind((Date) value) : comparison.bind((String) value)); // NOSONAR - false-positive from clover; if-expression is correct
+        }
+
+        @Override
+        boolean matches(Object resource) {
+            return LocalEvaluator.matches(comparison, resource);
+        }
+    }
+
+    private static final class LogicalExpression extends FilterExpression {
+
+        private final FilterExpression left;
+        private final String operator;
+        private final FilterExpression right;
+
+        private LogicalExpression(FilterExpression left, String operator, FilterExpression right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        void compile(List<Object> fragments) {
+            left.compile(fragments);
+            appendLiteral(fragments, operator);
+            right.compile(fragments);
+        }
+
+        @Override
+        FilterExpression bind(Map<String, Object> bindings) {
+            return new LogicalExpression(left.bind(bindings), operator, right.bind(bindings));
+        }
+
+        /**
+         * The filter is compiled without brackets, so OSIAM evaluates a chain like "a or b and c" as "a or (b and c)".
+         * The chain is flattened and evaluated the same way: every "or" closes a run of "and" terms.
+         */
+        @Override
+        boolean matches(Object resource) {
+            List<LogicalExpression> chain = new ArrayList<>();
+            FilterExpression first = this;
+            while (first instanceof LogicalExpression) {
+                chain.add(0, (LogicalExpression) first);
+                first = ((LogicalExpression) first).left;
+            }
+            boolean term = first.matches(resource);
+            for (LogicalExpression link : chain) {
+                if (" and ".equals(link.operator)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    term = term && link.right.matches(resource);
+                } else if (term) {
+                    return true;
+                } else {
+                    term = link.right.matches(resource);
+                }
+            }
+            return term;
+        }
+    }
+
+    private static final class GroupExpression extends FilterExpression {
+
+        private final String prefix;
+        private final FilterExpression inner;
+        private final boolean negated;
+
+        private GroupExpression(String prefix, FilterExpression inner, boolean negated) {
+            this.prefix = prefix;
+            this.inner = inner;
+            this.negated = negated;
+        }
+
+        @Override
+        void compile(List<Object> fragments) {
+            appendLiteral(fragments, prefix);
+            inner.compile(fragments);
+            appendLiteral(fragments, ")");
+        }
+
+        @Override
+        FilterExpression bind(Map<String, Object> bindings) {
+            return new GroupExpression(prefix, inner.bind(bindings), negated);
+        }
+
+        @Override
+        boolean matches(Object resource) {
+            return inner.matches(resource) != negated;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.osiam.client.query;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.osiam.client.query.metamodel.Comparison;
+
+/**
+ * The LocalEvaluator applies filter comparisons and sorting to resources in memory, the way OSIAM applies them to its
+ * database. Attributes are resolved by name, ignoring case, through the fields of the resource; the values of
+ * multi-valued attributes are matched if any of them matches. Strings are compared ignoring case, dates by their point
+ * in time and numbers and booleans by their value.
+ */
+final class LocalEvaluator {
+
+    private static final ConcurrentMap<Class<?>, Map<String, Field>> FIELDS = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+        }
+    };
+
+    private LocalEvaluator() {
+    }
+
+    static boolean matches(Comparison comparison, Object resource) {
+        List<Object> values = valuesOf(resource, comparison.getAttribute());
+        String operator = comparison.getOperator();
+        if ("pr".equals(operator)) { // NOSONAR - false-positive from clover; if-expression is correct
+            return !values.isEmpty();
+        }
+        for (Object value : values) {
+            if (matches(value, operator, comparison)) { // NOSONAR - false-positive from clover; if-expression is correct
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static <T> Comparator<T> comparator(final String sortBy, SortOrder sortOrder) {
+        final int direction = sortOrder == SortOrder.DESCENDING ? -1 : 1; // NOSONAR - false-positive from clover; if-expression is correct
+        return new Comparator<T>() {
+            @Override
+            public int compare(T first, T second) {
+                Object left = firstValueOf(first, sortBy);
+                Object right = firstValueOf(second, sortBy);
+                if (left == null || right == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                    // resources without the attribute are sorted last, in both orders
+                    return left == null ? (right == null ? 0 : 1) : -1; // NOSONAR - false-positive from clover; if-expression is correct
+                }
+                return direction * compareValues(left, right);
+            }
+        };
+    }
+
+    private static boolean matches(Object value, String operator, Comparison expected) {
+        switch (operator) {
+            case "eq":
+                return compare(value, expected) == 0;
+            case "co":
+                return lowerCase(value.toString()).contains(lowerCase(expected.getValue()));
+            case "sw":
+                return lowerCase(value.toString()).startsWith(lowerCase(expected.getValue()));
+            case "gt":
+                return compare(value, expected) > 0;
+            case "ge":
+                return compare(value, expected) >= 0;
+            case "lt":
+                return compare(value, expected) < 0;
+            case "le":
+                return compare(value, expected) <= 0;
+            default:
+                throw new IllegalArgumentException("The operator " + operator + " is not supported.");
+        }
+    }
+
+    /**
+     * Dates are compared by their epoch millis; only a date given as plain string, not through a date attribute, has
+     * to be parsed.
+     */
+    private static int compare(Object value, Comparison expected) {
+        if (value instanceof Date) { // NOSONAR - false-positive from clover; if-expression is correct
+            long expectedMillis = expected.isDated() ? expected.getEpochMillis() : parseDate(expected.getValue()).getTime(); // NOSONAR - false-positive from clover; if-expression is correct
+            return Long.compare(((Date) value).getTime(), expectedMillis);
+        }
+        if (value instanceof Number) { // NOSONAR - false-positive from clover; if-expression is correct
+            return Double.compare(((Number) value).doubleValue(), Double.parseDouble(expected.getValue()));
+        }
+        return value.toString().compareToIgnoreCase(expected.getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object left, Object right) {
+        if (left instanceof String && right instanceof String) { // NOSONAR - false-positive from clover; if-expression is correct
+            return ((String) left).compareToIgnoreCase((String) right);
+        }
+        if (left instanceof Comparable && left.getClass() == right.getClass()) { // NOSONAR - false-positive from clover; if-expression is correct
+            return ((Comparable<Object>) left).compareTo(right);
+        }
+        return left.toString().compareToIgnoreCase(right.toString());
+    }
+
+    private static Date parseDate(String date) {
+        try {
+            return DATE_FORMAT.get().parse(date);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("The value " + date + " is not a date.", e);
+        }
+    }
+
+    private static Object firstValueOf(Object resource, String attribute) {
+        List<Object> values = valuesOf(resource, attribute);
+        return values.isEmpty() ? null : values.get(0); // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    /**
+     * Resolve the given attribute path, like emails.value, to all non-null values of the resource.
+     */
+    static List<Object> valuesOf(Object resource, String attribute) {
+        List<Object> current = Collections.singletonList(resource);
+        for (String name : attribute.split("\\.")) {
+            List<Object> next = new ArrayList<>();
+            for (Object holder : current) {
+                Field field = fieldsOf(holder.getClass()).get(lowerCase(name));
+                if (field != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                    addValue(next, read(field, holder));
+                }
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    private static void addValue(List<Object> values, Object value) {
+        if (value instanceof Collection) { // NOSONAR - false-positive from clover; if-expression is correct
+            for (Object element : (Collection<?>) value) {
+                addValue(values, element);
+            }
+        } else if (value != null) {
+            values.add(value);
+        }
+    }
+
+    private static Object read(Field field, Object holder) {
+        try {
+            return field.get(holder);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, Field> fieldsOf(Class<?> clazz) {
+        Map<String, Field> fields = FIELDS.get(clazz);
+        if (fields == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            fields = new HashMap<>();
+            // values like String or Date have no attributes, and the JDK classes must not be opened by reflection
+            for (Class<?> current = clazz; current != null && !current.getName().startsWith("java."); current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    String name = lowerCase(field.getName());
+                    if (!Modifier.isStatic(field.getModifiers()) && !fields.containsKey(name)) { // NOSONAR - false-positive from clover; if-expression is correct
+                        field.setAccessible(true);
+                        fields.put(name, field);
+                    }
+                }
+            }
+            FIELDS.putIfAbsent(clazz, fields);
+        }
+        return fields;
+    }
+
+    private static String lowerCase(String value) {
+        return value.toLowerCase(Locale.ENGLISH);
+    }
+}
@@ -5,9 +5,14 @@ package org.osiam.client.query;
 
 
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,6 +20,7 @@ import org.apache.commons.io.Charsets;
 import org.osiam.client.exception.InvalidAttributeException;
 import org.osiam.client.query.metamodel.Attribute;
 import org.osiam.client.query.metamodel.Comparison;
+import org.osiam.client.query.metamodel.Parameter;
 import org.osiam.resources.scim.CoreResource;
 
 /**
@@ -28,12 +34,28 @@ public class Query {
     private static final Pattern COUNT_PATTERN = Pattern.compile("count=(\\d+)&?");
 
     private final String queryString;
+    private final Filter filter;
+    private final String sortBy;
+    private final SortOrder sortOrder;
+    private final boolean evaluable;
 
     private Matcher indexMatcher;
     private Matcher countMatcher;
 
     public Query(String queryString) {
+        this(queryString, null, null, null, false);
+    }
+
+    private Query(String queryString, Query template) {
+        this(queryString, template.filter, template.sortBy, template.sortOrder, template.evaluable);
+    }
+
+    private Query(String queryString, Filter filter, String sortBy, SortOrder sortOrder, boolean evaluable) {
         this.queryString = queryString;
+        this.filter = filter;
+        this.sortBy = sortBy;
+        this.sortOrder = sortOrder;
+        this.evaluable = evaluable;
         indexMatcher = INDEX_PATTERN.matcher(queryString);
         countMatcher = COUNT_PATTERN.matcher(queryString);
     }
@@ -71,9 +93,9 @@ public class Query {
     public Query nextPage() {
         String nextIndex = "startIndex=" + (getCount() + getStartIndex());
         if (queryStringContainsIndex()) { // NOSONAR - false-positive from clover; if-expression is correct
-            return new Query(indexMatcher.replaceFirst(nextIndex));
+            return new Query(indexMatcher.replaceFirst(nextIndex), this);
         }
-        return new Query(queryString + "&" + nextIndex);
+        return new Query(queryString + "&" + nextIndex, this);
     }
 
     /**
@@ -88,7 +110,37 @@ public class Query {
             throw new IllegalStateException("Negative startIndex is not possible.");
         }
         
-        return new Query(indexMatcher.replaceFirst("startIndex=" + newIndex));
+        return new Query(indexMatcher.replaceFirst("startIndex=" + newIndex), this);
+    }
+
+    /**
+     * Run this query against the given resources in memory instead of OSIAM: filter them, sort them and return the
+     * page this query points to. Attribute projection is not applied, the resources are returned as they are.
+     *
+     * @param resources the resources to query, like the content of a replica
+     * @param <T>       a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+     * @return the requested page of the matching resources
+     * @throws IllegalStateException if the query was not built by a {@link Query.Builder} with a {@link Query.Filter}
+     *                               or without filter
+     */
+    public <T extends CoreResource> QueryResult<T> evaluate(Collection<T> resources) {
+        if (!evaluable) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalStateException("Only queries built with a Query.Filter can be evaluated locally.");
+        }
+        // the parameters are bound once, not again for every resource
+        FilterExpression bound = filter == null ? null : filter.boundExpression(); // NOSONAR - false-positive from clover; if-expression is correct
+        List<T> matching = new ArrayList<>();
+        for (T resource : resources) {
+            if (bound == null || bound.matches(resource)) { // NOSONAR - false-positive from clover; if-expression is correct
+                matching.add(resource);
+            }
+        }
+        if (sortBy != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            Collections.sort(matching, LocalEvaluator.<T>comparator(sortBy, sortOrder));
+        }
+        int from = Math.min(getStartIndex(), matching.size());
+        int to = Math.min(from + getCount(), matching.size());
+        return new QueryResult<>(new ArrayList<>(matching.subList(from, to)), matching.size(), getStartIndex());
     }
 
 
@@ -138,8 +190,11 @@ public class Query {
         private static final int DEFAULT_COUNT_PER_PAGE = 100;
         private Class<? extends CoreResource> clazz;
         private String filter;
+        private Filter compiledFilter;
+        private boolean evaluable = true;
         private String sortBy;
         private SortOrder sortOrder;
+        private String attributes;
         private int startIndex = DEFAULT_START_INDEX;
         private int countPerPage = DEFAULT_COUNT_PER_PAGE;
 
@@ -159,7 +214,12 @@ public class Query {
          * @return The Builder with this filter added.
          */
         public Builder filter(Filter filter) {
+            if (!filter.isBound()) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The given filter has unbound parameters.");
+            }
             this.filter = filter.toString();
+            compiledFilter = filter;
+            evaluable = true;
             return this;
         }
 
@@ -171,6 +231,8 @@ public class Query {
          */
         public Builder filter(String filter) {
             this.filter = filter;
+            compiledFilter = null;
+            evaluable = false;
             return this;
         }
 
@@ -221,6 +283,33 @@ public class Query {
             return this;
         }
 
+        /**
+         * Restrict the returned resources to the given attributes, like {@code User_.id} or
+         * {@code User_.name.givenName}. OSIAM sends back only these attributes, so the resources of the
+         * {@link QueryResult} are sparse: every attribute that was not requested is null.
+         *
+         * @param attributes the attributes to return
+         * @return The Builder with the attributes added.
+         * @throws InvalidAttributeException if one of the attributes does not belong to the queried resource
+         */
+        public Builder attributes(Attribute... attributes) {
+            if (attributes == null || attributes.length == 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The given attributes can't be empty.");
+            }
+            StringBuilder names = new StringBuilder();
+            for (Attribute attribute : attributes) {
+                if (!(isAttributeValid(attribute.toString()))) { // NOSONAR - false-positive from clover; if-expression is correct
+                    throw new InvalidAttributeException("Projection on this attribute is not supported");
+                }
+                if (names.length() != 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                    names.append(',');
+                }
+                names.append(attribute.toString());
+            }
+            this.attributes = names.toString();
+            return this;
+        }
+
         /**
          * Build the query String to use against OSIAM.
          *
@@ -248,6 +337,11 @@ public class Query {
                         .append(sortOrder);
 
             }
+            if (attributes != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                ensureQueryParamIsSeparated(builder);
+                builder.append("attributes=")
+                        .append(attributes);
+            }
             if (countPerPage != DEFAULT_COUNT_PER_PAGE) { // NOSONAR - false-positive from clover; if-expression is correct
                 ensureQueryParamIsSeparated(builder);
                 builder.append("count=")
@@ -258,7 +352,7 @@ public class Query {
                 builder.append("startIndex=")
                         .append(startIndex);
             }
-            return new Query(builder.toString());
+            return new Query(builder.toString(), compiledFilter, sortBy, sortOrder, evaluable);
         }
 
         private void ensureQueryParamIsSeparated(StringBuilder builder) {
@@ -272,36 +366,23 @@ public class Query {
         }
 
         private static boolean isAttributeValid(String attribute, Class clazz) {
-            String compositeField = "";
-            if (attribute.contains(".")) { // NOSONAR - false-positive from clover; if-expression is correct
-                compositeField = attribute.substring(attribute.indexOf('.') + 1);
-            }
-            if (attribute.startsWith("meta.")) { // NOSONAR - false-positive from clover; if-expression is correct
-                return isAttributeValid(compositeField, org.osiam.resources.scim.Meta.class);
-            }
-            if (attribute.startsWith("emails.")) { // NOSONAR - false-positive from clover; if-expression is correct
-                return isAttributeValid(compositeField, org.osiam.resources.scim.MultiValuedAttribute.class);
-            }
-            if (attribute.startsWith("name.")) { // NOSONAR - false-positive from clover; if-expression is correct
-                return isAttributeValid(compositeField, org.osiam.resources.scim.Name.class);
-            }
-
-            for (Field field : clazz.getDeclaredFields()) {
-                if (Modifier.isPrivate(field.getModifiers()) && field.getName().equalsIgnoreCase(attribute)) { // NOSONAR - false-positive from clover; if-expression is correct
-                    return true;
-                }
-            }
-            return false;
+            return AttributeIndex.isValid(attribute, clazz);
         }
     }
 
     /**
-     * A Filter is used to produce filter criteria for the query.
+     * A Filter is used to produce filter criteria for the query. A Filter is immutable: every method returns a new
+     * Filter, and the attributes are validated and the filter is serialized once when it is composed. A Filter
+     * containing {@link Parameter}s is a template that can be shared across threads and bound to concrete values
+     * with {@link #bind(String, String)} for every request.
      */
     public static final class Filter {
 
-        private Class clazz;
-        private StringBuilder filterBuilder;
+        private final Class clazz;
+        private final FilterExpression expression;
+        private final List<Object> fragments;
+        private final Map<String, Object> bindings;
+        private final String filter;
 
         /**
          * The Constructor of the Filter
@@ -309,8 +390,27 @@ public class Query {
          * @param clazz The class of Resources to filter for.
          */
         public Filter(Class clazz) {
-            filterBuilder = new StringBuilder();
+            this(clazz, null, Collections.<String, Object>emptyMap());
+        }
+
+        private Filter(Class clazz, FilterExpression expression, Map<String, Object> bindings) {
             this.clazz = clazz;
+            this.expression = expression;
+            List<Object> compiled = new ArrayList<>();
+            if (expression != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                expression.compile(compiled);
+            }
+            fragments = Collections.unmodifiableList(compiled);
+            this.bindings = Collections.unmodifiableMap(new HashMap<>(bindings));
+            filter = render();
+        }
+
+        private Filter(Filter template, Map<String, Object> bindings) {
+            clazz = template.clazz;
+            expression = template.expression;
+            fragments = template.fragments;
+            this.bindings = Collections.unmodifiableMap(bindings);
+            filter = render();
         }
 
         /**
@@ -319,7 +419,7 @@ public class Query {
          * @return The Filter with the Comparison added.
          */
         public Filter startsWith(Comparison comparison) {
-            return query(comparison);
+            return new Filter(clazz, query(comparison), Collections.<String, Object>emptyMap());
         }
 
         /**
@@ -330,8 +430,8 @@ public class Query {
          * @throws org.osiam.client.exception.InvalidAttributeException if the given attribute is not valid for a query
          */
         public Filter and(Comparison comparison) {
-            filterBuilder.append(" and ");
-            return query(comparison);
+            FilterExpression right = query(comparison);
+            return derive(expression == null ? right : FilterExpression.and(expression, right), this); // NOSONAR - false-positive from clover; if-expression is correct
         }
 
         /**
@@ -341,8 +441,8 @@ public class Query {
          * @return The Builder with the inner filter added.
          */
         public Filter and(Filter innerFilter) {
-            filterBuilder.append(" and (").append(innerFilter.toString()).append(")");
-            return this;
+            FilterExpression right = group(innerFilter);
+            return derive(expression == null ? right : FilterExpression.and(expression, right), innerFilter); // NOSONAR - false-positive from clover; if-expression is correct
         }
 
         /**
@@ -353,8 +453,8 @@ public class Query {
          * @throws org.osiam.client.exception.InvalidAttributeException if the given attribute is not valid for a query
          */
         public Filter or(Comparison comparison) {
-            filterBuilder.append(" or ");
-            return query(comparison);
+            FilterExpression right = query(comparison);
+            return derive(expression == null ? right : FilterExpression.or(expression, right), this); // NOSONAR - false-positive from clover; if-expression is correct
         }
 
         /**
@@ -364,13 +464,79 @@ public class Query {
          * @return The Builder with the inner filter added.
          */
         public Filter or(Filter innerFilter) {
-            filterBuilder.append(" or (").append(innerFilter.toString()).append(")");
-            return this;
+            FilterExpression right = group(innerFilter);
+            return derive(expression == null ? right : FilterExpression.or(expression, right), innerFilter); // NOSONAR - false-positive from clover; if-expression is correct
+        }
+
+        /**
+         * Negate this filter, which is sent as not ( ... ).
+         *
+         * @return The negated Filter.
+         */
+        public Filter not() {
+            if (expression == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalStateException("An empty filter can't be negated.");
+            }
+            return new Filter(clazz, FilterExpression.not(expression), bindings);
         }
 
-        private boolean isAttributeValid(Comparison comparison) {
-            String attribute = comparison.toString().substring(0, comparison.toString().indexOf(" "));
-            return Builder.isAttributeValid(attribute, clazz);
+        /**
+         * Bind the parameter with the given name to the given value.
+         *
+         * @param name  the name of the {@link Parameter}
+         * @param value the value of the parameter
+         * @return A Filter with the parameter bound to the value.
+         */
+        public Filter bind(String name, String value) {
+            return bindValue(name, value);
+        }
+
+        /**
+         * Bind the parameter with the given name to the given date.
+         *
+         * @param name  the name of the {@link Parameter}
+         * @param value the value of the parameter
+         * @return A Filter with the parameter bound to the date.
+         */
+        public Filter bind(String name, Date value) {
+            return bindValue(name, value);
+        }
+
+        /**
+         * @return true if every parameter of this filter is bound to a value
+         */
+        public boolean isBound() {
+            for (Object fragment : fragments) {
+                if (fragment instanceof Comparison
+                        && !bindings.containsKey(((Comparison) fragment).getParameter().getName())) { // NOSONAR - false-positive from clover; if-expression is correct
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Evaluate this filter against the given resource in memory, with the semantics OSIAM applies: strings are
+         * compared ignoring case, and a multi-valued attribute matches if any of its values matches.
+         *
+         * @param resource the resource to test
+         * @return true if the resource matches this filter, always true for an empty filter
+         * @throws IllegalStateException if the filter has unbound parameters
+         */
+        public boolean matches(CoreResource resource) {
+            FilterExpression bound = boundExpression();
+            return bound == null || bound.matches(resource); // NOSONAR - false-positive from clover; if-expression is correct
+        }
+
+        /**
+         * @return the expression of this filter with its parameters bound, null for an empty filter
+         * @throws IllegalStateException if the filter has unbound parameters
+         */
+        FilterExpression boundExpression() {
+            if (!isBound()) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalStateException("The filter has unbound parameters.");
+            }
+            return expression == null ? null : expression.bind(bindings); // NOSONAR - false-positive from clover; if-expression is correct
         }
 
         /**
@@ -378,16 +544,69 @@ public class Query {
          * @return the build together filter
          */
         public String toString(){
-            return filterBuilder.toString();
+            return filter;
         }
 
-        private Filter query(Comparison comparison) {
-            if (!(isAttributeValid(comparison))) {
-                throw new InvalidAttributeException("Querying for this attribute is not supported");
+        private Filter derive(FilterExpression combined, Filter other) {
+            Map<String, Object> merged = new HashMap<>(bindings);
+            merged.putAll(other.bindings);
+            return new Filter(clazz, combined, merged);
+        }
+
+        private Filter bindValue(String name, Object value) {
+            if (value == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The given value can't be null.");
+            }
+            if (!hasParameter(name)) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The filter has no parameter named " + name + ".");
             }
+            Map<String, Object> bound = new HashMap<>(bindings);
+            bound.put(name, value);
+            return new Filter(this, bound);
+        }
 
-            filterBuilder.append(comparison.toString());
-            return this;
+        private boolean hasParameter(String name) {
+            for (Object fragment : fragments) {
+                if (fragment instanceof Comparison
+                        && ((Comparison) fragment).getParameter().getName().equals(name)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String render() {
+            StringBuilder builder = new StringBuilder();
+            for (Object fragment : fragments) {
+                if (fragment instanceof String) { // NOSONAR - false-positive from clover; if-expression is correct
+                    builder.append(fragment);
+                    continue;
+                }
+                Comparison comparison = (Comparison) fragment;
+                Object value = bindings.get(comparison.getParameter().getName());
+                if (value instanceof Date) { // NOSONAR - false-positive from clover; if-expression is correct
+                    builder.append(comparison.bind((Date) value));
+                } else if (value != null) {
+                    builder.append(comparison.bind((String) value));
+                } else {
+                    builder.append(comparison);
+                }
+            }
+            return builder.toString();
+        }
+
+        private static FilterExpression group(Filter innerFilter) {
+            if (innerFilter.expression == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The given filter can't be empty.");
+            }
+            return FilterExpression.group(innerFilter.expression);
+        }
+
+        private FilterExpression query(Comparison comparison) {
+            if (!(Builder.isAttributeValid(comparison.getAttribute(), clazz))) {
+                throw new InvalidAttributeException("Querying for this attribute is not supported");
+            }
+            return FilterExpression.comparison(comparison);
         }
     }
-}
\ No newline at end of file
+}
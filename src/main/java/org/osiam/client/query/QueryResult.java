@@ -20,6 +20,17 @@ public class QueryResult<T extends CoreResource> {
     @JsonProperty("Resources")
     private List<T> resources;
 
+    public QueryResult() {
+    }
+
+    QueryResult(List<T> resources, int totalResults, int startIndex) {
+        this.resources = resources;
+        this.totalResults = totalResults;
+        this.startIndex = startIndex;
+        itemsPerPage = resources.size();
+        schemas = "urn:scim:schemas:core:1.0";
+    }
+
     public int getTotalResults() {
         return totalResults;
     }
@@ -37,6 +48,9 @@ public class QueryResult<T extends CoreResource> {
     }
 
     public List<T> getResources() {
+        if (resources == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            return Collections.emptyList();
+        }
         return Collections.unmodifiableList(resources);
     }
 }
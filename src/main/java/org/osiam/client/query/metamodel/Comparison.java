@@ -3,15 +3,150 @@ package org.osiam.client.query.metamodel;
  * for licensing see the file license.txt.
  */
 
+import java.util.Date;
+
 /**
- * a comparision beetwen a Attribute and a value
+ * a comparision beetwen a Attribute and a value. A Comparison is immutable; the value is either given directly or
+ * bound later to a named {@link Parameter}.
  */
-public class Comparison {
+public final class Comparison {
+
+    private final String attribute;
+    private final String operator;
+    private final String value;
+    private final Parameter parameter;
+    private final boolean dated;
+    private final long epochMillis;
+    private final String filter;
+
+    Comparison(String attribute, String operator, String value) {
+        this(attribute, operator, value, null);
+    }
+
+    Comparison(String attribute, String operator, Parameter parameter) {
+        this(attribute, operator, null, parameter);
+    }
+
+    /**
+     * A comparison with a date, which is written straight into the filter, see {@link DateAttribute#appendTo}.
+     */
+    Comparison(String attribute, String operator, long epochMillis) {
+        this.attribute = attribute;
+        this.operator = operator;
+        this.value = null;
+        this.parameter = null;
+        this.dated = true;
+        this.epochMillis = epochMillis;
+        StringBuilder builder = startFilter().append('"');
+        DateAttribute.appendTo(builder, epochMillis);
+        this.filter = builder.append('"').toString();
+    }
 
-    private String filter;
+    private Comparison(String attribute, String operator, String value, Parameter parameter) {
+        this.attribute = attribute;
+        this.operator = operator;
+        this.value = value;
+        this.parameter = parameter;
+        this.dated = false;
+        this.epochMillis = 0;
+        this.filter = render();
+    }
+
+    /**
+     * @return the name of the compared attribute, like name.givenName
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * @return the comparison operator, like eq
+     */
+    public String getOperator() {
+        return operator;
+    }
+
+    /**
+     * @return the compared value, null for a pr comparison or an unbound parameter
+     */
+    public String getValue() {
+        if (dated) { // NOSONAR - false-positive from clover; if-expression is correct
+            return DateAttribute.format(epochMillis);
+        }
+        return value;
+    }
+
+    /**
+     * @return true if the value is a date, see {@link #getEpochMillis()}
+     */
+    public boolean isDated() {
+        return dated;
+    }
+
+    /**
+     * @return the compared date as milliseconds since the epoch, 0 if the value is not a date
+     */
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    /**
+     * @return the parameter the value is bound to later, null if the value was given directly
+     */
+    public Parameter getParameter() {
+        return parameter;
+    }
+
+    /**
+     * Bind the parameter of this comparison to the given value.
+     *
+     * @param value the value of the parameter
+     * @return a comparison with the given value
+     */
+    public Comparison bind(String value) {
+        if (value == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given value can't be null.");
+        }
+        return new Comparison(attribute, operator, value, null);
+    }
+
+    /**
+     * Bind the parameter of this comparison to the given date.
+     *
+     * @param value the value of the parameter
+     * @return a comparison with the given date
+     */
+    public Comparison bind(Date value) {
+        if (value == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given value can't be null.");
+        }
+        return new Comparison(attribute, operator, value.getTime());
+    }
+
+    private String render() {
+        StringBuilder builder = startFilter();
+        if (parameter != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            builder.append(parameter);
+        } else if (value != null) {
+            builder.append('"');
+            appendEscaped(builder, value);
+            builder.append('"');
+        }
+        return builder.toString();
+    }
+
+    private StringBuilder startFilter() {
+        return new StringBuilder(attribute).append(' ').append(operator).append(' ');
+    }
 
-    Comparison(String filter){
-        this.filter = filter;
+    private static void appendEscaped(StringBuilder builder, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') { // NOSONAR - false-positive from clover; if-expression is correct
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
     }
 
     public String toString(){
@@ -3,20 +3,26 @@ package org.osiam.client.query.metamodel;
 * for licensing see the file license.txt.
 */
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
 
 /**
- * single Date Attribute from a Group or a User
+ * single Date Attribute from a Group or a User. Dates are formatted as yyyy-MM-dd'T'HH:mm:ss.SSS in the default time
+ * zone, straight into the filter of the comparison; formatting is thread-safe and reuses one calendar per thread.
  */
 public class DateAttribute extends Attribute{
 
-    private static DateFormat df;
+    private static final int FORMATTED_LENGTH = 23;
+    private static final int YEAR_DIGITS = 4;
+    private static final int MILLISECOND_DIGITS = 3;
 
-    static {
-        df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
-    }
+    private static final ThreadLocal<Calendar> CALENDAR = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return new GregorianCalendar();
+        }
+    };
 
     DateAttribute(String value){
         this.value = value;
@@ -28,7 +34,7 @@ public class DateAttribute extends Attribute{
      * @return an eq comparison
      */
     public Comparison equalTo(Date filter){
-        return new Comparison(value + " eq \"" + df.format(filter) + "\"");
+        return new Comparison(value, "eq", filter.getTime());
     }
 
     /**
@@ -36,7 +42,7 @@ public class DateAttribute extends Attribute{
      * @return an pr comparison
      */
     public Comparison present() {
-        return new Comparison(value + " pr ");
+        return new Comparison(value, "pr", (String) null);
     }
 
     /**
@@ -45,7 +51,7 @@ public class DateAttribute extends Attribute{
      * @return an gt comparison
      */
     public Comparison greaterThan(Date filter) {
-        return new Comparison(value + " gt \"" + df.format(filter) + "\"");
+        return new Comparison(value, "gt", filter.getTime());
     }
 
     /**
@@ -54,7 +60,7 @@ public class DateAttribute extends Attribute{
      * @return an ge comparison
      */
     public Comparison greaterEquals(Date filter) {
-        return new Comparison(value + " ge \"" + df.format(filter) + "\"");
+        return new Comparison(value, "ge", filter.getTime());
     }
 
     /**
@@ -63,7 +69,7 @@ public class DateAttribute extends Attribute{
      * @return an lt comparison
      */
     public Comparison lessThan(Date filter) {
-        return new Comparison(value + " lt \"" + df.format(filter) + "\"");
+        return new Comparison(value, "lt", filter.getTime());
     }
 
     /**
@@ -72,6 +78,135 @@ public class DateAttribute extends Attribute{
      * @return an le comparison
      */
     public Comparison lessEquals(Date filter) {
-        return new Comparison(value + " le \"" + df.format(filter) + "\"");
+        return new Comparison(value, "le", filter.getTime());
+    }
+
+    /**
+     * return a eq comparison of the Attribute and the given parameter
+     * @param parameter the parameter bound to the wanted date later
+     * @return an eq comparison
+     */
+    public Comparison equalTo(Parameter parameter) {
+        return new Comparison(value, "eq", parameter);
+    }
+
+    /**
+     * return a gt comparison of the Attribute and the given parameter
+     * @param parameter the parameter bound to the wanted date later
+     * @return an gt comparison
+     */
+    public Comparison greaterThan(Parameter parameter) {
+        return new Comparison(value, "gt", parameter);
+    }
+
+    /**
+     * return a ge comparison of the Attribute and the given parameter
+     * @param parameter the parameter bound to the wanted date later
+     * @return an ge comparison
+     */
+    public Comparison greaterEquals(Parameter parameter) {
+        return new Comparison(value, "ge", parameter);
+    }
+
+    /**
+     * return a lt comparison of the Attribute and the given parameter
+     * @param parameter the parameter bound to the wanted date later
+     * @return an lt comparison
+     */
+    public Comparison lessThan(Parameter parameter) {
+        return new Comparison(value, "lt", parameter);
+    }
+
+    /**
+     * return a le comparison of the Attribute and the given parameter
+     * @param parameter the parameter bound to the wanted date later
+     * @return an le comparison
+     */
+    public Comparison lessEquals(Parameter parameter) {
+        return new Comparison(value, "le", parameter);
+    }
+
+    /**
+     * return a eq comparison of the Attribute and the given point in time
+     * @param epochMillis the wanted filter as milliseconds since 1970-01-01T00:00:00Z
+     * @return an eq comparison
+     */
+    public Comparison equalTo(long epochMillis) {
+        return new Comparison(value, "eq", epochMillis);
+    }
+
+    /**
+     * return a gt comparison of the Attribute and the given point in time
+     * @param epochMillis the wanted filter as milliseconds since 1970-01-01T00:00:00Z
+     * @return an gt comparison
+     */
+    public Comparison greaterThan(long epochMillis) {
+        return new Comparison(value, "gt", epochMillis);
+    }
+
+    /**
+     * return a ge comparison of the Attribute and the given point in time
+     * @param epochMillis the wanted filter as milliseconds since 1970-01-01T00:00:00Z
+     * @return an ge comparison
+     */
+    public Comparison greaterEquals(long epochMillis) {
+        return new Comparison(value, "ge", epochMillis);
+    }
+
+    /**
+     * return a lt comparison of the Attribute and the given point in time
+     * @param epochMillis the wanted filter as milliseconds since 1970-01-01T00:00:00Z
+     * @return an lt comparison
+     */
+    public Comparison lessThan(long epochMillis) {
+        return new Comparison(value, "lt", epochMillis);
+    }
+
+    /**
+     * return a le comparison of the Attribute and the given point in time
+     * @param epochMillis the wanted filter as milliseconds since 1970-01-01T00:00:00Z
+     * @return an le comparison
+     */
+    public Comparison lessEquals(long epochMillis) {
+        return new Comparison(value, "le", epochMillis);
+    }
+
+    static String format(long epochMillis) {
+        StringBuilder builder = new StringBuilder(FORMATTED_LENGTH);
+        appendTo(builder, epochMillis);
+        return builder.toString();
+    }
+
+    /**
+     * Append the given point in time as yyyy-MM-dd'T'HH:mm:ss.SSS in the default time zone.
+     *
+     * @param builder     the buffer to write to
+     * @param epochMillis milliseconds since 1970-01-01T00:00:00Z
+     */
+    static void appendTo(StringBuilder builder, long epochMillis) {
+        Calendar calendar = CALENDAR.get();
+        calendar.setTimeInMillis(epochMillis);
+        appendPadded(builder, calendar.get(Calendar.YEAR), YEAR_DIGITS);
+        builder.append('-');
+        appendPadded(builder, calendar.get(Calendar.MONTH) + 1, 2);
+        builder.append('-');
+        appendPadded(builder, calendar.get(Calendar.DAY_OF_MONTH), 2);
+        builder.append('T');
+        appendPadded(builder, calendar.get(Calendar.HOUR_OF_DAY), 2);
+        builder.append(':');
+        appendPadded(builder, calendar.get(Calendar.MINUTE), 2);
+        builder.append(':');
+        appendPadded(builder, calendar.get(Calendar.SECOND), 2);
+        builder.append('.');
+        appendPadded(builder, calendar.get(Calendar.MILLISECOND), MILLISECOND_DIGITS);
+    }
+
+    private static void appendPadded(StringBuilder builder, int number, int digits) {
+        for (int limit = 10, i = 1; i < digits; i++, limit *= 10) { // NOSONAR - decimal places
+            if (number < limit) { // NOSONAR - false-positive from clover; if-expression is correct
+                builder.append('0');
+            }
+        }
+        builder.append(number);
     }
 }
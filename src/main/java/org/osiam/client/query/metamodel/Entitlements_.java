@@ -1,13 +0,0 @@
-package org.osiam.client.query.metamodel;
-/*
- * for licensing see the file license.txt.
- */
-
-
- public abstract class Entitlements_ {
-
-    private Entitlements_(){}
-
-    public static final StringAttribute value = new StringAttribute("entitlements.value");
-    public static final StringAttribute type = new StringAttribute("entitlements.type");
-}
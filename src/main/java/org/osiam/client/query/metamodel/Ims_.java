@@ -1,15 +0,0 @@
-package org.osiam.client.query.metamodel;
-/*
- * for licensing see the file license.txt.
- */
-
-/**
- * all ims atttributes from a User
- */
- public abstract class Ims_ {
-
-    private Ims_(){}
-
-    public static final StringAttribute value = new StringAttribute("ims.value");
-    public static final StringAttribute type = new StringAttribute("ims.type");
-}
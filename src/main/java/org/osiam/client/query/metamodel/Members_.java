@@ -1,14 +0,0 @@
-package org.osiam.client.query.metamodel;
-/*
-* for licensing see the file license.txt.
-*/
-
-/**
- * all Member atttributes from a Group
- */
-public abstract class Members_ {
-
-    private Members_(){}
-
-    public static final StringAttribute value = new StringAttribute("members.value");
-}
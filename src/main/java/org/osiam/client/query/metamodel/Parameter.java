@@ -0,0 +1,57 @@
+package org.osiam.client.query.metamodel;
+/*
+ * for licensing see the file license.txt.
+ */
+
+/**
+ * a named placeholder for the value of a {@link Comparison}. A filter containing parameters is a template that is
+ * validated and serialized once and bound to concrete values for every request.
+ */
+public final class Parameter {
+
+    private final String name;
+
+    private Parameter(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Create a parameter with the given name.
+     *
+     * @param name the name of the parameter
+     * @return the parameter
+     */
+    public static Parameter named(String name) {
+        if (name == null || name.isEmpty()) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given name can't be empty.");
+        }
+        return new Parameter(name);
+    }
+
+    /**
+     * @return the name of the parameter
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) { // NOSONAR - false-positive from clover; if-expression is correct
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) { // NOSONAR - false-positive from clover; if-expression is correct
+            return false;
+        }
+        return name.equals(((Parameter) other).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    public String toString() {
+        return ":" + name;
+    }
+}
@@ -18,7 +18,7 @@ public class StringAttribute extends Attribute{
      * @return an eq comparison
      */
     public Comparison equalTo(String filter){
-        return new Comparison(value + " eq \"" + filter + "\"");
+        return new Comparison(value, "eq", filter);
     }
 
     /**
@@ -27,7 +27,7 @@ public class StringAttribute extends Attribute{
      * @return an co comparison
      */
     public Comparison contains(String filter){
-        return new Comparison(value + " co \"" + filter + "\"");
+        return new Comparison(value, "co", filter);
     }
 
     /**
@@ -36,7 +36,34 @@ public class StringAttribute extends Attribute{
      * @return an sw comparison
      */
     public Comparison startsWith(String filter) {
-        return new Comparison(value + " sw \"" + filter + "\"");
+        return new Comparison(value, "sw", filter);
+    }
+
+    /**
+     * return a eq comparison of the Attribute and the given parameter
+     * @param parameter the parameter bound to the wanted filter later
+     * @return an eq comparison
+     */
+    public Comparison equalTo(Parameter parameter){
+        return new Comparison(value, "eq", parameter);
+    }
+
+    /**
+     * return a co comparison of the Attribute and the given parameter
+     * @param parameter the parameter bound to the wanted filter later
+     * @return an co comparison
+     */
+    public Comparison contains(Parameter parameter){
+        return new Comparison(value, "co", parameter);
+    }
+
+    /**
+     * return a sw comparison of the Attribute and the given parameter
+     * @param parameter the parameter bound to the wanted filter later
+     * @return an sw comparison
+     */
+    public Comparison startsWith(Parameter parameter) {
+        return new Comparison(value, "sw", parameter);
     }
 
     /**
@@ -44,6 +71,6 @@ public class StringAttribute extends Attribute{
      * @return an pr comparison
      */
     public Comparison present() {
-        return new Comparison(value + " pr ");
+        return new Comparison(value, "pr", (String) null);
     }
 }
@@ -1,15 +0,0 @@
-package org.osiam.client.query.metamodel;
-/*
- * for licensing see the file license.txt.
- */
-
-/**
- * all group atttributes from a User
- */
- public abstract class UserGroups_ {
-
-    private UserGroups_(){}
-
-    public static final StringAttribute value = new StringAttribute("groups.value");
-    public static final StringAttribute type = new StringAttribute("groups.type");
-}
@@ -0,0 +1,17 @@
+/**
+ * The metamodel of the SCIM resources, used to build type-safe queries, see {@link org.osiam.client.query.Query}. The
+ * classes User_, Group_ and those of their complex attributes are generated from the SCIM resource classes by the
+ * {@link org.osiam.client.query.metamodel.processor.MetamodelProcessor} during the build.
+ */
+@Metamodel(value = { User.class, Group.class },
+        classNames = "User.groups=UserGroups_",
+        aliases = { "User.phoneNumber=phoneNumbers", "User.toles=roles" },
+        excludes = { "User.password", "operation" })
+package org.osiam.client.query.metamodel;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import org.osiam.client.query.metamodel.processor.Metamodel;
+import org.osiam.resources.scim.Group;
+import org.osiam.resources.scim.User;
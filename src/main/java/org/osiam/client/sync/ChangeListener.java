@@ -0,0 +1,21 @@
+package org.osiam.client.sync;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import org.osiam.resources.scim.CoreResource;
+
+/**
+ * A ChangeListener receives the resources a {@link DeltaSync} found to be created or modified since its last cycle.
+ *
+ * @param <T> a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+ */
+public interface ChangeListener<T extends CoreResource> {
+
+    /**
+     * Called once for every created or modified resource, in the order of its meta.lastModified.
+     *
+     * @param resource the current state of the resource
+     */
+    void changed(T resource);
+}
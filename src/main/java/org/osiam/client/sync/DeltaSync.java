@@ -0,0 +1,266 @@
+package org.osiam.client.sync;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.osiam.client.OsiamGroupService;
+import org.osiam.client.OsiamUserService;
+import org.osiam.client.exception.ConnectionInitializationException;
+import org.osiam.client.exception.UnauthorizedException;
+import org.osiam.client.oauth.AccessTokenProvider;
+import org.osiam.client.query.Query;
+import org.osiam.client.query.SortOrder;
+import org.osiam.client.query.metamodel.Meta_;
+import org.osiam.client.query.metamodel.Parameter;
+import org.osiam.resources.scim.CoreResource;
+import org.osiam.resources.scim.Group;
+import org.osiam.resources.scim.User;
+
+/**
+ * A DeltaSync keeps a local copy of the users or groups of OSIAM up to date. It remembers the highest meta.lastModified
+ * it has seen, the high-water mark, and every cycle only requests the resources modified at or after that mark.
+ * <p>
+ * The pages of a cycle are requested by meta.lastModified in ascending order, and every page starts at the mark
+ * reached so far. So a resource modified while a cycle is running can't shift an unseen resource out of the
+ * requested range. Changes are delivered at least once: the mark only moves forward once a cycle has completed, so
+ * after a failed cycle or a restart with {@link Builder#since(Date)} some resources can be delivered again.
+ * <p>
+ * Deleted resources can't be detected by their meta.lastModified and are not reported by {@link #synchronize}. A
+ * {@link #resynchronize} requests all resources and returns their ids, so the caller can drop the ones it no longer
+ * sees.
+ *
+ * @param <T> a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+ */
+public final class DeltaSync<T extends CoreResource> { // NOSONAR - Builder constructs instances of this class
+
+    private static final String MARK = "mark";
+
+    private final Source<T> source;
+    private final AccessTokenProvider accessTokenProvider;
+    private final Class<T> type;
+    private final int countPerPage;
+    private final Query.Filter template;
+
+    private Date highWaterMark;
+    private Set<String> idsAtMark = new HashSet<>();
+
+    private DeltaSync(Builder<T> builder) {
+        source = builder.source;
+        accessTokenProvider = builder.accessTokenProvider;
+        type = builder.type;
+        countPerPage = builder.countPerPage;
+        highWaterMark = builder.since;
+        template = new Query.Filter(type).startsWith(Meta_.lastModified.greaterEquals(Parameter.named(MARK)));
+    }
+
+    /**
+     * Create a builder for a DeltaSync of the users of OSIAM.
+     *
+     * @param userService         the service to search the users with
+     * @param accessTokenProvider provides the access token for every page request
+     * @return the builder
+     */
+    public static Builder<User> users(final OsiamUserService userService, AccessTokenProvider accessTokenProvider) {
+        if (userService == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given userService can't be null.");
+        }
+        return new Builder<>(User.class, new Source<User>() {
+            @Override
+            public List<User> search(Query query, AccessTokenProvider accessTokenProvider) {
+                return userService.searchUsers(query, accessTokenProvider).getResources();
+            }
+        }, accessTokenProvider);
+    }
+
+    /**
+     * Create a builder for a DeltaSync of the groups of OSIAM.
+     *
+     * @param groupService        the service to search the groups with
+     * @param accessTokenProvider provides the access token for every page request
+     * @return the builder
+     */
+    public static Builder<Group> groups(final OsiamGroupService groupService, AccessTokenProvider accessTokenProvider) {
+        if (groupService == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given groupService can't be null.");
+        }
+        return new Builder<>(Group.class, new Source<Group>() {
+            @Override
+            public List<Group> search(Query query, AccessTokenProvider accessTokenProvider) {
+                return groupService.searchGroups(query, accessTokenProvider).getResources();
+            }
+        }, accessTokenProvider);
+    }
+
+    /**
+     * Run one cycle: request every resource modified at or after the high-water mark and hand it to the given
+     * listener. Without a mark, all resources are delivered.
+     *
+     * @param listener receives the created and modified resources
+     * @return the number of delivered resources
+     * @throws UnauthorizedException if a page request could not be authorized.
+     * @throws ConnectionInitializationException
+     *                               if no connection to the given OSIAM services could be initialized
+     */
+    public synchronized int synchronize(ChangeListener<? super T> listener) {
+        if (listener == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given listener can't be null.");
+        }
+        return cycle(highWaterMark, new HashSet<>(idsAtMark), listener, null);
+    }
+
+    /**
+     * Run a full cycle: request all resources, regardless of the high-water mark, and hand them to the given listener.
+     * The high-water mark moves to the newest of them, so the next {@link #synchronize} continues from there.
+     *
+     * @param listener receives all resources
+     * @return the ids of all resources OSIAM returned
+     * @throws UnauthorizedException if a page request could not be authorized.
+     * @throws ConnectionInitializationException
+     *                               if no connection to the given OSIAM services could be initialized
+     */
+    public synchronized Set<String> resynchronize(ChangeListener<? super T> listener) {
+        if (listener == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given listener can't be null.");
+        }
+        Set<String> ids = new HashSet<>();
+        cycle(null, new HashSet<String>(), listener, ids);
+        return ids;
+    }
+
+    private int cycle(Date start, Set<String> seen, ChangeListener<? super T> listener, Set<String> ids) {
+        Date mark = start;
+        int offset = 0;
+        int delivered = 0;
+
+        while (true) {
+            List<T> page = source.search(pageQuery(mark, offset), accessTokenProvider);
+            boolean advanced = false;
+            for (T resource : page) {
+                Date lastModified = lastModifiedOf(resource);
+                if (lastModified != null && lastModified.equals(mark) && seen.contains(resource.getId())) { // NOSONAR - false-positive from clover; if-expression is correct
+                    continue;
+                }
+                listener.changed(resource);
+                delivered++;
+                if (ids != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                    ids.add(resource.getId());
+                }
+                if (lastModified == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                    continue;
+                }
+                if (mark == null || lastModified.after(mark)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    mark = lastModified;
+                    seen.clear();
+                    advanced = true;
+                }
+                if (lastModified.equals(mark)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    seen.add(resource.getId());
+                }
+            }
+            if (page.size() < countPerPage) { // NOSONAR - false-positive from clover; if-expression is correct
+                break;
+            }
+            // a full page without progress holds only resources of the same lastModified, so page through them
+            offset = advanced ? 0 : offset + page.size(); // NOSONAR - false-positive from clover; if-expression is correct
+        }
+
+        if (mark != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            highWaterMark = mark;
+            idsAtMark = seen;
+        }
+        return delivered;
+    }
+
+    /**
+     * @return the highest meta.lastModified delivered so far, or the configured start if nothing was delivered yet,
+     *         may be null
+     */
+    public synchronized Date getHighWaterMark() {
+        return highWaterMark == null ? null : new Date(highWaterMark.getTime()); // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    private Query pageQuery(Date mark, int offset) {
+        Query.Builder builder = new Query.Builder(type)
+                .sortBy(Meta_.lastModified)
+                .sortOrder(SortOrder.ASCENDING)
+                .countPerPage(countPerPage)
+                .startIndex(offset);
+        if (mark != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            builder.filter(template.bind(MARK, mark));
+        }
+        return builder.build();
+    }
+
+    private static Date lastModifiedOf(CoreResource resource) {
+        return resource.getMeta() == null ? null : resource.getMeta().getLastModified(); // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    private interface Source<T extends CoreResource> {
+        List<T> search(Query query, AccessTokenProvider accessTokenProvider);
+    }
+
+    /**
+     * The Builder class is used to construct instances of the {@link DeltaSync}.
+     *
+     * @param <T> a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+     */
+    public static final class Builder<T extends CoreResource> {
+
+        private static final int DEFAULT_COUNT_PER_PAGE = 100;
+
+        private final Class<T> type;
+        private final Source<T> source;
+        private final AccessTokenProvider accessTokenProvider;
+        private int countPerPage = DEFAULT_COUNT_PER_PAGE;
+        private Date since;
+
+        private Builder(Class<T> type, Source<T> source, AccessTokenProvider accessTokenProvider) {
+            if (accessTokenProvider == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The given accessTokenProvider can't be null.");
+            }
+            this.type = type;
+            this.source = source;
+            this.accessTokenProvider = accessTokenProvider;
+        }
+
+        /**
+         * Start at the given high-water mark, as returned by {@link DeltaSync#getHighWaterMark()} of an earlier run.
+         * Without a start the first cycle delivers all resources.
+         *
+         * @param since the meta.lastModified to start at
+         * @return The builder itself
+         */
+        public Builder<T> since(Date since) {
+            this.since = since == null ? null : new Date(since.getTime()); // NOSONAR - false-positive from clover; if-expression is correct
+            return this;
+        }
+
+        /**
+         * Set the number of resources requested per page. Default is 100.
+         *
+         * @param countPerPage the number of resources per page
+         * @return The builder itself
+         */
+        public Builder<T> countPerPage(int countPerPage) {
+            if (countPerPage < 1) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The number of resources per page has to be positive.");
+            }
+            this.countPerPage = countPerPage;
+            return this;
+        }
+
+        /**
+         * Construct the {@link DeltaSync} with the parameters passed to this builder.
+         *
+         * @return DeltaSync configured accordingly.
+         */
+        public DeltaSync<T> build() {
+            return new DeltaSync<>(this);
+        }
+    }
+}
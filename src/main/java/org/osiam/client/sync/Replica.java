@@ -0,0 +1,372 @@
+package org.osiam.client.sync;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.osiam.client.OsiamGroupService;
+import org.osiam.client.OsiamUserService;
+import org.osiam.client.exception.ConnectionInitializationException;
+import org.osiam.client.exception.UnauthorizedException;
+import org.osiam.client.oauth.AccessTokenProvider;
+import org.osiam.client.query.Query;
+import org.osiam.client.query.QueryResult;
+import org.osiam.client.query.metamodel.Group_;
+import org.osiam.client.query.metamodel.StringAttribute;
+import org.osiam.client.query.metamodel.User_;
+import org.osiam.resources.scim.CoreResource;
+import org.osiam.resources.scim.Group;
+import org.osiam.resources.scim.MultiValuedAttribute;
+import org.osiam.resources.scim.User;
+
+/**
+ * A Replica holds all users or all groups of OSIAM in memory and answers equality lookups on indexed attributes
+ * locally:
+ * <ul>
+ * <li>users by id, externalId, userName and emails.value</li>
+ * <li>groups by id, externalId, displayName and members.value</li>
+ * </ul>
+ * userName and email values are compared ignoring case, all other attributes exactly.
+ * <p>
+ * The first {@link #refresh()} loads all resources page by page, every later one only the resources modified since
+ * the last refresh, see {@link DeltaSync}. Lookups run concurrently with a refresh and see every resource either
+ * in its old or its new state.
+ * <p>
+ * Deleted resources are not detected by a refresh, so the replica only follows creations and modifications.
+ * {@link #reconcile()} loads all resources again and drops those OSIAM no longer returns; with
+ * {@link #reconcileEvery} a refresh does so on its own once the given interval has passed since the last full load.
+ * Single deletions the application knows of can be removed right away with {@link #evict}.
+ *
+ * @param <T> a org.osiam.resources.scim.User or a org.osiam.resources.scim.Group
+ */
+public final class Replica<T extends CoreResource> {
+
+    private final DeltaSync<T> deltaSync;
+    private final Map<String, Index<T>> indexes;
+    private final Map<String, T> resources = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long reconcileIntervalNanos;
+    private boolean loaded;
+    private long lastReconciled;
+    private final ChangeListener<T> updater = new ChangeListener<T>() {
+        @Override
+        public void changed(T resource) {
+            put(resource);
+        }
+    };
+
+    private Replica(DeltaSync<T> deltaSync, Map<String, Index<T>> indexes) {
+        this.deltaSync = deltaSync;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Create a replica of the users of OSIAM. It is empty until the first {@link #refresh()}.
+     *
+     * @param userService         the service to load the users with
+     * @param accessTokenProvider provides the access token for every page request
+     * @return the replica
+     */
+    public static Replica<User> users(OsiamUserService userService, AccessTokenProvider accessTokenProvider) {
+        Map<String, Index<User>> indexes = new HashMap<>();
+        indexes.put(User_.externalId.toString(), new Index<>(Replica.<User>externalIdExtractor(), false));
+        indexes.put(User_.userName.toString(), new Index<>(new KeyExtractor<User>() {
+            @Override
+            public Collection<String> keysOf(User user) {
+                return keys(user.getUserName());
+            }
+        }, true));
+        indexes.put(User_.emails.value.toString(), new Index<>(new KeyExtractor<User>() {
+            @Override
+            public Collection<String> keysOf(User user) {
+                return valuesOf(user.getEmails());
+            }
+        }, true));
+        return new Replica<>(DeltaSync.users(userService, accessTokenProvider).build(), indexes);
+    }
+
+    /**
+     * Create a replica of the groups of OSIAM. It is empty until the first {@link #refresh()}.
+     *
+     * @param groupService        the service to load the groups with
+     * @param accessTokenProvider provides the access token for every page request
+     * @return the replica
+     */
+    public static Replica<Group> groups(OsiamGroupService groupService, AccessTokenProvider accessTokenProvider) {
+        Map<String, Index<Group>> indexes = new HashMap<>();
+        indexes.put(Group_.externalId.toString(), new Index<>(Replica.<Group>externalIdExtractor(), false));
+        indexes.put(Group_.displayName.toString(), new Index<>(new KeyExtractor<Group>() {
+            @Override
+            public Collection<String> keysOf(Group group) {
+                return keys(group.getDisplayName());
+            }
+        }, false));
+        indexes.put(Group_.members.value.toString(), new Index<>(new KeyExtractor<Group>() {
+            @Override
+            public Collection<String> keysOf(Group group) {
+                return valuesOf(group.getMembers());
+            }
+        }, false));
+        return new Replica<>(DeltaSync.groups(groupService, accessTokenProvider).build(), indexes);
+    }
+
+    /**
+     * Reconcile the replica with OSIAM during a {@link #refresh()} once the given interval has passed since the last
+     * full load. Without an interval a refresh never drops deleted resources.
+     *
+     * @param interval the time between two reconciliations
+     * @param unit     the unit of the interval
+     * @return the replica itself
+     */
+    public Replica<T> reconcileEvery(long interval, TimeUnit unit) {
+        if (interval <= 0) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The interval has to be positive.");
+        }
+        reconcileIntervalNanos = unit.toNanos(interval);
+        return this;
+    }
+
+    /**
+     * Load the resources created or modified since the last refresh into the replica, all resources on the first
+     * call. Once the interval of {@link #reconcileEvery} has passed, the refresh is a {@link #reconcile()}.
+     *
+     * @return the number of loaded resources
+     * @throws UnauthorizedException if a page request could not be authorized.
+     * @throws ConnectionInitializationException
+     *                               if no connection to the given OSIAM services could be initialized
+     */
+    public synchronized int refresh() {
+        long interval = reconcileIntervalNanos;
+        if (!loaded || interval > 0 && System.nanoTime() - lastReconciled >= interval) { // NOSONAR - false-positive from clover; if-expression is correct
+            return reconcileAll();
+        }
+        return deltaSync.synchronize(updater);
+    }
+
+    /**
+     * Load all resources of OSIAM into the replica and drop those OSIAM no longer returns, like deleted users.
+     *
+     * @return the number of loaded resources
+     * @throws UnauthorizedException if a page request could not be authorized.
+     * @throws ConnectionInitializationException
+     *                               if no connection to the given OSIAM services could be initialized
+     */
+    public synchronized int reconcile() {
+        return reconcileAll();
+    }
+
+    private int reconcileAll() {
+        long started = System.nanoTime();
+        Set<String> ids = deltaSync.resynchronize(updater);
+        lock.writeLock().lock();
+        try {
+            for (String id : new ArrayList<>(resources.keySet())) {
+                if (!ids.contains(id)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    unindex(resources.remove(id));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loaded = true;
+        lastReconciled = started;
+        return ids.size();
+    }
+
+    /**
+     * @param id the id of the wanted resource
+     * @return the resource with the given id, or null if the replica doesn't hold it
+     */
+    public T getById(String id) {
+        lock.readLock().lock();
+        try {
+            return resources.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find all resources whose given attribute equals the given value, like
+     * {@code replica.findEqual(User_.userName, "bjensen")}.
+     *
+     * @param attribute an indexed attribute
+     * @param value     the wanted value
+     * @return the matching resources, empty if none matches
+     * @throws IllegalArgumentException if the attribute is not indexed by this replica
+     */
+    public List<T> findEqual(StringAttribute attribute, String value) {
+        String name = attribute.toString();
+        if ("id".equals(name)) { // NOSONAR - false-positive from clover; if-expression is correct
+            T resource = getById(value);
+            return resource == null ? Collections.<T>emptyList() : Collections.singletonList(resource); // NOSONAR - false-positive from clover; if-expression is correct
+        }
+        Index<T> index = indexes.get(name);
+        if (index == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The replica has no index for the attribute " + name + ".");
+        }
+        lock.readLock().lock();
+        try {
+            Set<String> ids = index.ids.get(index.normalize(value));
+            if (ids == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                return Collections.emptyList();
+            }
+            List<T> result = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                result.add(resources.get(id));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Run the given query against the replica instead of OSIAM, see {@link Query#evaluate}. Unlike
+     * {@link #findEqual}, this scans all resources of the replica.
+     *
+     * @param query a query built by a {@link Query.Builder}
+     * @return the requested page of the matching resources
+     */
+    public QueryResult<T> search(Query query) {
+        List<T> snapshot;
+        lock.readLock().lock();
+        try {
+            snapshot = new ArrayList<>(resources.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return query.evaluate(snapshot);
+    }
+
+    /**
+     * Remove the resource with the given id, for example after it has been deleted in OSIAM.
+     *
+     * @param id the id of the resource
+     */
+    public void evict(String id) {
+        lock.writeLock().lock();
+        try {
+            T removed = resources.remove(id);
+            if (removed != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                unindex(removed);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of resources in the replica
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return resources.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(T resource) {
+        lock.writeLock().lock();
+        try {
+            T previous = resources.put(resource.getId(), resource);
+            if (previous != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                unindex(previous);
+            }
+            for (Index<T> index : indexes.values()) {
+                index.add(resource);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(T resource) {
+        for (Index<T> index : indexes.values()) {
+            index.remove(resource);
+        }
+    }
+
+    private static <T extends CoreResource> KeyExtractor<T> externalIdExtractor() {
+        return new KeyExtractor<T>() {
+            @Override
+            public Collection<String> keysOf(T resource) {
+                return keys(resource.getExternalId());
+            }
+        };
+    }
+
+    private static Collection<String> keys(String key) {
+        return key == null ? Collections.<String>emptySet() : Collections.singleton(key); // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    private static Collection<String> valuesOf(Collection<MultiValuedAttribute> attributes) {
+        if (attributes == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            return Collections.emptySet();
+        }
+        Set<String> values = new HashSet<>();
+        for (MultiValuedAttribute attribute : attributes) {
+            if (attribute.getValue() != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                values.add(attribute.getValue().toString());
+            }
+        }
+        return values;
+    }
+
+    private interface KeyExtractor<T extends CoreResource> {
+        Collection<String> keysOf(T resource);
+    }
+
+    private static final class Index<T extends CoreResource> {
+
+        private final KeyExtractor<T> extractor;
+        private final boolean ignoreCase;
+        private final Map<String, Set<String>> ids = new HashMap<>();
+
+        private Index(KeyExtractor<T> extractor, boolean ignoreCase) {
+            this.extractor = extractor;
+            this.ignoreCase = ignoreCase;
+        }
+
+        private String normalize(String key) {
+            return ignoreCase && key != null ? key.toLowerCase(Locale.ENGLISH) : key; // NOSONAR - false-positive from clover; if-expression is correct
+        }
+
+        private void add(T resource) {
+            for (String key : extractor.keysOf(resource)) {
+                String normalized = normalize(key);
+                Set<String> resourceIds = ids.get(normalized);
+                if (resourceIds == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                    resourceIds = new LinkedHashSet<>();
+                    ids.put(normalized, resourceIds);
+                }
+                resourceIds.add(resource.getId());
+            }
+        }
+
+        private void remove(T resource) {
+            for (String key : extractor.keysOf(resource)) {
+                String normalized = normalize(key);
+                Set<String> resourceIds = ids.get(normalized);
+                if (resourceIds != null && resourceIds.remove(resource.getId()) && resourceIds.isEmpty()) { // NOSONAR - false-positive from clover; if-expression is correct
+                    ids.remove(normalized);
+                }
+            }
+        }
+    }
+}
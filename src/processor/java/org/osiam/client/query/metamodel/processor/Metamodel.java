@@ -0,0 +1,41 @@
+package org.osiam.client.query.metamodel.processor;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates the metamodel of the given SCIM resource classes into the annotated package during the build, see
+ * {@link MetamodelProcessor}. Attributes are named by their path relative to the resource, like User.groups or
+ * User.name.givenName.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.PACKAGE)
+public @interface Metamodel {
+
+    /**
+     * @return the resource classes to generate a metamodel class for, like User
+     */
+    Class<?>[] value();
+
+    /**
+     * @return the class names of complex attributes which differ from the capitalized attribute name, as
+     *         attribute=class, like User.groups=UserGroups_
+     */
+    String[] classNames() default {};
+
+    /**
+     * @return deprecated aliases of attributes, as attribute=target, like User.toles=roles
+     */
+    String[] aliases() default {};
+
+    /**
+     * @return the attributes which are left out of the metamodel, like User.password, or a plain attribute name, like
+     *         operation, to leave it out of all classes
+     */
+    String[] excludes() default {};
+}
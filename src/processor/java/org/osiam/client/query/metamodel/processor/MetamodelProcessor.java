@@ -0,0 +1,430 @@
+package org.osiam.client.query.metamodel.processor;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypesException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * The MetamodelProcessor generates the metamodel classes, like User_ and Emails_, for the resource classes listed in
+ * the {@link Metamodel} annotation of a package. The resource classes are read with their super classes, so the
+ * metamodel follows the version of the SCIM schema the build uses:
+ * <ul>
+ * <li>a {@link java.util.Date} becomes a DateAttribute, any other simple field a StringAttribute</li>
+ * <li>a field whose type is a class of the resource's package, or a collection of such, becomes a complex attribute
+ * with a class of its own, like Name_ or Emails_; classes shared by several resources, like Meta_, are generated
+ * once</li>
+ * <li>static fields, fields annotated with JsonIgnore and collections of other types are left out</li>
+ * </ul>
+ * Next to the metamodel it generates the AttributeTable, which lists the lower case names of the attributes a query
+ * can use for each resource class and each class of a complex attribute, so they are not looked up by reflection at
+ * runtime. The processor is only needed during the build and is not part of the client jar.
+ */
+@SupportedAnnotationTypes("org.osiam.client.query.metamodel.processor.Metamodel")
+public final class MetamodelProcessor extends AbstractProcessor {
+
+    private static final String JSON_IGNORE = "org.codehaus.jackson.annotate.JsonIgnore";
+    private static final String ATTRIBUTE_TABLE = "AttributeTable";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Metamodel.class)) {
+            try {
+                new Generation((PackageElement) element).run();
+            } catch (IOException | IllegalStateException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Unable to generate the metamodel: " + e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generates the metamodel of one annotated package.
+     */
+    private final class Generation {
+
+        private final PackageElement metamodelPackage;
+        private final Metamodel metamodel;
+        private final Map<String, String> classNames;
+        private final Map<String, String> aliases;
+        private final Set<String> excludes;
+        private final Map<String, MetamodelClass> complexClasses = new LinkedHashMap<>();
+        private final Map<String, Set<String>> attributeTable = new TreeMap<>();
+
+        private Generation(PackageElement metamodelPackage) {
+            this.metamodelPackage = metamodelPackage;
+            metamodel = metamodelPackage.getAnnotation(Metamodel.class);
+            classNames = pairsOf(metamodel.classNames());
+            aliases = pairsOf(metamodel.aliases());
+            excludes = new HashSet<>(Arrays.asList(metamodel.excludes()));
+        }
+
+        private void run() throws IOException {
+            for (TypeMirror resource : resourcesOf(metamodel)) {
+                TypeElement resourceType = (TypeElement) processingEnv.getTypeUtils().asElement(resource);
+                String resourceName = resourceType.getSimpleName().toString();
+                MetamodelClass resourceClass = new MetamodelClass(resourceName + "_", "", resourceName);
+                Set<String> paths = tableOf(resourceType);
+                addAttributes(resourceClass, resourceType, resourceName, packageOf(resourceType), paths);
+                addAliases(resourceClass, resourceName);
+                write(resourceClass, true);
+            }
+            for (MetamodelClass complexClass : complexClasses.values()) {
+                write(complexClass, false);
+            }
+            writeAttributeTable();
+        }
+
+        /**
+         * @return the attributes of the given class in the AttributeTable, starting with its private fields and those
+         *         of its super classes
+         */
+        private Set<String> tableOf(TypeElement type) {
+            String className = type.getQualifiedName().toString();
+            Set<String> attributes = attributeTable.get(className);
+            if (attributes == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                attributes = new TreeSet<>();
+                for (VariableElement field : allFieldsOf(type)) {
+                    if (field.getModifiers().contains(Modifier.PRIVATE)) { // NOSONAR - false-positive from clover; if-expression is correct
+                        attributes.add(lowerCase(field.getSimpleName().toString()));
+                    }
+                }
+                attributeTable.put(className, attributes);
+            }
+            return attributes;
+        }
+
+        private void addAttributes(MetamodelClass metamodelClass, TypeElement type, String resourceName,
+                                   String resourcePackage, Set<String> paths) {
+            for (VariableElement field : fieldsOf(type)) {
+                String name = field.getSimpleName().toString();
+                String path = metamodelClass.prefix + name;
+                String key = resourceName + "." + path;
+                if (excludes.contains(key) || excludes.contains(name)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    continue;
+                }
+                TypeMirror fieldType = field.asType();
+                TypeElement complexType = complexTypeOf(fieldType, resourcePackage);
+                if (complexType != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                    String className = classNames.containsKey(key) ? classNames.get(key) : capitalize(name) + "_"; // NOSONAR - false-positive from clover; if-expression is correct
+                    MetamodelClass complexClass = new MetamodelClass(className, path + ".", resourceName);
+                    tableOf(complexType);
+                    addAttributes(complexClass, complexType, resourceName, resourcePackage, paths);
+                    register(complexClass);
+                    metamodelClass.add(className, name, "new " + className + "()");
+                } else if (isDate(fieldType)) {
+                    metamodelClass.add("DateAttribute", name, "new DateAttribute(\"" + path + "\")");
+                    paths.add(lowerCase(path));
+                } else if (!isCollection(fieldType)) {
+                    metamodelClass.add("StringAttribute", name, "new StringAttribute(\"" + path + "\")");
+                    paths.add(lowerCase(path));
+                }
+            }
+        }
+
+        private void register(MetamodelClass complexClass) {
+            MetamodelClass known = complexClasses.get(complexClass.name);
+            if (known == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                complexClasses.put(complexClass.name, complexClass);
+                return;
+            }
+            if (!known.attributes.equals(complexClass.attributes)) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalStateException("The attributes of " + complexClass.name + " differ between "
+                        + known.owners + " and " + complexClass.owners + ", please configure different class names.");
+            }
+            known.owners.addAll(complexClass.owners);
+        }
+
+        private void addAliases(MetamodelClass resourceClass, String resourceName) {
+            for (Map.Entry<String, String> alias : aliases.entrySet()) {
+                if (!alias.getKey().startsWith(resourceName + ".")) { // NOSONAR - false-positive from clover; if-expression is correct
+                    continue;
+                }
+                String name = alias.getKey().substring(resourceName.length() + 1);
+                String target = alias.getValue();
+                int index = resourceClass.indexOf(target);
+                if (index < 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                    throw new IllegalStateException("The alias " + alias.getKey() + " points to the unknown attribute " + target + ".");
+                }
+                resourceClass.attributes.add(index + 1, new MetamodelAttribute(
+                        resourceClass.attributes.get(index).type, name, target, true));
+            }
+        }
+
+        private void write(MetamodelClass metamodelClass, boolean resource) throws IOException {
+            String packageName = metamodelPackage.getQualifiedName().toString();
+            try (Writer writer = processingEnv.getFiler()
+                    .createSourceFile(packageName + "." + metamodelClass.name, metamodelPackage).openWriter()) {
+                writer.write("package " + packageName + ";\n");
+                writer.write("/*\n * for licensing see the file license.txt.\n */\n\n");
+                writer.write("/**\n * " + metamodelClass.describe() + ", generated by the MetamodelProcessor.\n */\n");
+                if (resource) { // NOSONAR - false-positive from clover; if-expression is correct
+                    writer.write("public abstract class " + metamodelClass.name + " {\n\n");
+                    writer.write("    private " + metamodelClass.name + "() {\n    }\n\n");
+                } else {
+                    writer.write("public final class " + metamodelClass.name + " {\n\n");
+                    writer.write("    " + metamodelClass.name + "() {\n    }\n\n");
+                }
+                for (MetamodelAttribute attribute : metamodelClass.attributes) {
+                    if (attribute.deprecated) { // NOSONAR - false-positive from clover; if-expression is correct
+                        writer.write("    /**\n     * @deprecated use {@link #" + attribute.initializer + "}\n     */\n");
+                        writer.write("    @Deprecated\n");
+                    }
+                    writer.write("    public static final " + attribute.type + " " + attribute.name + " = "
+                            + attribute.initializer + ";\n");
+                }
+                writer.write("}\n");
+            }
+        }
+
+        private void writeAttributeTable() throws IOException {
+            String packageName = metamodelPackage.getQualifiedName().toString();
+            try (Writer writer = processingEnv.getFiler()
+                    .createSourceFile(packageName + "." + ATTRIBUTE_TABLE, metamodelPackage).openWriter()) {
+                writer.write("package " + packageName + ";\n");
+                writer.write("/*\n * for licensing see the file license.txt.\n */\n\n");
+                writer.write("import java.util.Arrays;\nimport java.util.Collections;\nimport java.util.HashMap;\n"
+                        + "import java.util.HashSet;\nimport java.util.Map;\nimport java.util.Set;\n\n");
+                writer.write("/**\n * The lower case names of the attributes a query can use, by resource class and class of a"
+                        + " complex attribute,\n * generated by the MetamodelProcessor.\n */\n");
+                writer.write("public final class " + ATTRIBUTE_TABLE + " {\n\n");
+                writer.write("    private static final Map<Class<?>, Set<String>> ATTRIBUTES = new HashMap<>();\n\n");
+                writer.write("    static {\n");
+                for (Map.Entry<String, Set<String>> entry : attributeTable.entrySet()) {
+                    writer.write("        ATTRIBUTES.put(" + entry.getKey() + ".class, attributes(");
+                    String separator = "";
+                    for (String attribute : entry.getValue()) {
+                        writer.write(separator + "\n                \"" + attribute + "\"");
+                        separator = ",";
+                    }
+                    writer.write("));\n");
+                }
+                writer.write("    }\n\n");
+                writer.write("    private " + ATTRIBUTE_TABLE + "() {\n    }\n\n");
+                writer.write("    /**\n     * @param clazz a resource class or the class of a complex attribute, like User or Name\n"
+                        + "     * @return the attributes of the given class, null if the metamodel doesn't know the class\n"
+                        + "     */\n");
+                writer.write("    public static Set<String> of(Class<?> clazz) {\n        return ATTRIBUTES.get(clazz);\n    }\n\n");
+                writer.write("    private static Set<String> attributes(String... names) {\n"
+                        + "        return Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(names)));\n    }\n");
+                writer.write("}\n");
+            }
+        }
+    }
+
+    private List<? extends TypeMirror> resourcesOf(Metamodel metamodel) {
+        try {
+            metamodel.value();
+        } catch (MirroredTypesException e) {
+            return e.getTypeMirrors();
+        }
+        throw new IllegalStateException("The resource classes of the metamodel can't be read.");
+    }
+
+    /**
+     * The fields of the given class and its super classes that are part of the metamodel, those of the super classes
+     * first.
+     */
+    private List<VariableElement> fieldsOf(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        for (VariableElement field : allFieldsOf(type)) {
+            if (!isJsonIgnored(field)) { // NOSONAR - false-positive from clover; if-expression is correct
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * All non-static fields of the given class and its super classes, those of the super classes first.
+     */
+    private List<VariableElement> allFieldsOf(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() == TypeKind.DECLARED) { // NOSONAR - false-positive from clover; if-expression is correct
+            fields.addAll(allFieldsOf((TypeElement) processingEnv.getTypeUtils().asElement(superclass)));
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (!field.getModifiers().contains(Modifier.STATIC)) { // NOSONAR - false-positive from clover; if-expression is correct
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private boolean isJsonIgnored(Element field) {
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(JSON_IGNORE)) { // NOSONAR - false-positive from clover; if-expression is correct
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the class of the complex attribute of the given type, or null if the type is no class of the resource
+     *         package nor a collection of one
+     */
+    private TypeElement complexTypeOf(TypeMirror type, String resourcePackage) {
+        TypeMirror candidate = type;
+        if (isCollection(type)) { // NOSONAR - false-positive from clover; if-expression is correct
+            List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+            if (arguments.size() != 1) { // NOSONAR - false-positive from clover; if-expression is correct
+                return null;
+            }
+            candidate = arguments.get(0);
+        }
+        if (candidate.getKind() != TypeKind.DECLARED) { // NOSONAR - false-positive from clover; if-expression is correct
+            return null;
+        }
+        TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(candidate);
+        return packageOf(element).equals(resourcePackage) ? element : null; // NOSONAR - false-positive from clover; if-expression is correct
+    }
+
+    private boolean isCollection(TypeMirror type) {
+        TypeMirror collection = processingEnv.getElementUtils().getTypeElement("java.util.Collection").asType();
+        return type.getKind() == TypeKind.DECLARED && processingEnv.getTypeUtils().isAssignable(
+                processingEnv.getTypeUtils().erasure(type), processingEnv.getTypeUtils().erasure(collection));
+    }
+
+    private boolean isDate(TypeMirror type) {
+        TypeMirror date = processingEnv.getElementUtils().getTypeElement("java.util.Date").asType();
+        return processingEnv.getTypeUtils().isSameType(type, date);
+    }
+
+    private String packageOf(TypeElement type) {
+        return processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    }
+
+    private static Map<String, String> pairsOf(String[] entries) {
+        Map<String, String> pairs = new HashMap<>();
+        for (String entry : entries) {
+            int separator = entry.indexOf('=');
+            if (separator < 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalStateException("The entry " + entry + " has to be written as key=value.");
+            }
+            pairs.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+        }
+        return pairs;
+    }
+
+    private static String lowerCase(String name) {
+        return name.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * A metamodel class to generate, with the resources it belongs to.
+     */
+    private static final class MetamodelClass {
+
+        private final String name;
+        private final String prefix;
+        private final Set<String> owners = new HashSet<>();
+        private final List<MetamodelAttribute> attributes = new ArrayList<>();
+
+        private MetamodelClass(String name, String prefix, String owner) {
+            this.name = name;
+            this.prefix = prefix;
+            owners.add(owner);
+        }
+
+        private void add(String type, String attributeName, String initializer) {
+            attributes.add(new MetamodelAttribute(type, attributeName, initializer, false));
+        }
+
+        private int indexOf(String attributeName) {
+            for (int i = 0; i < attributes.size(); i++) {
+                if (attributes.get(i).name.equals(attributeName)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private String describe() {
+            List<String> sorted = new ArrayList<>(owners);
+            java.util.Collections.sort(sorted);
+            StringBuilder description = new StringBuilder("all ");
+            if (!prefix.isEmpty()) { // NOSONAR - false-positive from clover; if-expression is correct
+                description.append(prefix.substring(0, prefix.length() - 1)).append(' ');
+            }
+            description.append("attributes of a ");
+            for (int i = 0; i < sorted.size(); i++) {
+                description.append(i == 0 ? "" : " or a ").append(sorted.get(i)); // NOSONAR - false-positive from clover; if-expression is correct
+            }
+            return description.toString();
+        }
+    }
+
+    /**
+     * A single attribute of a metamodel class.
+     */
+    private static final class MetamodelAttribute {
+
+        private final String type;
+        private final String name;
+        private final String initializer;
+        private final boolean deprecated;
+
+        private MetamodelAttribute(String type, String name, String initializer, boolean deprecated) {
+            this.type = type;
+            this.name = name;
+            this.initializer = initializer;
+            this.deprecated = deprecated;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof MetamodelAttribute)) { // NOSONAR - false-positive from clover; if-expression is correct
+                return false;
+            }
+            MetamodelAttribute attribute = (MetamodelAttribute) other;
+            return type.equals(attribute.type) && name.equals(attribute.name)
+                    && initializer.equals(attribute.initializer) && deprecated == attribute.deprecated;
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+    }
+}
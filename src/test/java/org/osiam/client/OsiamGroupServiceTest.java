@@ -4,34 +4,50 @@ package org.osiam.client;
  */
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.findAll;
+import static com.github.tomakehurst.wiremock.client.WireMock.patch;
+import static com.github.tomakehurst.wiremock.client.WireMock.patchRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.apache.http.HttpStatus.SC_CONFLICT;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
 import static org.apache.http.HttpStatus.SC_OK;
 import static org.apache.http.HttpStatus.SC_UNAUTHORIZED;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.io.Charsets;
 import org.apache.http.entity.ContentType;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.osiam.client.exception.NoResultException;
 import org.osiam.client.exception.UnauthorizedException;
 import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.AccessTokenProvider;
+import org.osiam.client.query.Query;
 import org.osiam.client.query.QueryResult;
 import org.osiam.resources.scim.Group;
 import org.osiam.resources.scim.MultiValuedAttribute;
@@ -52,6 +68,7 @@ public class OsiamGroupServiceTest {
     private static final String endpoint = "http://localhost:9090/osiam-server/";
 
     final static private int NUMBER_OF_EXPECTED_GROUPS = 7;
+    final static private int SLOW_PAGE_MILLIS = 500;
     final static private String SIMPLE_QUERY_STRING = "filter=displayName+eq+test_group01";
 
     private UUID SEARCHED_UUID;
@@ -61,6 +78,7 @@ public class OsiamGroupServiceTest {
 
     private Group singleGroupResult;
     private QueryResult<Group> queryResult;
+    private List<Group> iteratedGroups;
 
     OsiamGroupService service;
 
@@ -99,6 +117,60 @@ public class OsiamGroupServiceTest {
         thenReturnedListOfAllGroupsIsAsExpected();
     }
 
+    @Test
+    public void list_of_groups_is_returned_asynchronously() throws Exception {
+        givenAllGroupsAreLookedUpSuccessfully();
+        whenAllGroupsAreLookedUpAsynchronously();
+        thenReturnedListOfAllGroupsIsAsExpected();
+    }
+
+    @Test
+    public void all_groups_are_iterated_page_by_page() {
+        givenAllGroupsAreSplitIntoPagesOf(3);
+        whenAllGroupsAreIteratedWithPagesOf(3);
+        thenNumberOfIteratedGroupsIs(NUMBER_OF_EXPECTED_GROUPS);
+        thenNumberOfRequestedPagesIs(3);
+    }
+
+    @Test
+    public void all_groups_are_scanned_in_order_with_parallel_pages() {
+        givenAllGroupsAreSplitIntoPagesOf(2);
+        whenAllGroupsAreScannedWithPagesOf(2, true);
+        thenNumberOfIteratedGroupsIs(NUMBER_OF_EXPECTED_GROUPS);
+        thenIteratedGroupsAreInQueryOrder();
+    }
+
+    @Test
+    public void all_groups_are_scanned_unordered_with_parallel_pages() {
+        givenAllGroupsAreSplitIntoPagesOf(2);
+        whenAllGroupsAreScannedWithPagesOf(2, false);
+        thenNumberOfIteratedGroupsIs(NUMBER_OF_EXPECTED_GROUPS);
+        thenNumberOfRequestedPagesIs(4);
+    }
+
+    @Test
+    public void scan_follows_the_total_of_later_pages() {
+        givenAllGroupsAreSplitIntoPagesOf(2, 3, 0);
+        whenAllGroupsAreScannedWithPagesOf(2, true);
+        thenNumberOfIteratedGroupsIs(NUMBER_OF_EXPECTED_GROUPS);
+        thenIteratedGroupsAreInQueryOrder();
+    }
+
+    @Test
+    public void closing_a_scan_stops_requesting_pages() throws Exception {
+        givenAllGroupsAreSplitIntoPagesOf(2, NUMBER_OF_EXPECTED_GROUPS, SLOW_PAGE_MILLIS);
+        whenTheScanIsClosedAfterTheFirstGroup();
+        Thread.sleep(2 * SLOW_PAGE_MILLIS);
+        thenNumberOfRequestedPagesIs(3);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failing_token_refresh_fails_the_scan() {
+        givenAllGroupsAreSplitIntoPagesOf(2);
+        whenAllGroupsAreScannedWith(accessTokenRefreshableOnlyOnce());
+        fail("Exception expected");
+    }
+
     @Test
     public void search_for_single_group_is_successful() {
         givenASingleGroupCanBeLookedUpByQuery();
@@ -107,6 +179,32 @@ public class OsiamGroupServiceTest {
         thenReturnedListOfSearchedGroupsIsAsExpected();
     }
 
+    @Test
+    public void update_patches_the_changed_attributes_of_group() throws Exception {
+        givenGroupCanBePatchedWithStatus(SC_OK);
+        Group updated = service.updateGroup(SEARCHED_UUID, expectedGroupWithDisplayName("test_group01"),
+                expectedGroupWithDisplayName("renamed_group"), accessToken);
+        assertEquals(GROUP_UUID_STRING, updated.getId());
+        verify(patchRequestedFor(urlEqualTo(URL_BASE + "/" + GROUP_UUID_STRING))
+                .withHeader("Authorization", equalTo("Bearer " + accessToken.getToken()))
+                .withHeader("Content-Type", containing(ContentType.APPLICATION_JSON.getMimeType()))
+                .withRequestBody(equalToJson("{\"schemas\": [\"urn:scim:schemas:core:1.0\"], \"displayName\": \"renamed_group\"}")));
+    }
+
+    @Test(expected = UnauthorizedException.class)
+    public void update_with_invalid_access_token_raises_exception() throws Exception {
+        givenGroupCanBePatchedWithStatus(SC_UNAUTHORIZED);
+        service.updateGroup(SEARCHED_UUID, expectedGroupWithDisplayName("test_group01"),
+                expectedGroupWithDisplayName("renamed_group"), accessToken);
+    }
+
+    @Test(expected = NoResultException.class)
+    public void update_of_unknown_group_raises_exception() throws Exception {
+        givenGroupCanBePatchedWithStatus(SC_NOT_FOUND);
+        service.updateGroup(SEARCHED_UUID, expectedGroupWithDisplayName("test_group01"),
+                expectedGroupWithDisplayName("renamed_group"), accessToken);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void uuid_is_null_by_getting_single_user_raises_exception() throws Exception {
         givenUUIDisEmpty();
@@ -197,6 +295,62 @@ public class OsiamGroupServiceTest {
         queryResult = service.getAllGroups(accessToken);
     }
 
+    private void whenAllGroupsAreLookedUpAsynchronously() throws Exception {
+        queryResult = service.getAllGroupsAsync(accessToken, null).get();
+    }
+
+    private void whenAllGroupsAreIteratedWithPagesOf(int count) {
+        Query query = new Query.Builder(Group.class).countPerPage(count).build();
+        iteratedGroups = new ArrayList<>();
+        for (Group group : service.iterateGroups(query, accessToken)) {
+            iteratedGroups.add(group);
+        }
+    }
+
+    private AccessTokenProvider accessTokenRefreshableOnlyOnce() {
+        final AccessToken validAccessToken = accessToken;
+        return new AccessTokenProvider() {
+            private final AtomicInteger requests = new AtomicInteger();
+
+            @Override
+            public AccessToken getAccessToken() {
+                if (requests.incrementAndGet() > 1) {
+                    throw new IllegalStateException("The access token can't be refreshed.");
+                }
+                return validAccessToken;
+            }
+        };
+    }
+
+    private void whenAllGroupsAreScannedWithPagesOf(int count, boolean ordered) {
+        Query query = new Query.Builder(Group.class).countPerPage(count).build();
+        ScanOptions options = new ScanOptions.Builder().parallelism(2).maxPagesInFlight(3).ordered(ordered).build();
+        iteratedGroups = new ArrayList<>();
+        for (Group group : service.scanGroups(query, accessToken, options)) {
+            iteratedGroups.add(group);
+        }
+    }
+
+    private void whenAllGroupsAreScannedWith(AccessTokenProvider accessTokenProvider) {
+        Query query = new Query.Builder(Group.class).countPerPage(2).build();
+        ScanOptions options = new ScanOptions.Builder().parallelism(2).maxPagesInFlight(3).build();
+        iteratedGroups = new ArrayList<>();
+        for (Group group : service.scanGroups(query, accessTokenProvider, options)) {
+            iteratedGroups.add(group);
+        }
+    }
+
+    private void whenTheScanIsClosedAfterTheFirstGroup() {
+        Query query = new Query.Builder(Group.class).countPerPage(2).build();
+        ScanOptions options = new ScanOptions.Builder().parallelism(2).maxPagesInFlight(3).build();
+        CloseableIterator<Group> closed;
+        try (CloseableIterator<Group> scan = service.scanGroups(query, accessToken, options).iterator()) {
+            assertEquals("test_group00", scan.next().getDisplayName());
+            closed = scan;
+        }
+        assertFalse(closed.hasNext());
+    }
+
     private void whenSingleGroupIsSearchedByQueryString(String queryString) {
         queryResult = service.searchGroups(queryString, accessToken);
     }
@@ -234,7 +388,7 @@ public class OsiamGroupServiceTest {
 
     private void givenASingleGroupCanBeLookedUpByQuery() {
         stubFor(get(urlEqualTo(URL_BASE + "?filter=displayName+eq+test_group01"))
-                .withHeader("Content-Type", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
+                .withHeader("Accept", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
                 .willReturn(aResponse()
                         .withStatus(SC_OK)
                         .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
@@ -260,7 +414,7 @@ public class OsiamGroupServiceTest {
 
     private void givenAllGroupsAreLookedUpSuccessfully() {
         stubFor(get(urlEqualTo(URL_BASE))
-                .withHeader("Content-Type", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
+                .withHeader("Accept", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
                 .withHeader("Authorization", equalTo("Bearer " + accessToken.getToken()))
                 .willReturn(aResponse()
                         .withStatus(SC_OK)
@@ -268,9 +422,55 @@ public class OsiamGroupServiceTest {
                         .withBodyFile("query_all_groups.json")));
     }
 
+    private void givenAllGroupsAreSplitIntoPagesOf(int count) {
+        givenAllGroupsAreSplitIntoPagesOf(count, NUMBER_OF_EXPECTED_GROUPS, 0);
+    }
+
+    private void givenAllGroupsAreSplitIntoPagesOf(int count, int totalOfFirstPage, int delayOfLaterPages) {
+        for (int startIndex = 0; startIndex < NUMBER_OF_EXPECTED_GROUPS; startIndex += count) {
+            String indexParameter = startIndex == 0 ? "" : "&startIndex=" + startIndex;
+            int total = startIndex == 0 ? totalOfFirstPage : NUMBER_OF_EXPECTED_GROUPS;
+            stubFor(get(urlEqualTo(URL_BASE + "?count=" + count + indexParameter))
+                    .withHeader("Authorization", equalTo("Bearer " + accessToken.getToken()))
+                    .willReturn(aResponse()
+                            .withStatus(SC_OK)
+                            .withFixedDelay(startIndex == 0 ? 0 : delayOfLaterPages)
+                            .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
+                            .withBody(pageOfGroups(startIndex, Math.min(count, NUMBER_OF_EXPECTED_GROUPS - startIndex), total).getBytes(Charsets.UTF_8))));
+        }
+    }
+
+    private String pageOfGroups(int startIndex, int size, int total) {
+        StringBuilder page = new StringBuilder("{\"totalResults\": " + total
+                + ", \"itemsPerPage\": " + size + ", \"startIndex\": " + startIndex + ", \"Resources\": [");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                page.append(", ");
+            }
+            page.append("{\"id\": \"").append(UUID.randomUUID()).append("\", \"displayName\": \"test_group0")
+                    .append(startIndex + i).append("\"}");
+        }
+        return page.append("]}").toString();
+    }
+
+    private void givenGroupCanBePatchedWithStatus(int status) {
+        stubFor(patch(urlEqualTo(URL_BASE + "/" + GROUP_UUID_STRING))
+                .willReturn(aResponse()
+                        .withStatus(status)
+                        .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
+                        .withBodyFile("group_" + GROUP_UUID_STRING + ".json")));
+    }
+
+    private Group expectedGroupWithDisplayName(String displayName) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode group = (ObjectNode) mapper.readTree(new File("src/test/resources/__files/group_" + GROUP_UUID_STRING + ".json"));
+        group.put("displayName", displayName);
+        return mapper.readValue(group, Group.class);
+    }
+
     private MappingBuilder givenUUIDisLookedUp(String uuidString, AccessToken accessToken) {
         return get(urlEqualTo(URL_BASE + "/" + uuidString))
-                .withHeader("Content-Type", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
+                .withHeader("Accept", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
                 .withHeader("Authorization", equalTo("Bearer " + accessToken.getToken()));
     }
 
@@ -279,9 +479,23 @@ public class OsiamGroupServiceTest {
         assertEquals(uuid.toString(), result.getId());
     }
 
+    private void thenNumberOfIteratedGroupsIs(int numberOfGroups) {
+        assertEquals(numberOfGroups, iteratedGroups.size());
+    }
+
+    private void thenIteratedGroupsAreInQueryOrder() {
+        for (int i = 0; i < iteratedGroups.size(); i++) {
+            assertEquals("test_group0" + i, iteratedGroups.get(i).getDisplayName());
+        }
+    }
+
+    private void thenNumberOfRequestedPagesIs(int numberOfPages) {
+        assertEquals(numberOfPages, findAll(getRequestedFor(urlMatching(URL_BASE + "\\?count=.*"))).size());
+    }
+
     private void thenQueryWasValid() {
         verify(getRequestedFor(urlEqualTo(URL_BASE + "?filter=displayName+eq+test_group01"))
-                .withHeader("Content-Type", equalTo(ContentType.APPLICATION_JSON.getMimeType())));
+                .withHeader("Accept", equalTo(ContentType.APPLICATION_JSON.getMimeType())));
     }
 
     private void thenReturnedListOfSearchedGroupsIsAsExpected() {
@@ -5,20 +5,33 @@ package org.osiam.client;
 
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.findAll;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.patch;
+import static com.github.tomakehurst.wiremock.client.WireMock.patchRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.apache.http.HttpStatus.SC_CONFLICT;
 import static org.apache.http.HttpStatus.SC_NOT_FOUND;
+import static org.apache.http.HttpStatus.SC_NOT_MODIFIED;
 import static org.apache.http.HttpStatus.SC_OK;
 import static org.apache.http.HttpStatus.SC_UNAUTHORIZED;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
@@ -26,15 +39,25 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.io.Charsets;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.entity.ContentType;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.osiam.client.cache.ResourceCache;
+import org.osiam.client.connection.RequestInterceptor;
 import org.osiam.client.exception.NoResultException;
 import org.osiam.client.exception.UnauthorizedException;
 import org.osiam.client.oauth.AccessToken;
@@ -48,6 +71,8 @@ import org.osiam.resources.scim.Name;
 import org.osiam.resources.scim.User;
 
 import com.github.tomakehurst.wiremock.client.MappingBuilder;
+import com.github.tomakehurst.wiremock.client.RequestPatternBuilder;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 
 public class OsiamUserServiceTest {
@@ -60,9 +85,11 @@ public class OsiamUserServiceTest {
     final static private String userUuidString = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
     final static private String INVALID_USER_UUID_STRING = "55bbe688-4b1e-4e4e-80e7-e5ba5c4d";
     final static private String endpoint = "http://localhost:9090/osiam-server/";
+    final static private String USER_VERSION = "W/\"3a2f0d41\"";
     final static private String SIMPLE_QUERY_STRING = "filter=displayName+eq+BarbaraJ.";
     
     private UUID searchedUUID;
+    private ResourceCache<User> resourceCache;
     private AccessToken accessToken;
     private AccessTokenMockProvider tokenProvider;
 
@@ -98,6 +125,161 @@ public class OsiamUserServiceTest {
         thenBasicValuesAreDeserializedCorrectly();
     }
 
+    @Test
+    public void existing_user_is_returned_asynchronously() throws Exception {
+        givenUUIDcanBeFound();
+        whenSingleUUIDisLookedUpAsynchronously();
+        thenReturnedUserHasUUID(searchedUUID);
+        thenBasicValuesAreDeserializedCorrectly();
+    }
+
+    @Test
+    public void missing_user_is_reported_asynchronously() throws Exception {
+        givenUUIDcanNotBeFound();
+        Future<User> future = service.getUserByUUIDAsync(searchedUUID, accessToken, null);
+        try {
+            future.get();
+            fail("Exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof NoResultException);
+        }
+    }
+
+    @Test
+    public void cached_user_is_requested_only_once() throws Exception {
+        givenUUIDcanBeFound();
+        givenAServiceWithResourceCache();
+        whenSingleUUIDisLookedUp();
+        whenSingleUUIDisLookedUp();
+        thenReturnedUserHasUUID(searchedUUID);
+        thenUserWasRequestedTimes(1);
+        assertEquals(1, resourceCache.getHitCount());
+        assertEquals(1, resourceCache.getMissCount());
+    }
+
+    @Test
+    public void expired_cached_user_is_revalidated_with_its_version() throws Exception {
+        givenUUIDcanBeFoundWithVersion(USER_VERSION);
+        resourceCache = new ResourceCache.Builder<User>().timeToLive(10, TimeUnit.MILLISECONDS).build();
+        service = new OsiamUserService.Builder(endpoint).resourceCache(resourceCache).build();
+        whenSingleUUIDisLookedUp();
+        givenUnchangedUserIsNotModified(USER_VERSION);
+        Thread.sleep(20);
+        whenSingleUUIDisLookedUp();
+        thenReturnedUserHasUUID(searchedUUID);
+        verify(getRequestedFor(urlEqualTo(URL_BASE + "/" + userUuidString))
+                .withHeader("If-None-Match", equalTo(USER_VERSION)));
+        assertEquals(1, resourceCache.getRevalidationCount());
+    }
+
+    @Test
+    public void not_modified_user_is_returned_even_if_evicted_during_revalidation() throws Exception {
+        givenUUIDcanBeFoundWithVersion(USER_VERSION);
+        resourceCache = new ResourceCache.Builder<User>().timeToLive(10, TimeUnit.MILLISECONDS).build();
+        service = new OsiamUserService.Builder(endpoint).resourceCache(resourceCache)
+                .interceptor(new RequestInterceptor() {
+                    @Override
+                    public void beforeRequest(HttpUriRequest request, Call call) {
+                        resourceCache.invalidateAll();
+                    }
+
+                    @Override
+                    public void afterResponse(HttpResponse response, Exception failure, Call call) {
+                    }
+                }).build();
+        whenSingleUUIDisLookedUp();
+        givenUnchangedUserIsNotModified(USER_VERSION);
+        Thread.sleep(20);
+        whenSingleUUIDisLookedUp();
+        thenReturnedUserHasUUID(searchedUUID);
+        thenUserWasRequestedTimes(2);
+    }
+
+    @Test
+    public void deleted_user_is_removed_from_cache() throws Exception {
+        givenUUIDcanBeFound();
+        givenUUIDcanBeDeleted();
+        givenAServiceWithResourceCache();
+        whenSingleUUIDisLookedUp();
+        service.deleteUserByUUID(searchedUUID, accessToken);
+        whenSingleUUIDisLookedUp();
+        thenUserWasRequestedTimes(2);
+    }
+
+    @Test
+    public void bulk_results_are_mapped_back_to_operations() throws Exception {
+        givenBulkRequestsAreAnsweredWith("{\"Operations\":["
+                + "{\"bulkId\":\"1\",\"method\":\"DELETE\",\"status\":{\"code\":\"404\"},"
+                + "\"response\":{\"Errors\":[{\"description\":\"Resource not found\",\"code\":\"404\"}]}},"
+                + "{\"bulkId\":\"0\",\"method\":\"POST\",\"location\":\"http://localhost:9090/osiam-server/Users/"
+                + userUuidString + "\",\"status\":{\"code\":\"201\"},\"response\":{\"id\":\"" + userUuidString + "\"}}]}");
+        List<BulkOperation> operations = new ArrayList<>();
+        operations.add(BulkOperation.create(get_expected_user()));
+        operations.add(BulkOperation.delete(searchedUUID));
+
+        List<BulkResult<User>> results = service.bulkUsers(operations, accessToken, new BulkOptions.Builder().build());
+
+        assertEquals(2, results.size());
+        assertEquals(201, results.get(0).getStatus());
+        assertEquals(userUuidString, results.get(0).getResource().getId());
+        assertEquals(404, results.get(1).getStatus());
+        assertEquals("Resource not found", results.get(1).getErrorDescription());
+        verify(postRequestedFor(urlEqualTo("/osiam-server//Bulk"))
+                .withRequestBody(containing("\"path\":\"/Users/" + userUuidString + "\"")));
+    }
+
+    @Test
+    public void bulk_stops_sending_batches_once_errors_are_reached() throws Exception {
+        givenBulkRequestsAreAnsweredWith("{\"Operations\":[{\"bulkId\":\"0\",\"method\":\"DELETE\",\"status\":\"404\"}]}");
+        List<BulkOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            operations.add(BulkOperation.delete(UUID.randomUUID()));
+        }
+
+        List<BulkResult<User>> results = service.bulkUsers(operations, accessToken,
+                new BulkOptions.Builder().batchSize(1).failOnErrors(1).build());
+
+        assertEquals(404, results.get(0).getStatus());
+        assertFalse(results.get(1).isProcessed());
+        assertFalse(results.get(2).isProcessed());
+        assertEquals(1, findAll(postRequestedFor(urlEqualTo("/osiam-server//Bulk"))).size());
+    }
+
+    @Test
+    public void update_without_changes_sends_no_request() throws Exception {
+        User original = get_expected_user();
+        User modified = get_expected_user();
+
+        User updated = service.updateUser(searchedUUID, original, modified, accessToken);
+
+        assertSame(modified, updated);
+        assertEquals(0, findAll(new RequestPatternBuilder(RequestMethod.ANY, urlMatching(URL_BASE + ".*"))).size());
+    }
+
+    @Test
+    public void update_patches_the_changed_attributes_of_user() throws Exception {
+        givenUserCanBePatchedWithStatus(SC_OK);
+        User updated = service.updateUser(searchedUUID, get_expected_user(), get_expected_user_with_nick_name("Babs"),
+                accessToken);
+        assertEquals(userUuidString, updated.getId());
+        verify(patchRequestedFor(urlEqualTo(URL_BASE + "/" + userUuidString))
+                .withHeader("Authorization", equalTo("Bearer " + accessToken.getToken()))
+                .withHeader("Content-Type", containing(ContentType.APPLICATION_JSON.getMimeType()))
+                .withRequestBody(equalToJson("{\"schemas\": [\"urn:scim:schemas:core:1.0\"], \"nickName\": \"Babs\"}")));
+    }
+
+    @Test(expected = UnauthorizedException.class)
+    public void update_with_invalid_access_token_raises_exception() throws Exception {
+        givenUserCanBePatchedWithStatus(SC_UNAUTHORIZED);
+        service.updateUser(searchedUUID, get_expected_user(), get_expected_user_with_nick_name("Babs"), accessToken);
+    }
+
+    @Test(expected = NoResultException.class)
+    public void update_of_unknown_user_raises_exception() throws Exception {
+        givenUserCanBePatchedWithStatus(SC_NOT_FOUND);
+        service.updateUser(searchedUUID, get_expected_user(), get_expected_user_with_nick_name("Babs"), accessToken);
+    }
+
     @Test
     public void user_has_valid_values() throws Exception {
         givenUUIDcanBeFound();
@@ -195,6 +377,22 @@ public class OsiamUserServiceTest {
         thenReturnedListOfSearchedUsersIsAsExpected();
     }
 
+    @Test
+    public void searched_users_are_streamed_to_handler() throws UnsupportedEncodingException {
+        givenAQueryContainingDifficultCharacters();
+        givenAUserCanBeSearchedByQuery();
+        final List<User> handledUsers = new ArrayList<>();
+        int totalResults = service.searchUsers(query, accessToken, new ResourceHandler<User>() {
+            @Override
+            public void handle(User user) {
+                handledUsers.add(user);
+            }
+        });
+        assertEquals(1, totalResults);
+        assertEquals(1, handledUsers.size());
+        assertEquals("BarbaraJ.", handledUsers.get(0).getDisplayName());
+    }
+
     @Test
     public void query_string_is_split_correctly() throws UnsupportedEncodingException {
         givenAQueryContainingDifficultCharacters();
@@ -212,6 +410,54 @@ public class OsiamUserServiceTest {
         thenSortedQueryStringIsSplitCorrectly();
     }
 
+    private void givenAServiceWithResourceCache() {
+        resourceCache = new ResourceCache.Builder<User>().build();
+        service = new OsiamUserService.Builder(endpoint).resourceCache(resourceCache).build();
+    }
+
+    private void givenUUIDcanBeFoundWithVersion(String version) {
+        stubFor(givenUUIDisLookedUp(userUuidString, accessToken)
+                .willReturn(aResponse()
+                        .withStatus(SC_OK)
+                        .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
+                        .withHeader("ETag", version)
+                        .withBodyFile("user_" + userUuidString + ".json")));
+    }
+
+    private void givenUnchangedUserIsNotModified(String version) {
+        stubFor(givenUUIDisLookedUp(userUuidString, accessToken)
+                .withHeader("If-None-Match", equalTo(version))
+                .willReturn(aResponse()
+                        .withStatus(SC_NOT_MODIFIED)));
+    }
+
+    private void givenBulkRequestsAreAnsweredWith(String body) {
+        stubFor(post(urlEqualTo("/osiam-server//Bulk"))
+                .withHeader("Authorization", equalTo("Bearer " + accessToken.getToken()))
+                .willReturn(aResponse()
+                        .withStatus(SC_OK)
+                        .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
+                        .withBody(body.getBytes(Charsets.UTF_8))));
+    }
+
+    private void givenUserCanBePatchedWithStatus(int status) {
+        stubFor(patch(urlEqualTo(URL_BASE + "/" + userUuidString))
+                .willReturn(aResponse()
+                        .withStatus(status)
+                        .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
+                        .withBodyFile("user_" + userUuidString + ".json")));
+    }
+
+    private void givenUUIDcanBeDeleted() {
+        stubFor(delete(urlEqualTo(URL_BASE + "/" + userUuidString))
+                .willReturn(aResponse()
+                        .withStatus(SC_OK)));
+    }
+
+    private void thenUserWasRequestedTimes(int times) {
+        assertEquals(times, findAll(getRequestedFor(urlEqualTo(URL_BASE + "/" + userUuidString))).size());
+    }
+
     private void givenAnAccessToken() throws IOException {
         this.accessToken = tokenProvider.valid_access_token();
     }
@@ -232,7 +478,7 @@ public class OsiamUserServiceTest {
 
     private void givenAUserCanBeSearchedByQuery() {
         stubFor(get(urlMatching(URL_BASE + "\\?filter=.+"))
-                .withHeader("Content-Type", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
+                .withHeader("Accept", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
                 .willReturn(aResponse()
                         .withStatus(SC_OK)
                         .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
@@ -287,13 +533,13 @@ public class OsiamUserServiceTest {
 
     private MappingBuilder givenUUIDisLookedUp(String uuidString, AccessToken accessToken) {
         return get(urlEqualTo(URL_BASE + "/" + uuidString))
-                .withHeader("Content-Type", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
+                .withHeader("Accept", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
                 .withHeader("Authorization", equalTo("Bearer " + accessToken.getToken()));
     }
 
     private void givenAllUsersAreLookedUpSuccessfully() {
         stubFor(get(urlEqualTo(URL_BASE))
-                .withHeader("Content-Type", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
+                .withHeader("Accept", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
                 .withHeader("Authorization", equalTo("Bearer " + accessToken.getToken()))
                 .willReturn(aResponse()
                         .withStatus(SC_OK)
@@ -303,7 +549,7 @@ public class OsiamUserServiceTest {
 
     private void givenASingleUserCanBeSearchedByQuery() {
         stubFor(get(urlEqualTo(URL_BASE + "?filter=displayName+eq+BarbaraJ."))
-                .withHeader("Content-Type", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
+                .withHeader("Accept", equalTo(ContentType.APPLICATION_JSON.getMimeType()))
                 .willReturn(aResponse()
                         .withStatus(SC_OK)
                         .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
@@ -314,6 +560,10 @@ public class OsiamUserServiceTest {
         singleUserResult = service.getUserByUUID(searchedUUID, accessToken);
     }
 
+    private void whenSingleUUIDisLookedUpAsynchronously() throws Exception {
+        singleUserResult = service.getUserByUUIDAsync(searchedUUID, accessToken, null).get();
+    }
+
     private void whenAllUsersAreLookedUp() {
         queryResult = service.getAllUsers(accessToken);
     }
@@ -328,12 +578,12 @@ public class OsiamUserServiceTest {
 
     private void thenQueryStringIsSplitCorrectly() {
         verify(getRequestedFor(urlEqualTo(URL_BASE + "?filter=name.formatted+co+%22Schulz+%26+Schulz+Industries%22"))
-                .withHeader("Content-Type", equalTo(ContentType.APPLICATION_JSON.getMimeType())));
+                .withHeader("Accept", equalTo(ContentType.APPLICATION_JSON.getMimeType())));
     }
 
     private void thenSortedQueryStringIsSplitCorrectly() {
         verify(getRequestedFor(urlEqualTo(URL_BASE + "?filter=name.formatted+co+%22Schulz+%26+Schulz+Industries%22&sortBy=userName"))
-                .withHeader("Content-Type", equalTo(ContentType.APPLICATION_JSON.getMimeType())));
+                .withHeader("Accept", equalTo(ContentType.APPLICATION_JSON.getMimeType())));
     }
 
     private void thenReturnedUserHasUUID(UUID uuid) {
@@ -342,7 +592,7 @@ public class OsiamUserServiceTest {
 
     private void thenQueryWasValid() {
         verify(getRequestedFor(urlEqualTo(URL_BASE + "?filter=displayName+eq+BarbaraJ."))
-                .withHeader("Content-Type", equalTo(ContentType.APPLICATION_JSON.getMimeType())));
+                .withHeader("Accept", equalTo(ContentType.APPLICATION_JSON.getMimeType())));
     }
 
 
@@ -446,6 +696,13 @@ public class OsiamUserServiceTest {
         assertEquals(expected.getHonorificSuffix(), actual.getHonorificSuffix());
     }
 
+    private User get_expected_user_with_nick_name(String nickName) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode user = (ObjectNode) mapper.readTree(new File("src/test/resources/__files/user_" + userUuidString + ".json"));
+        user.put("nickName", nickName);
+        return mapper.readValue(user, User.class);
+    }
+
     private User get_expected_user() throws Exception {
         Reader reader = null;
         StringBuilder jsonUser = null;
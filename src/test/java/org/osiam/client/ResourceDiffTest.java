@@ -0,0 +1,76 @@
+package org.osiam.client;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ObjectNode;
+import org.junit.Test;
+
+public class ResourceDiffTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private ObjectNode patch;
+
+    @Test
+    public void equal_resources_produce_no_patch() throws IOException {
+        whenDiffIsComputed("{'id':'1','userName':'bjensen','emails':[{'value':'b@example.com'}]}",
+                "{'id':'1','userName':'bjensen','emails':[{'value':'b@example.com'}]}");
+        assertNull(patch);
+    }
+
+    @Test
+    public void only_changed_attributes_are_sent() throws IOException {
+        whenDiffIsComputed("{'schemas':['urn:scim:schemas:core:1.0'],'id':'1','userName':'bjensen','displayName':'Babs','title':null}",
+                "{'schemas':['urn:scim:schemas:core:1.0'],'id':'1','userName':'bjensen','displayName':'Barbara','title':null}");
+        thenPatchIs("{'displayName':'Barbara','schemas':['urn:scim:schemas:core:1.0']}");
+    }
+
+    @Test
+    public void changed_sub_attributes_are_sent_and_removed_ones_listed_in_meta() throws IOException {
+        whenDiffIsComputed("{'name':{'givenName':'Barbara','familyName':'Jensen','middleName':'Jane'}}",
+                "{'name':{'givenName':'Babs','familyName':'Jensen','middleName':null}}");
+        thenPatchIs("{'name':{'givenName':'Babs'},'meta':{'attributes':['name.middleName']}}");
+    }
+
+    @Test
+    public void added_and_removed_values_of_multi_valued_attributes_are_sent() throws IOException {
+        whenDiffIsComputed("{'emails':[{'value':'a@example.com','type':null},{'value':'b@example.com','type':'work'}]}",
+                "{'emails':[{'value':'b@example.com','type':'work'},{'value':'c@example.com','type':null}]}");
+        thenPatchIs("{'emails':[{'value':'a@example.com','operation':'delete'},{'value':'c@example.com'}]}");
+    }
+
+    @Test
+    public void value_with_changed_sub_attributes_is_deleted_before_it_is_added_again() throws IOException {
+        whenDiffIsComputed("{'emails':[{'value':'a@example.com','primary':true,'type':'work'}]}",
+                "{'emails':[{'value':'a@example.com','primary':false,'type':'home'}]}");
+        thenPatchIs("{'emails':[{'value':'a@example.com','primary':true,'type':'work','operation':'delete'},"
+                + "{'value':'a@example.com','primary':false,'type':'home'}]}");
+    }
+
+    @Test
+    public void removed_attributes_are_listed_in_meta() throws IOException {
+        whenDiffIsComputed("{'nickName':'Babs','emails':[{'value':'a@example.com'}],'title':'Tour Guide'}",
+                "{'nickName':null,'emails':[]}");
+        thenPatchIs("{'meta':{'attributes':['nickName','emails','title']}}");
+    }
+
+    private void whenDiffIsComputed(String original, String modified) throws IOException {
+        patch = ResourceDiff.patchOf(json(original), json(modified));
+    }
+
+    private void thenPatchIs(String expected) throws IOException {
+        assertEquals(json(expected), patch);
+    }
+
+    private JsonNode json(String singleQuoted) throws IOException {
+        return MAPPER.readTree(singleQuoted.replace('\'', '"'));
+    }
+}
@@ -0,0 +1,99 @@
+package org.osiam.client;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.apache.http.HttpStatus.SC_OK;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.Charsets;
+import org.apache.http.entity.ContentType;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.AccessTokenProvider;
+import org.osiam.client.query.Query;
+import org.osiam.client.query.SortOrder;
+import org.osiam.client.query.metamodel.Meta_;
+import org.osiam.resources.scim.User;
+
+/**
+ * Stubs the pages of users a DeltaSync requests, ordered by meta.lastModified, on the WireMock server of a test.
+ */
+public final class UserPageStubs {
+
+    public static final String ENDPOINT = "http://localhost:9090/osiam-server/";
+    private static final String URL_BASE = "/osiam-server//Users";
+
+    private UserPageStubs() {
+    }
+
+    /**
+     * Stub the page of users modified at or after the given mark.
+     *
+     * @param mark         the meta.lastModified the page starts at, null for the first page of all users
+     * @param countPerPage the requested number of users per page
+     * @param startIndex   the requested start index
+     * @param users        the users of the page, see {@link #user}
+     */
+    public static void givenUserPage(Long mark, int countPerPage, int startIndex, String... users) {
+        Query.Builder query = new Query.Builder(User.class).sortBy(Meta_.lastModified).sortOrder(SortOrder.ASCENDING)
+                .countPerPage(countPerPage).startIndex(startIndex);
+        if (mark != null) {
+            query.filter(new Query.Filter(User.class).startsWith(Meta_.lastModified.greaterEquals(mark)));
+        }
+        StringBuilder body = new StringBuilder("{\"totalResults\": " + users.length + ", \"itemsPerPage\": "
+                + countPerPage + ", \"startIndex\": " + startIndex + ", \"Resources\": [");
+        for (int i = 0; i < users.length; i++) {
+            body.append(i > 0 ? ", " : "").append(users[i]);
+        }
+        body.append("]}");
+        stubFor(get(urlEqualTo(URL_BASE + "?" + query.build()))
+                .willReturn(aResponse()
+                        .withStatus(SC_OK)
+                        .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
+                        .withBody(body.toString().getBytes(Charsets.UTF_8))));
+    }
+
+    /**
+     * @return the JSON of a user whose userName is its id
+     */
+    public static String user(String id, long lastModified) {
+        return "{\"id\": \"" + id + "\", \"userName\": \"" + id + "\", \"meta\": {\"lastModified\": " + lastModified + "}}";
+    }
+
+    /**
+     * @return the JSON of a user with a single email
+     */
+    public static String user(String id, String userName, String externalId, String email, long lastModified) {
+        return "{\"id\": \"" + id + "\", \"userName\": \"" + userName + "\", \"externalId\": \"" + externalId
+                + "\", \"emails\": [{\"value\": \"" + email + "\"}], \"meta\": {\"lastModified\": " + lastModified + "}}";
+    }
+
+    /**
+     * Provides the valid access token of /__files/valid_accesstoken.json and counts how often it was asked for.
+     */
+    public static final class CountingAccessTokenProvider implements AccessTokenProvider {
+
+        private final AccessToken accessToken;
+        private final AtomicInteger requests = new AtomicInteger();
+
+        public CountingAccessTokenProvider() throws IOException {
+            accessToken = new AccessTokenMockProvider("/__files/valid_accesstoken.json").valid_access_token();
+        }
+
+        @Override
+        public AccessToken getAccessToken() {
+            requests.incrementAndGet();
+            return accessToken;
+        }
+
+        public int getRequests() {
+            return requests.get();
+        }
+    }
+}
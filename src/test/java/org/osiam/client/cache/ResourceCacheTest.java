@@ -0,0 +1,118 @@
+package org.osiam.client.cache;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ResourceCacheTest {
+
+    private static final UUID FIRST_ID = UUID.fromString("94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4");
+    private static final UUID SECOND_ID = UUID.fromString("55bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4");
+    private static final UUID THIRD_ID = UUID.fromString("7d33bcbe-a54c-43d8-867e-f6146164941e");
+
+    private static final String VERSION = "W/\"3a2f0d41\"";
+
+    private ResourceCache<String> cache;
+
+    @Test
+    public void cached_resource_is_returned_and_counted_as_hit() {
+        cache = new ResourceCache.Builder<String>().build();
+        cache.put(FIRST_ID, "first");
+
+        assertEquals("first", cache.get(FIRST_ID));
+        assertNull(cache.get(SECOND_ID));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void least_recently_used_resource_is_evicted() {
+        cache = new ResourceCache.Builder<String>().maximumSize(2).build();
+        cache.put(FIRST_ID, "first");
+        cache.put(SECOND_ID, "second");
+        cache.get(FIRST_ID);
+
+        cache.put(THIRD_ID, "third");
+
+        assertEquals(2, cache.size());
+        assertEquals("first", cache.get(FIRST_ID));
+        assertNull(cache.get(SECOND_ID));
+    }
+
+    @Test
+    public void resource_is_not_returned_after_its_time_to_live() throws Exception {
+        cache = new ResourceCache.Builder<String>().timeToLive(10, TimeUnit.MILLISECONDS).build();
+        cache.put(FIRST_ID, "first");
+
+        Thread.sleep(20);
+
+        assertNull(cache.get(FIRST_ID));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void expired_resource_with_version_is_kept_for_revalidation() throws Exception {
+        cache = new ResourceCache.Builder<String>().timeToLive(10, TimeUnit.MILLISECONDS).build();
+        cache.put(FIRST_ID, "first", VERSION);
+
+        Thread.sleep(20);
+
+        assertNull(cache.get(FIRST_ID));
+        assertEquals(VERSION, cache.getVersion(FIRST_ID));
+        assertNull(cache.revalidate(FIRST_ID, "W/\"other\""));
+        assertEquals("first", cache.revalidate(FIRST_ID, VERSION));
+        assertEquals("first", cache.get(FIRST_ID));
+        assertEquals(1, cache.getRevalidationCount());
+    }
+
+    @Test
+    public void versioned_resource_stays_usable_after_its_entry_is_invalidated() throws Exception {
+        cache = new ResourceCache.Builder<String>().timeToLive(10, TimeUnit.MILLISECONDS).build();
+        cache.put(FIRST_ID, "first", VERSION);
+        cache.put(SECOND_ID, "second");
+
+        Thread.sleep(20);
+        ResourceCache.VersionedResource<String> stale = cache.getVersioned(FIRST_ID);
+        cache.invalidate(FIRST_ID);
+
+        assertEquals("first", stale.getResource());
+        assertEquals(VERSION, stale.getVersion());
+        assertNull(cache.getVersioned(FIRST_ID));
+        assertNull(cache.getVersioned(SECOND_ID));
+    }
+
+    @Test
+    public void invalidated_resource_is_not_returned() {
+        cache = new ResourceCache.Builder<String>().build();
+        cache.put(FIRST_ID, "first");
+        cache.put(SECOND_ID, "second");
+
+        cache.invalidate(FIRST_ID);
+        assertNull(cache.get(FIRST_ID));
+        assertEquals("second", cache.get(SECOND_ID));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void non_positive_maximum_size_raises_exception() {
+        new ResourceCache.Builder<String>().maximumSize(0);
+        fail("Exception expected");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void non_positive_time_to_live_raises_exception() {
+        new ResourceCache.Builder<String>().timeToLive(0, TimeUnit.SECONDS);
+        fail("Exception expected");
+    }
+}
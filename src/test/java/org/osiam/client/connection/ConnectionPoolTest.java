@@ -0,0 +1,161 @@
+package org.osiam.client.connection;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.entity.ContentType;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.osiam.client.AccessTokenMockProvider;
+import org.osiam.client.OsiamUserService;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.resources.scim.User;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+public class ConnectionPoolTest {
+
+    private static final String ENDPOINT = "http://localhost:9090/osiam-server";
+    private static final String USER_UUID_STRING = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final int NUMBER_OF_REQUESTS = 25;
+    private static final int NUMBER_OF_ASYNC_REQUESTS = 8;
+    private static final int SLOW_RESPONSE_MILLIS = 500;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(9090);
+
+    private ConnectionPool pool;
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void pool_provides_always_the_same_client() {
+        pool = new ConnectionPool.Builder().build();
+        assertSame(pool.getHttpClient(), pool.getHttpClient());
+    }
+
+    @Test
+    public void pool_provides_always_the_same_async_client() {
+        pool = new ConnectionPool.Builder().build();
+        assertSame(pool.getAsyncClient(), pool.getAsyncClient());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void async_client_of_a_shut_down_pool_raises_exception() {
+        pool = new ConnectionPool.Builder().build();
+        pool.shutdown();
+
+        pool.getAsyncClient();
+        fail("Exception expected");
+    }
+
+    @Test
+    public void asynchronous_calls_do_not_occupy_a_thread_each() throws Exception {
+        pool = new ConnectionPool.Builder().build();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        OsiamUserService service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool).executor(executor).build();
+        AccessToken accessToken = given_the_user_can_be_retrieved_after(SLOW_RESPONSE_MILLIS);
+        long started = System.nanoTime();
+
+        List<Future<User>> users = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_ASYNC_REQUESTS; i++) {
+            users.add(service.getUserByUUIDAsync(UUID.fromString(USER_UUID_STRING), accessToken, null));
+        }
+        for (Future<User> user : users) {
+            assertEquals(USER_UUID_STRING, user.get().getId());
+        }
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < NUMBER_OF_ASYNC_REQUESTS * SLOW_RESPONSE_MILLIS / 2);
+        executor.shutdown();
+    }
+
+    @Test
+    public void connections_are_released_for_more_requests_than_pooled_connections() throws Exception {
+        pool = new ConnectionPool.Builder().maxConnections(1).maxConnectionsPerRoute(1).build();
+        OsiamUserService service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool).build();
+        AccessToken accessToken = given_the_user_can_be_retrieved();
+
+        for (int i = 0; i < NUMBER_OF_REQUESTS; i++) {
+            User user = service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+            assertEquals(USER_UUID_STRING, user.getId());
+        }
+    }
+
+    @Test
+    public void closing_a_service_leaves_the_given_pool_open() throws Exception {
+        pool = new ConnectionPool.Builder().build();
+        AccessToken accessToken = given_the_user_can_be_retrieved();
+
+        new OsiamUserService.Builder(ENDPOINT).connectionPool(pool).build().close();
+
+        OsiamUserService service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool).build();
+        assertEquals(USER_UUID_STRING, service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken).getId());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closing_a_service_shuts_down_its_own_pool() throws Exception {
+        AccessToken accessToken = given_the_user_can_be_retrieved();
+        OsiamUserService service = new OsiamUserService.Builder(ENDPOINT).build();
+
+        service.close();
+
+        service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+        fail("Exception expected");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void non_positive_max_connections_raises_exception() {
+        new ConnectionPool.Builder().maxConnections(0);
+        fail("Exception expected");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void non_positive_max_connections_per_route_raises_exception() {
+        new ConnectionPool.Builder().maxConnectionsPerRoute(0);
+        fail("Exception expected");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void non_positive_idle_timeout_raises_exception() {
+        new ConnectionPool.Builder().idleTimeout(0, TimeUnit.SECONDS);
+        fail("Exception expected");
+    }
+
+    private AccessToken given_the_user_can_be_retrieved() throws Exception {
+        return given_the_user_can_be_retrieved_after(0);
+    }
+
+    private AccessToken given_the_user_can_be_retrieved_after(int delayMillis) throws Exception {
+        stubFor(get(urlEqualTo("/osiam-server/Users/" + USER_UUID_STRING))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_OK)
+                        .withFixedDelay(delayMillis)
+                        .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
+                        .withBodyFile("user_" + USER_UUID_STRING + ".json")));
+        return new AccessTokenMockProvider("/__files/valid_accesstoken.json").valid_access_token();
+    }
+}
@@ -0,0 +1,234 @@
+package org.osiam.client.connection;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ContentType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.osiam.client.AccessTokenMockProvider;
+import org.osiam.client.OsiamUserService;
+import org.osiam.client.exception.RequestTimeoutException;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.resources.scim.User;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+public class DeadlineTest {
+
+    private static final String ENDPOINT = "http://localhost:9090/osiam-server";
+    private static final String USER_UUID_STRING = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final int SLOW_RESPONSE_MILLIS = 2000;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(9090);
+
+    private ConnectionPool pool;
+    private OsiamUserService service;
+    private AccessToken accessToken;
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new ConnectionPool.Builder().build();
+        service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool).build();
+        accessToken = new AccessTokenMockProvider("/__files/valid_accesstoken.json").valid_access_token();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    public void call_within_deadline_succeeds() {
+        given_the_user_is_returned_after(0);
+
+        try (Deadline deadline = Deadline.start(5, TimeUnit.SECONDS)) {
+            assertEquals(USER_UUID_STRING, service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken).getId());
+        }
+    }
+
+    @Test
+    public void slow_call_is_aborted_at_deadline() {
+        given_the_user_is_returned_after(SLOW_RESPONSE_MILLIS);
+        long started = System.nanoTime();
+
+        try (Deadline deadline = Deadline.start(200, TimeUnit.MILLISECONDS)) {
+            service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+            fail("Exception expected");
+        } catch (RequestTimeoutException expected) {
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < SLOW_RESPONSE_MILLIS);
+        }
+    }
+
+    @Test
+    public void expired_deadline_fails_without_request() throws Exception {
+        given_the_user_is_returned_after(0);
+
+        try (Deadline deadline = Deadline.start(1, TimeUnit.MILLISECONDS)) {
+            Thread.sleep(5);
+            service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+            fail("Exception expected");
+        } catch (RequestTimeoutException expected) {
+            verify(0, getRequestedFor(urlEqualTo("/osiam-server/Users/" + USER_UUID_STRING)));
+        }
+    }
+
+    @Test
+    public void asynchronous_call_keeps_to_the_deadline() throws Exception {
+        given_the_user_is_returned_after(SLOW_RESPONSE_MILLIS);
+        Future<User> user;
+
+        try (Deadline deadline = Deadline.start(200, TimeUnit.MILLISECONDS)) {
+            user = service.getUserByUUIDAsync(UUID.fromString(USER_UUID_STRING), accessToken, null);
+        }
+
+        try {
+            user.get(SLOW_RESPONSE_MILLIS, TimeUnit.MILLISECONDS);
+            fail("Exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RequestTimeoutException);
+        }
+    }
+
+    @Test
+    public void read_timeout_of_pool_raises_timeout_exception() {
+        pool.shutdown();
+        pool = new ConnectionPool.Builder().readTimeout(200, TimeUnit.MILLISECONDS).build();
+        service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool).build();
+        given_the_user_is_returned_after(SLOW_RESPONSE_MILLIS);
+
+        try {
+            service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+            fail("Exception expected");
+        } catch (RequestTimeoutException expected) {
+            assertTrue(expected.getMessage().contains("didn't answer"));
+        }
+    }
+
+    @Test
+    public void waiting_for_a_pooled_connection_times_out() throws Exception {
+        given_a_pool_with_a_single_connection();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<User> occupying = executor.submit(new Callable<User>() {
+            @Override
+            public User call() {
+                return service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+            }
+        });
+        Thread.sleep(200);
+
+        try {
+            service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+            fail("Exception expected");
+        } catch (RequestTimeoutException expected) {
+            assertEquals(USER_UUID_STRING, occupying.get().getId());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void waiting_asynchronously_for_a_pooled_connection_times_out() throws Exception {
+        given_a_pool_with_a_single_connection();
+        Future<User> occupying = service.getUserByUUIDAsync(UUID.fromString(USER_UUID_STRING), accessToken, null);
+        Thread.sleep(200);
+
+        try {
+            service.getUserByUUIDAsync(UUID.fromString(USER_UUID_STRING), accessToken, null).get();
+            fail("Exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RequestTimeoutException);
+            assertEquals(USER_UUID_STRING, occupying.get().getId());
+        }
+    }
+
+    @Test
+    public void deadline_caps_the_timeouts_of_a_blocking_request() {
+        RequestConfig poolConfig = RequestConfig.custom().setSocketTimeout(10000).build();
+        HttpGet request = new HttpGet(ENDPOINT + "/Users/" + USER_UUID_STRING);
+
+        try (Deadline deadline = Deadline.start(500, TimeUnit.MILLISECONDS)) {
+            RequestGuard.guard(request, poolConfig).release();
+        }
+
+        assertTrue(request.getConfig().getSocketTimeout() <= 500);
+        assertTrue(request.getConfig().getConnectTimeout() <= 500);
+        assertTrue(request.getConfig().getConnectionRequestTimeout() <= 500);
+    }
+
+    @Test
+    public void request_without_deadline_keeps_the_timeouts_of_the_pool() {
+        HttpGet request = new HttpGet(ENDPOINT + "/Users/" + USER_UUID_STRING);
+
+        RequestGuard.guard(request, RequestConfig.custom().setSocketTimeout(10000).build()).release();
+
+        assertNull(request.getConfig());
+    }
+
+    @Test
+    public void inner_deadline_does_not_extend_outer_deadline() {
+        try (Deadline outer = Deadline.start(100, TimeUnit.MILLISECONDS)) {
+            try (Deadline inner = Deadline.start(10, TimeUnit.SECONDS)) {
+                assertSame(inner, Deadline.current());
+                assertTrue(inner.getRemainingMillis() <= 100);
+            }
+            assertSame(outer, Deadline.current());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void non_positive_timeout_raises_exception() {
+        Deadline.start(0, TimeUnit.SECONDS);
+        fail("Exception expected");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void non_positive_read_timeout_raises_exception() {
+        new ConnectionPool.Builder().readTimeout(0, TimeUnit.SECONDS);
+        fail("Exception expected");
+    }
+
+    private void given_a_pool_with_a_single_connection() {
+        pool.shutdown();
+        pool = new ConnectionPool.Builder().maxConnections(1).maxConnectionsPerRoute(1)
+                .connectionRequestTimeout(100, TimeUnit.MILLISECONDS).build();
+        service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool).build();
+        given_the_user_is_returned_after(SLOW_RESPONSE_MILLIS);
+    }
+
+    private void given_the_user_is_returned_after(int delayMillis) {
+        stubFor(get(urlEqualTo("/osiam-server/Users/" + USER_UUID_STRING))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_OK)
+                        .withFixedDelay(delayMillis)
+                        .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
+                        .withBodyFile("user_" + USER_UUID_STRING + ".json")));
+    }
+}
@@ -0,0 +1,210 @@
+package org.osiam.client.connection;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.deleteRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.osiam.client.AccessTokenMockProvider;
+import org.osiam.client.OsiamUserService;
+import org.osiam.client.exception.RequestTimeoutException;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.AuthService;
+import org.osiam.client.oauth.GrantType;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+public class InterceptorChainTest {
+
+    private static final String ENDPOINT = "http://localhost:9090/osiam-server";
+    private static final String USER_UUID_STRING = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final String TRACE_HEADER = "X-Trace-Id";
+    private static final int SLOW_RESPONSE_MILLIS = 2000;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(9090);
+
+    private ConnectionPool pool;
+    private AccessToken accessToken;
+    private List<String> calls = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new ConnectionPool.Builder().build();
+        accessToken = new AccessTokenMockProvider("/__files/valid_accesstoken.json").valid_access_token();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void interceptors_are_called_in_order_with_operation_and_resource_type() {
+        given_a_user_exists();
+        OsiamUserService service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool)
+                .interceptor(new RecordingInterceptor("first"))
+                .interceptor(new RecordingInterceptor("second"))
+                .build();
+
+        service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+
+        assertEquals(Arrays.asList("first User.get", "second User.get", "second 200", "first 200"), calls);
+    }
+
+    @Test
+    public void attributes_are_kept_for_the_call() {
+        given_a_user_exists();
+        final List<Object> seen = new ArrayList<>();
+        OsiamUserService service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool)
+                .interceptor(new RequestInterceptor() {
+                    @Override
+                    public void beforeRequest(HttpUriRequest request, Call call) {
+                        call.setAttribute("traceId", "4bf92f35");
+                    }
+
+                    @Override
+                    public void afterResponse(HttpResponse response, Exception failure, Call call) {
+                        seen.add(call.getAttribute("traceId"));
+                    }
+                })
+                .build();
+
+        service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+
+        assertEquals(Arrays.<Object>asList("4bf92f35"), seen);
+    }
+
+    @Test
+    public void failure_is_reported_to_the_interceptors() {
+        stubFor(get(urlEqualTo("/osiam-server/Users/" + USER_UUID_STRING))
+                .willReturn(aResponse().withStatus(HttpStatus.SC_OK).withFixedDelay(SLOW_RESPONSE_MILLIS)));
+        pool.shutdown();
+        pool = new ConnectionPool.Builder().readTimeout(100, TimeUnit.MILLISECONDS).build();
+        OsiamUserService service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool)
+                .interceptor(new RecordingInterceptor("first"))
+                .build();
+
+        try {
+            service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+            fail("Exception expected");
+        } catch (RequestTimeoutException expected) {
+            assertEquals(Arrays.asList("first User.get", "first failed"), calls);
+        }
+    }
+
+    @Test
+    public void failing_interceptor_does_not_change_the_response() {
+        given_a_user_exists();
+        OsiamUserService service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool)
+                .interceptor(new RequestInterceptor() {
+                    @Override
+                    public void beforeRequest(HttpUriRequest request, Call call) {
+                        // nothing to prepare
+                    }
+
+                    @Override
+                    public void afterResponse(HttpResponse response, Exception failure, Call call) {
+                        throw new IllegalStateException("broken interceptor");
+                    }
+                })
+                .build();
+
+        assertEquals(USER_UUID_STRING, service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken).getId());
+    }
+
+    @Test
+    public void header_is_sent_with_every_request() {
+        given_a_user_exists();
+        stubFor(delete(urlEqualTo("/osiam-server/Users/" + USER_UUID_STRING))
+                .willReturn(aResponse().withStatus(HttpStatus.SC_OK)));
+        OsiamUserService service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool)
+                .interceptor(new HeaderInterceptor(TRACE_HEADER, "4bf92f35"))
+                .build();
+
+        service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+        service.deleteUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+
+        verify(getRequestedFor(urlEqualTo("/osiam-server/Users/" + USER_UUID_STRING))
+                .withHeader(TRACE_HEADER, equalTo("4bf92f35")));
+        verify(deleteRequestedFor(urlEqualTo("/osiam-server/Users/" + USER_UUID_STRING))
+                .withHeader(TRACE_HEADER, equalTo("4bf92f35")));
+    }
+
+    @Test
+    public void token_requests_pass_the_interceptors() {
+        stubFor(post(urlEqualTo("/osiam-server/oauth/token"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_OK)
+                        .withBodyFile("valid_accesstoken.json")));
+        AuthService authService = new AuthService.Builder(ENDPOINT).connectionPool(pool)
+                .interceptor(new RecordingInterceptor("auth"))
+                .interceptor(new HeaderInterceptor(TRACE_HEADER, "4bf92f35"))
+                .clientId("example-client").clientSecret("secret").grantType(GrantType.CLIENT_CREDENTIALS).build();
+
+        authService.retrieveAccessToken();
+
+        assertEquals(Arrays.asList("auth AccessToken.token", "auth 200"), calls);
+        verify(postRequestedFor(urlEqualTo("/osiam-server/oauth/token"))
+                .withHeader(TRACE_HEADER, equalTo("4bf92f35")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void null_interceptor_raises_exception() {
+        new OsiamUserService.Builder(ENDPOINT).interceptor(null);
+        fail("Exception expected");
+    }
+
+    private void given_a_user_exists() {
+        stubFor(get(urlEqualTo("/osiam-server/Users/" + USER_UUID_STRING))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_OK)
+                        .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
+                        .withBodyFile("user_" + USER_UUID_STRING + ".json")));
+    }
+
+    private final class RecordingInterceptor implements RequestInterceptor {
+
+        private final String name;
+
+        private RecordingInterceptor(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void beforeRequest(HttpUriRequest request, Call call) {
+            calls.add(name + " " + call.getResourceType() + "." + call.getOperation());
+        }
+
+        @Override
+        public void afterResponse(HttpResponse response, Exception failure, Call call) {
+            calls.add(name + " " + (response == null ? "failed" : response.getStatusLine().getStatusCode()));
+        }
+    }
+}
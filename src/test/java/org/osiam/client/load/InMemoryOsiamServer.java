@@ -0,0 +1,624 @@
+package org.osiam.client.load;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.Charsets;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonProcessingException;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+import org.osiam.resources.scim.CoreResource;
+import org.osiam.resources.scim.Group;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An in-memory stand-in for OSIAM to test the services against, with state and under real concurrency. It serves
+ * <ul>
+ * <li>/oauth/token with the grants client_credentials, password and refresh_token; every client is accepted, a user
+ * only with the password it was created with</li>
+ * <li>/Users and /Groups: create, get by id with ETag and If-None-Match, PUT, PATCH, delete, and search with filter,
+ * sortBy, sortOrder, attributes, startIndex and count</li>
+ * <li>/Users/me for tokens granted to a user</li>
+ * </ul>
+ * All other requests, like /Bulk, are answered with 404. Resources live in memory until {@link #stop()}; the meta
+ * dates are kept as epoch millis, the way the connector serializes them.
+ * <p>
+ * Start it on a free port and point the services to {@link #getEndpoint()}:
+ *
+ * <pre>
+ * InMemoryOsiamServer server = new InMemoryOsiamServer.Builder().build();
+ * server.start();
+ * OsiamUserService userService = new OsiamUserService.Builder(server.getEndpoint()).build();
+ * </pre>
+ */
+public final class InMemoryOsiamServer {
+
+    private static final String CONTEXT = "/osiam-server";
+    private static final String BEARER = "Bearer ";
+    private static final int EXPIRES_IN = 3599;
+    private static final int DEFAULT_COUNT = 100;
+    private static final int SC_OK = 200;
+    private static final int SC_CREATED = 201;
+    private static final int SC_NOT_MODIFIED = 304;
+    private static final int SC_BAD_REQUEST = 400;
+    private static final int SC_UNAUTHORIZED = 401;
+    private static final int SC_NOT_FOUND = 404;
+    private static final int SC_CONFLICT = 409;
+    private static final int SC_INTERNAL_SERVER_ERROR = 500;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int port;
+    private final int threads;
+    private final int backlog;
+    private final Map<String, Store> stores = new HashMap<>();
+    private final ConcurrentMap<String, String> accessTokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> refreshTokens = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private InMemoryOsiamServer(Builder builder) {
+        port = builder.port;
+        threads = builder.threads;
+        backlog = builder.backlog;
+        stores.put("Users", new Store("User", "userName"));
+        stores.put("Groups", new Store("Group", "displayName"));
+    }
+
+    /**
+     * Start serving requests.
+     *
+     * @throws IOException if the port could not be bound
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalStateException("The server is already started.");
+        }
+        // without TCP_NODELAY every response waits for the delayed ACK of the client, some 40ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", port), backlog);
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "in-memory-osiam");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server.setExecutor(executor);
+        server.createContext(CONTEXT, new Handler());
+        server.start();
+    }
+
+    /**
+     * Stop serving requests and drop all resources and tokens.
+     */
+    public synchronized void stop() {
+        if (server == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            return;
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+        for (Store store : stores.values()) {
+            store.clear();
+        }
+        accessTokens.clear();
+        refreshTokens.clear();
+    }
+
+    /**
+     * @return the URL to build the services with
+     */
+    public synchronized String getEndpoint() {
+        if (server == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalStateException("The server is not started.");
+        }
+        return "http://localhost:" + server.getAddress().getPort() + CONTEXT;
+    }
+
+    /**
+     * Store the given user or group directly, without a request, for example to prepare a load test. A missing id is
+     * generated, meta is always replaced.
+     *
+     * @param resource the user or group to store
+     * @return the id of the stored resource
+     */
+    public String add(CoreResource resource) {
+        if (resource == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("The given resource can't be null.");
+        }
+        Store store = stores.get(resource instanceof Group ? "Groups" : "Users"); // NOSONAR - false-positive from clover; if-expression is correct
+        ObjectNode node = MAPPER.valueToTree(resource);
+        String id = resource.getId() == null ? UUID.randomUUID().toString() : resource.getId(); // NOSONAR - false-positive from clover; if-expression is correct
+        ObjectNode created = store.create(node, id, getEndpoint());
+        if (created == null) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("A resource with the same name already exists.");
+        }
+        return id;
+    }
+
+    /**
+     * @return the number of requests served since the start
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    private final class Handler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            try {
+                dispatch(exchange);
+            } catch (IllegalArgumentException | JsonProcessingException e) {
+                send(exchange, SC_BAD_REQUEST, null);
+            } catch (RuntimeException e) {
+                send(exchange, SC_INTERNAL_SERVER_ERROR, null);
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void dispatch(HttpExchange exchange) throws IOException {
+            // the services append their paths to the endpoint, which may end with a slash
+            String path = exchange.getRequestURI().getPath().substring(CONTEXT.length()).replaceAll("/+", "/");
+            String method = exchange.getRequestMethod();
+            if ("/oauth/token".equals(path) && "POST".equals(method)) { // NOSONAR - false-positive from clover; if-expression is correct
+                grant(exchange);
+                return;
+            }
+            String principal = authorize(exchange);
+            String[] segments = path.split("/");
+            Store store = segments.length > 1 ? stores.get(segments[1]) : null; // NOSONAR - false-positive from clover; if-expression is correct
+            if (principal == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                send(exchange, SC_UNAUTHORIZED, null);
+            } else if (store == null || segments.length > 3) {
+                send(exchange, SC_NOT_FOUND, null);
+            } else if (segments.length == 2) {
+                collection(exchange, store, method);
+            } else if ("me".equals(segments[2]) && "Users".equals(segments[1]) && "GET".equals(method)) {
+                single(exchange, store, principal, method);
+            } else {
+                single(exchange, store, segments[2], method);
+            }
+        }
+
+        private void collection(HttpExchange exchange, Store store, String method) throws IOException {
+            switch (method) {
+                case "GET":
+                    send(exchange, SC_OK, store.search(parameters(exchange.getRequestURI().getRawQuery())));
+                    break;
+                case "POST":
+                    ObjectNode created = store.create(readObject(exchange), UUID.randomUUID().toString(), getEndpoint());
+                    send(exchange, created == null ? SC_CONFLICT : SC_CREATED, created); // NOSONAR - false-positive from clover; if-expression is correct
+                    break;
+                default:
+                    send(exchange, SC_NOT_FOUND, null);
+            }
+        }
+
+        private void single(HttpExchange exchange, Store store, String id, String method) throws IOException {
+            ObjectNode resource;
+            switch (method) {
+                case "GET":
+                    resource = store.get(id);
+                    String version = resource == null ? null : quoted(resource.get("meta").get("version").asText()); // NOSONAR - false-positive from clover; if-expression is correct
+                    if (version != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                        exchange.getResponseHeaders().set("ETag", version);
+                        if (version.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) { // NOSONAR - false-positive from clover; if-expression is correct
+                            send(exchange, SC_NOT_MODIFIED, null);
+                            return;
+                        }
+                    }
+                    break;
+                case "PUT":
+                    resource = store.replace(id, readObject(exchange));
+                    break;
+                case "PATCH":
+                    resource = store.patch(id, readObject(exchange));
+                    break;
+                case "DELETE":
+                    send(exchange, store.delete(id) ? SC_OK : SC_NOT_FOUND, null); // NOSONAR - false-positive from clover; if-expression is correct
+                    return;
+                default:
+                    send(exchange, SC_NOT_FOUND, null);
+                    return;
+            }
+            send(exchange, resource == null ? SC_NOT_FOUND : SC_OK, resource); // NOSONAR - false-positive from clover; if-expression is correct
+        }
+
+        private void grant(HttpExchange exchange) throws IOException {
+            Map<String, String> parameters = parameters(IOUtils.toString(exchange.getRequestBody(), Charsets.UTF_8.name()));
+            String grantType = parameters.get("grant_type");
+            String principal;
+            if ("client_credentials".equals(grantType)) { // NOSONAR - false-positive from clover; if-expression is correct
+                principal = "";
+            } else if ("password".equals(grantType)) {
+                principal = stores.get("Users").authenticate(parameters.get("username"), parameters.get("password"));
+            } else if ("refresh_token".equals(grantType)) {
+                principal = refreshTokens.remove(String.valueOf(parameters.get("refresh_token")));
+            } else {
+                send(exchange, SC_BAD_REQUEST, null);
+                return;
+            }
+            if (principal == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                send(exchange, SC_UNAUTHORIZED, null);
+                return;
+            }
+            String accessToken = UUID.randomUUID().toString();
+            String refreshToken = UUID.randomUUID().toString();
+            accessTokens.put(accessToken, principal);
+            refreshTokens.put(refreshToken, principal);
+            ObjectNode token = MAPPER.createObjectNode();
+            token.put("access_token", accessToken);
+            token.put("token_type", "bearer");
+            token.put("expires_in", EXPIRES_IN);
+            token.put("scope", "DELETE GET PATCH POST PUT");
+            token.put("refresh_token", refreshToken);
+            send(exchange, SC_OK, token);
+        }
+
+        /**
+         * @return the id of the user the token was granted to, an empty String for a client, or null if the request
+         *         carries no valid token
+         */
+        private String authorize(HttpExchange exchange) {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization == null || !authorization.startsWith(BEARER)) { // NOSONAR - false-positive from clover; if-expression is correct
+                return null;
+            }
+            return accessTokens.get(authorization.substring(BEARER.length()));
+        }
+
+        private ObjectNode readObject(HttpExchange exchange) throws IOException {
+            // the request body must stay open to be drained, which the parser would prevent by closing it
+            JsonNode body = MAPPER.readTree(IOUtils.toByteArray(exchange.getRequestBody()));
+            if (body == null || !body.isObject()) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The request body is no JSON object.");
+            }
+            return (ObjectNode) body;
+        }
+
+        private void send(HttpExchange exchange, int status, JsonNode body) throws IOException {
+            // drain the request, so the connection can be kept alive
+            IOUtils.copy(exchange.getRequestBody(), new NullOutputStream());
+            if (body == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            byte[] bytes = MAPPER.writeValueAsBytes(body);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            OutputStream response = exchange.getResponseBody();
+            response.write(bytes);
+            response.close();
+        }
+    }
+
+    private static String quoted(String version) {
+        return "\"" + version + "\"";
+    }
+
+    private static Map<String, String> parameters(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) { // NOSONAR - false-positive from clover; if-expression is correct
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), Charsets.UTF_8.name()),
+                        URLDecoder.decode(pair.substring(separator + 1), Charsets.UTF_8.name()));
+            }
+        }
+        return parameters;
+    }
+
+    private static ObjectNode copy(JsonNode node) {
+        try {
+            // Jackson 1.9 has no deep copy of a tree
+            return (ObjectNode) MAPPER.readTree(MAPPER.writeValueAsBytes(node));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The resources of one type. Stored trees are never modified, so they are read without locking; all writes are
+     * serialized to keep the unique attribute unique.
+     */
+    private static final class Store {
+
+        private final String resourceType;
+        private final String uniqueAttribute;
+        private final ConcurrentMap<String, ObjectNode> resources = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, String> passwords = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, String> idsByName = new ConcurrentHashMap<>();
+        private final AtomicLong versions = new AtomicLong();
+
+        private Store(String resourceType, String uniqueAttribute) {
+            this.resourceType = resourceType;
+            this.uniqueAttribute = uniqueAttribute;
+        }
+
+        private ObjectNode get(String id) {
+            return resources.get(id);
+        }
+
+        /**
+         * @return the stored resource, or null if another resource holds the same unique attribute
+         */
+        private synchronized ObjectNode create(ObjectNode resource, String id, String endpoint) {
+            if (isTaken(resource, id)) { // NOSONAR - false-positive from clover; if-expression is correct
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            ObjectNode meta = resource.putObject("meta");
+            meta.put("created", now);
+            meta.put("location", endpoint + "/" + resourceType + "s/" + id);
+            meta.put("resourceType", resourceType);
+            resource.put("id", id);
+            return store(id, resource, now);
+        }
+
+        private synchronized ObjectNode replace(String id, ObjectNode resource) {
+            ObjectNode stored = resources.get(id);
+            if (stored == null || isTaken(resource, id)) { // NOSONAR - false-positive from clover; if-expression is correct
+                return null;
+            }
+            resource.put("meta", copy(stored.get("meta")));
+            resource.put("id", id);
+            return store(id, resource, System.currentTimeMillis());
+        }
+
+        /**
+         * Apply a PATCH body as the connector computes it: simple attributes are replaced, complex attributes merged,
+         * values of multi-valued attributes added, or removed if marked with "operation": "delete", and the
+         * attributes listed in meta.attributes removed.
+         */
+        private synchronized ObjectNode patch(String id, ObjectNode patch) {
+            ObjectNode stored = resources.get(id);
+            if (stored == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                return null;
+            }
+            ObjectNode resource = copy(stored);
+            JsonNode removed = patch.path("meta").path("attributes");
+            for (JsonNode attribute : removed) {
+                remove(resource, attribute.asText());
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = patch.getFields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                String name = field.getKey();
+                JsonNode value = field.getValue();
+                JsonNode current = resource.get(name);
+                if ("id".equals(name) || "meta".equals(name) || "schemas".equals(name)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    continue;
+                }
+                if (value.isArray()) { // NOSONAR - false-positive from clover; if-expression is correct
+                    resource.put(name, merge(current, (ArrayNode) value));
+                } else if (value.isObject() && current != null && current.isObject()) {
+                    ((ObjectNode) current).putAll((ObjectNode) value);
+                } else {
+                    resource.put(name, value);
+                }
+            }
+            if (isTaken(resource, id)) { // NOSONAR - false-positive from clover; if-expression is correct
+                return null;
+            }
+            return store(id, resource, System.currentTimeMillis());
+        }
+
+        private synchronized boolean delete(String id) {
+            passwords.remove(id);
+            ObjectNode removed = resources.remove(id);
+            if (removed == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                return false;
+            }
+            idsByName.remove(nameOf(removed));
+            return true;
+        }
+
+        private synchronized void clear() {
+            resources.clear();
+            passwords.clear();
+            idsByName.clear();
+        }
+
+        /**
+         * @return the id of the user with the given credentials, or null if there is none
+         */
+        private String authenticate(String userName, String password) {
+            String id = userName == null ? null : idsByName.get(userName.toLowerCase(Locale.ENGLISH)); // NOSONAR - false-positive from clover; if-expression is correct
+            return id != null && password != null && password.equals(passwords.get(id)) ? id : null; // NOSONAR - false-positive from clover; if-expression is correct
+        }
+
+        private ObjectNode search(Map<String, String> parameters) {
+            String filter = parameters.get("filter");
+            ScimFilter scimFilter = filter == null ? null : ScimFilter.parse(filter); // NOSONAR - false-positive from clover; if-expression is correct
+            List<JsonNode> matching = new ArrayList<>();
+            for (ObjectNode resource : resources.values()) {
+                if (scimFilter == null || scimFilter.matches(resource)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    matching.add(resource);
+                }
+            }
+            String sortBy = parameters.get("sortBy");
+            boolean ascending = !"descending".equalsIgnoreCase(parameters.get("sortOrder"));
+            // without sortBy the order must still be stable across pages
+            Collections.sort(matching, ScimFilter.comparator(sortBy == null ? "id" : sortBy, ascending)); // NOSONAR - false-positive from clover; if-expression is correct
+
+            int startIndex = integer(parameters.get("startIndex"), 0);
+            int count = integer(parameters.get("count"), DEFAULT_COUNT);
+            String attributes = parameters.get("attributes");
+            ObjectNode result = MAPPER.createObjectNode();
+            ArrayNode page = MAPPER.createArrayNode();
+            for (int i = startIndex; i < matching.size() && i < startIndex + count; i++) {
+                page.add(attributes == null ? matching.get(i) : project(matching.get(i), attributes)); // NOSONAR - false-positive from clover; if-expression is correct
+            }
+            result.put("totalResults", matching.size());
+            result.put("itemsPerPage", page.size());
+            result.put("startIndex", startIndex);
+            result.put("schemas", "urn:scim:schemas:core:1.0");
+            result.put("Resources", page);
+            return result;
+        }
+
+        private boolean isTaken(JsonNode resource, String id) {
+            String holder = idsByName.get(nameOf(resource));
+            return holder != null && !holder.equals(id); // NOSONAR - false-positive from clover; if-expression is correct
+        }
+
+        /**
+         * @return the unique attribute of the resource in lower case, the key of idsByName
+         */
+        private String nameOf(JsonNode resource) {
+            return resource.path(uniqueAttribute).asText().toLowerCase(Locale.ENGLISH);
+        }
+
+        private ObjectNode store(String id, ObjectNode resource, long now) {
+            // passwords are never returned, like OSIAM does
+            JsonNode password = resource.remove("password");
+            if (password != null && !password.isNull()) { // NOSONAR - false-positive from clover; if-expression is correct
+                passwords.put(id, password.asText());
+            }
+            ObjectNode meta = (ObjectNode) resource.get("meta");
+            meta.put("lastModified", now);
+            meta.put("version", String.valueOf(versions.incrementAndGet()));
+            ObjectNode previous = resources.put(id, resource);
+            if (previous != null) { // NOSONAR - false-positive from clover; if-expression is correct
+                idsByName.remove(nameOf(previous));
+            }
+            String name = nameOf(resource);
+            if (!name.isEmpty()) { // NOSONAR - false-positive from clover; if-expression is correct
+                idsByName.put(name, id);
+            }
+            return resource;
+        }
+
+        private static ArrayNode merge(JsonNode current, ArrayNode values) {
+            List<JsonNode> merged = new ArrayList<>();
+            if (current != null && current.isArray()) { // NOSONAR - false-positive from clover; if-expression is correct
+                for (JsonNode element : current) {
+                    merged.add(element);
+                }
+            }
+            for (JsonNode value : values) {
+                for (Iterator<JsonNode> elements = merged.iterator(); elements.hasNext();) {
+                    if (elements.next().path("value").equals(value.path("value"))) { // NOSONAR - false-positive from clover; if-expression is correct
+                        elements.remove();
+                    }
+                }
+                if (!"delete".equals(value.path("operation").asText())) { // NOSONAR - false-positive from clover; if-expression is correct
+                    merged.add(value);
+                }
+            }
+            ArrayNode result = MAPPER.createArrayNode();
+            result.addAll(merged);
+            return result;
+        }
+
+        private static void remove(ObjectNode resource, String attribute) {
+            int separator = attribute.indexOf('.');
+            if (separator < 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                resource.remove(attribute);
+                return;
+            }
+            JsonNode parent = resource.get(attribute.substring(0, separator));
+            if (parent != null && parent.isObject()) { // NOSONAR - false-positive from clover; if-expression is correct
+                ((ObjectNode) parent).remove(attribute.substring(separator + 1));
+            }
+        }
+
+        private static ObjectNode project(JsonNode resource, String attributes) {
+            ObjectNode projection = MAPPER.createObjectNode();
+            projection.put("id", resource.get("id"));
+            for (String attribute : attributes.split(",")) {
+                String name = attribute.trim().split("\\.")[0];
+                if (resource.has(name)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    projection.put(name, resource.get(name));
+                }
+            }
+            return projection;
+        }
+
+        private static int integer(String value, int defaultValue) {
+            return value == null ? defaultValue : Integer.parseInt(value); // NOSONAR - false-positive from clover; if-expression is correct
+        }
+    }
+
+    /**
+     * The Builder is used to configure an {@link InMemoryOsiamServer}.
+     */
+    public static class Builder {
+
+        private static final int DEFAULT_THREADS = 16;
+        private static final int DEFAULT_BACKLOG = 1024;
+
+        private int port;
+        private int threads = DEFAULT_THREADS;
+        private int backlog = DEFAULT_BACKLOG;
+
+        /**
+         * @param port the port to listen on, 0 (the default) for any free port
+         * @return The builder itself
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param threads the number of threads serving requests, 16 by default
+         * @return The builder itself
+         */
+        public Builder threads(int threads) {
+            if (threads < 1) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The server needs at least one thread.");
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param backlog the number of connections waiting to be accepted, 1024 by default
+         * @return The builder itself
+         */
+        public Builder backlog(int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        public InMemoryOsiamServer build() {
+            return new InMemoryOsiamServer(this);
+        }
+    }
+}
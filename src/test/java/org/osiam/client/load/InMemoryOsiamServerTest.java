@@ -0,0 +1,166 @@
+package org.osiam.client.load;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osiam.client.AccessTokenMockProvider;
+import org.osiam.client.OsiamGroupService;
+import org.osiam.client.OsiamUserService;
+import org.osiam.client.exception.NoResultException;
+import org.osiam.client.exception.UnauthorizedException;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.AuthService;
+import org.osiam.client.oauth.GrantType;
+import org.osiam.client.query.Query;
+import org.osiam.client.query.QueryResult;
+import org.osiam.client.query.SortOrder;
+import org.osiam.client.query.metamodel.Group_;
+import org.osiam.client.query.metamodel.User_;
+import org.osiam.resources.scim.Group;
+import org.osiam.resources.scim.User;
+
+public class InMemoryOsiamServerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private InMemoryOsiamServer server;
+    private OsiamUserService userService;
+    private AccessToken accessToken;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new InMemoryOsiamServer.Builder().threads(4).build();
+        server.start();
+        userService = new OsiamUserService.Builder(server.getEndpoint()).build();
+        accessToken = authService(GrantType.CLIENT_CREDENTIALS).retrieveAccessToken();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void created_user_can_be_retrieved_by_id() throws IOException {
+        User created = userService.createUser(user("bjensen", "Babs@Example.com"), accessToken);
+
+        User retrieved = userService.getUserByUUID(UUID.fromString(created.getId()), accessToken);
+
+        assertEquals("bjensen", retrieved.getUserName());
+        assertEquals(created.getMeta().getLastModified(), retrieved.getMeta().getLastModified());
+        assertNull(retrieved.getPassword());
+    }
+
+    @Test
+    public void search_is_filtered_sorted_and_paged() throws IOException {
+        for (String userName : new String[] {"cdoe", "adoe", "bjensen", "bdoe"}) {
+            userService.createUser(user(userName, userName + "@example.org"), accessToken);
+        }
+        Query query = new Query.Builder(User.class)
+                .filter(new Query.Filter(User.class).startsWith(User_.emails.value.contains("DOE@")))
+                .sortBy(User_.userName).sortOrder(SortOrder.DESCENDING).countPerPage(2).build();
+
+        QueryResult<User> firstPage = userService.searchUsers(query, accessToken);
+        QueryResult<User> secondPage = userService.searchUsers(query.nextPage(), accessToken);
+
+        assertEquals(3, firstPage.getTotalResults());
+        assertEquals(userNames("cdoe", "bdoe"), userNamesOf(firstPage.getResources()));
+        assertEquals(userNames("adoe"), userNamesOf(secondPage.getResources()));
+    }
+
+    @Test
+    public void update_patches_the_stored_user() throws IOException {
+        User original = userService.createUser(user("bjensen", "babs@example.com"), accessToken);
+        User modified = MAPPER.readValue("{\"id\": \"" + original.getId() + "\", \"userName\": \"bjensen\", \"title\": \"Boss\","
+                + " \"emails\": [{\"value\": \"barbara@example.com\"}]}", User.class);
+
+        User updated = userService.updateUser(UUID.fromString(original.getId()), original, modified, accessToken);
+
+        assertEquals("Boss", updated.getTitle());
+        assertEquals(1, updated.getEmails().size());
+        assertEquals("barbara@example.com", updated.getEmails().get(0).getValue());
+        assertFalse(original.getMeta().getVersion().equals(updated.getMeta().getVersion()));
+    }
+
+    @Test(expected = NoResultException.class)
+    public void deleted_user_is_gone() throws IOException {
+        User created = userService.createUser(user("bjensen", "babs@example.com"), accessToken);
+
+        userService.deleteUserByUUID(UUID.fromString(created.getId()), accessToken);
+
+        userService.getUserByUUID(UUID.fromString(created.getId()), accessToken);
+    }
+
+    @Test
+    public void password_grant_is_bound_to_the_user() throws IOException {
+        userService.createUser(user("bjensen", "babs@example.com"), accessToken);
+
+        AccessToken userToken = authService(GrantType.PASSWORD).retrieveAccessToken();
+        AccessToken refreshed = authService(GrantType.CLIENT_CREDENTIALS).refreshAccessToken(userToken);
+
+        assertEquals("bjensen", userService.getMe(userToken).getUserName());
+        assertEquals("bjensen", userService.getMe(refreshed).getUserName());
+    }
+
+    @Test(expected = UnauthorizedException.class)
+    public void unknown_token_is_rejected() throws IOException {
+        userService.getAllUsers(new AccessTokenMockProvider("/__files/valid_accesstoken.json").valid_access_token());
+    }
+
+    @Test
+    public void groups_are_served() throws IOException {
+        server.add(MAPPER.readValue("{\"displayName\": \"admins\"}", Group.class));
+        server.add(MAPPER.readValue("{\"displayName\": \"users\"}", Group.class));
+        OsiamGroupService groupService = new OsiamGroupService.Builder(server.getEndpoint()).build();
+        Query query = new Query.Builder(Group.class)
+                .filter(new Query.Filter(Group.class).startsWith(Group_.displayName.equalTo("users"))).build();
+
+        QueryResult<Group> result = groupService.searchGroups(query, accessToken);
+
+        assertEquals(1, result.getTotalResults());
+        assertEquals("users", result.getResources().get(0).getDisplayName());
+    }
+
+    private AuthService authService(GrantType grantType) {
+        AuthService.Builder builder = new AuthService.Builder(server.getEndpoint()).clientId("example-client")
+                .clientSecret("secret").grantType(grantType);
+        if (grantType == GrantType.PASSWORD) {
+            builder.username("bjensen").password("koala");
+        }
+        return builder.build();
+    }
+
+    private static User user(String userName, String email) throws IOException {
+        return MAPPER.readValue("{\"userName\": \"" + userName + "\", \"password\": \"koala\", \"emails\": [{\"value\": \""
+                + email + "\"}]}", User.class);
+    }
+
+    private static List<String> userNames(String... userNames) {
+        List<String> result = new ArrayList<>();
+        for (String userName : userNames) {
+            result.add(userName);
+        }
+        return result;
+    }
+
+    private static List<String> userNamesOf(List<User> users) {
+        List<String> result = new ArrayList<>();
+        for (User user : users) {
+            result.add(user.getUserName());
+        }
+        return result;
+    }
+}
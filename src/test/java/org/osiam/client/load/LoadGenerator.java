@@ -0,0 +1,328 @@
+package org.osiam.client.load;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.osiam.client.OsiamUserService;
+import org.osiam.client.connection.ConnectionPool;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.AuthService;
+import org.osiam.client.oauth.GrantType;
+import org.osiam.client.query.Query;
+import org.osiam.client.query.metamodel.User_;
+import org.osiam.resources.scim.User;
+
+/**
+ * The LoadGenerator runs an operation from a number of threads for a fixed time and reports the throughput and the
+ * latency percentiles. Every thread starts the next call as soon as the previous one returned, so the latencies are
+ * those of a closed system: a stalled server delays the following calls instead of showing up in the percentiles.
+ * Compare the throughput of runs with a growing number of threads to find the point of saturation.
+ * <p>
+ * {@link #main(String[])} runs a set of user scenarios against an {@link InMemoryOsiamServer}. The server, the
+ * services and the generator share the CPUs of one machine, so run it with spare cores to measure the connector.
+ */
+public final class LoadGenerator {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final Operation operation;
+    private final int threads;
+    private final long warmupNanos;
+    private final long durationNanos;
+
+    private LoadGenerator(Builder builder) {
+        operation = builder.operation;
+        threads = builder.threads;
+        warmupNanos = builder.warmupNanos;
+        durationNanos = builder.durationNanos;
+    }
+
+    /**
+     * A call to measure, like a single request of a service.
+     */
+    public interface Operation {
+        void execute() throws Exception; // NOSONAR - any failure of the operation is counted as error
+    }
+
+    /**
+     * Run the operation for the warm-up and the measured time.
+     *
+     * @return the measurements of the measured time
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the workers
+     */
+    public Report run() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(threads);
+        final long start = System.nanoTime();
+        final long measureFrom = start + warmupNanos;
+        final long end = measureFrom + durationNanos;
+        final List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(measureFrom, end, done);
+            workers.add(worker);
+            new Thread(worker, "load-generator-" + i).start();
+        }
+        done.await();
+
+        int calls = 0;
+        int errors = 0;
+        for (Worker worker : workers) {
+            calls += worker.count;
+            errors += worker.errors;
+        }
+        long[] latencies = new long[calls];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            offset += worker.count;
+        }
+        Arrays.sort(latencies);
+        return new Report(latencies, errors, durationNanos);
+    }
+
+    private final class Worker implements Runnable {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final long measureFrom;
+        private final long end;
+        private final CountDownLatch done;
+        private long[] latencies = new long[INITIAL_CAPACITY];
+        private int count;
+        private int errors;
+
+        private Worker(long measureFrom, long end, CountDownLatch done) {
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long now = System.nanoTime();
+                while (now < end) {
+                    boolean failed = false;
+                    try {
+                        operation.execute();
+                    } catch (Exception e) { // NOSONAR - any failure of the operation is counted as error
+                        failed = true;
+                    }
+                    long finished = System.nanoTime();
+                    if (now >= measureFrom) { // NOSONAR - false-positive from clover; if-expression is correct
+                        record(finished - now, failed);
+                    }
+                    now = finished;
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private void record(long latency, boolean failed) {
+            if (count == latencies.length) { // NOSONAR - false-positive from clover; if-expression is correct
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+            if (failed) { // NOSONAR - false-positive from clover; if-expression is correct
+                errors++;
+            }
+        }
+    }
+
+    /**
+     * The measurements of a run. Failed calls are included in the latencies.
+     */
+    public static final class Report {
+
+        private final long[] latencies;
+        private final int errors;
+        private final long durationNanos;
+
+        private Report(long[] latencies, int errors, long durationNanos) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.durationNanos = durationNanos;
+        }
+
+        /**
+         * @return the number of calls made in the measured time
+         */
+        public int getCalls() {
+            return latencies.length;
+        }
+
+        /**
+         * @return the number of failed calls
+         */
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return the calls per second
+         */
+        public double getThroughput() {
+            return latencies.length * NANOS_PER_SECOND / durationNanos;
+        }
+
+        /**
+         * @param percentile the percentile between 0 and 100, like 99.9
+         * @return the latency in milliseconds that the given percentage of calls didn't exceed, 0 without calls
+         */
+        public double getLatency(double percentile) {
+            if (percentile < 0 || percentile > 100) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+            }
+            if (latencies.length == 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(index, 0)] / NANOS_PER_MILLI;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH,
+                    "%d calls, %d errors, %.0f calls/s, latency ms p50 %.3f, p90 %.3f, p99 %.3f, p99.9 %.3f, max %.3f",
+                    getCalls(), errors, getThroughput(), getLatency(50), getLatency(90), getLatency(99),
+                    getLatency(99.9), getLatency(100));
+        }
+    }
+
+    /**
+     * The Builder is used to configure a {@link LoadGenerator}.
+     */
+    public static class Builder {
+
+        private static final long DEFAULT_WARMUP_SECONDS = 5;
+        private static final long DEFAULT_DURATION_SECONDS = 30;
+
+        private final Operation operation;
+        private int threads = 1;
+        private long warmupNanos = TimeUnit.SECONDS.toNanos(DEFAULT_WARMUP_SECONDS);
+        private long durationNanos = TimeUnit.SECONDS.toNanos(DEFAULT_DURATION_SECONDS);
+
+        /**
+         * @param operation the call to measure
+         */
+        public Builder(Operation operation) {
+            if (operation == null) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The given operation can't be null.");
+            }
+            this.operation = operation;
+        }
+
+        /**
+         * @param threads the number of threads calling the operation concurrently, 1 by default
+         * @return The builder itself
+         */
+        public Builder threads(int threads) {
+            if (threads < 1) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The load generator needs at least one thread.");
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param warmup the time the operation is called before the measurement starts, 5 seconds by default
+         * @param unit   the unit of the given time
+         * @return The builder itself
+         */
+        public Builder warmup(long warmup, TimeUnit unit) {
+            warmupNanos = unit.toNanos(warmup);
+            return this;
+        }
+
+        /**
+         * @param duration the measured time, 30 seconds by default
+         * @param unit     the unit of the given time
+         * @return The builder itself
+         */
+        public Builder duration(long duration, TimeUnit unit) {
+            if (duration <= 0) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("The duration must be positive.");
+            }
+            durationNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public LoadGenerator build() {
+            return new LoadGenerator(this);
+        }
+    }
+
+    /**
+     * Run the user scenarios against an {@link InMemoryOsiamServer} holding 10000 users and print a report per
+     * scenario.
+     *
+     * @param args the number of threads and the measured seconds per scenario, 8 and 30 if not given
+     * @throws Exception if the server could not be started
+     */
+    public static void main(String[] args) throws Exception { // NOSONAR - a failed run ends the program
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8; // NOSONAR - false-positive from clover; if-expression is correct
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 30; // NOSONAR - false-positive from clover; if-expression is correct
+        int users = 10000;
+
+        InMemoryOsiamServer server = new InMemoryOsiamServer.Builder().threads(threads * 2).build();
+        server.start();
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            final List<String> ids = new ArrayList<>();
+            for (int i = 0; i < users; i++) {
+                ids.add(server.add(mapper.readValue("{\"userName\": \"user" + i + "\"}", User.class)));
+            }
+            String endpoint = server.getEndpoint();
+            ConnectionPool connectionPool = new ConnectionPool.Builder().maxConnections(threads * 2)
+                    .maxConnectionsPerRoute(threads * 2).build();
+            final AuthService authService = new AuthService.Builder(endpoint).connectionPool(connectionPool)
+                    .clientId("load").clientSecret("secret").grantType(GrantType.CLIENT_CREDENTIALS).build();
+            final OsiamUserService userService = new OsiamUserService.Builder(endpoint).connectionPool(connectionPool)
+                    .build();
+            final AccessToken accessToken = authService.retrieveAccessToken();
+
+            report("token", threads, seconds, new Operation() {
+                @Override
+                public void execute() {
+                    authService.retrieveAccessToken();
+                }
+            });
+            report("get user by id", threads, seconds, new Operation() {
+                private final AtomicInteger next = new AtomicInteger();
+
+                @Override
+                public void execute() {
+                    int index = (next.getAndIncrement() & Integer.MAX_VALUE) % ids.size();
+                    userService.getUserByUUID(UUID.fromString(ids.get(index)), accessToken);
+                }
+            });
+            final Query query = new Query.Builder(User.class).filter(new Query.Filter(User.class)
+                    .startsWith(User_.userName.startsWith("user99"))).build();
+            report("search users", threads, seconds, new Operation() {
+                @Override
+                public void execute() {
+                    userService.searchUsers(query, accessToken);
+                }
+            });
+            connectionPool.shutdown();
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void report(String scenario, int threads, long seconds, Operation operation) throws InterruptedException {
+        Report report = new Builder(operation).threads(threads).duration(seconds, TimeUnit.SECONDS).build().run();
+        System.out.println(scenario + ": " + report); // NOSONAR - the report is the output of the program
+    }
+}
@@ -0,0 +1,67 @@
+package org.osiam.client.load;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.osiam.client.OsiamUserService;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.AuthService;
+import org.osiam.client.oauth.GrantType;
+
+public class LoadGeneratorTest {
+
+    private static final long DURATION_MILLIS = 300;
+
+    @Test
+    public void concurrent_load_against_the_in_memory_server_is_reported() throws IOException, InterruptedException {
+        InMemoryOsiamServer server = new InMemoryOsiamServer.Builder().threads(4).build();
+        server.start();
+        try {
+            final OsiamUserService userService = new OsiamUserService.Builder(server.getEndpoint()).build();
+            final AccessToken accessToken = new AuthService.Builder(server.getEndpoint()).clientId("example-client")
+                    .clientSecret("secret").grantType(GrantType.CLIENT_CREDENTIALS).build().retrieveAccessToken();
+
+            LoadGenerator.Report report = new LoadGenerator.Builder(new LoadGenerator.Operation() {
+                @Override
+                public void execute() {
+                    userService.getAllUsers(accessToken);
+                }
+            }).threads(4).warmup(0, TimeUnit.MILLISECONDS).duration(DURATION_MILLIS, TimeUnit.MILLISECONDS).build().run();
+
+            assertTrue(report.getCalls() > 0);
+            assertEquals(0, report.getErrors());
+            assertTrue(report.getLatency(50) <= report.getLatency(99));
+            assertTrue(report.getLatency(99) <= report.getLatency(100));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void failed_calls_are_counted_as_errors() throws InterruptedException {
+        LoadGenerator.Report report = new LoadGenerator.Builder(new LoadGenerator.Operation() {
+            @Override
+            public void execute() {
+                throw new IllegalStateException();
+            }
+        }).warmup(0, TimeUnit.MILLISECONDS).duration(10, TimeUnit.MILLISECONDS).build().run();
+
+        assertEquals(report.getCalls(), report.getErrors());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentile_above_100_raises_exception() throws InterruptedException {
+        new LoadGenerator.Builder(new LoadGenerator.Operation() {
+            @Override
+            public void execute() {
+            }
+        }).warmup(0, TimeUnit.MILLISECONDS).duration(1, TimeUnit.MILLISECONDS).build().run().getLatency(101);
+    }
+}
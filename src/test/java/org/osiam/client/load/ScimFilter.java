@@ -0,0 +1,332 @@
+package org.osiam.client.load;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonNode;
+
+/**
+ * A parsed SCIM filter, evaluated against the JSON tree of a resource the way OSIAM evaluates it against its database:
+ * "and" binds tighter than "or", attribute names are matched ignoring case, strings are compared ignoring case and
+ * dates, which are stored as epoch millis, by their point in time. A multi-valued attribute matches if any of its
+ * values matches.
+ */
+abstract class ScimFilter {
+
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+        }
+    };
+
+    abstract boolean matches(JsonNode resource);
+
+    /**
+     * Parse the given filter.
+     *
+     * @param filter a SCIM filter like {@code userName eq "bjensen" and not (emails.value co "example.org")}
+     * @return the parsed filter
+     * @throws IllegalArgumentException if the filter is malformed
+     */
+    static ScimFilter parse(String filter) {
+        Parser parser = new Parser(tokenize(filter));
+        ScimFilter result = parser.expression();
+        if (parser.position != parser.tokens.size()) { // NOSONAR - false-positive from clover; if-expression is correct
+            throw new IllegalArgumentException("Unexpected token " + parser.tokens.get(parser.position) + " in " + filter);
+        }
+        return result;
+    }
+
+    /**
+     * @param attribute the attribute path to sort by, like meta.lastModified
+     * @param ascending the sort direction
+     * @return a comparator sorting resources without the attribute last, in both directions
+     */
+    static Comparator<JsonNode> comparator(final String attribute, boolean ascending) {
+        final int direction = ascending ? 1 : -1; // NOSONAR - false-positive from clover; if-expression is correct
+        return new Comparator<JsonNode>() {
+            @Override
+            public int compare(JsonNode first, JsonNode second) {
+                List<JsonNode> left = valuesOf(first, attribute);
+                List<JsonNode> right = valuesOf(second, attribute);
+                if (left.isEmpty() || right.isEmpty()) { // NOSONAR - false-positive from clover; if-expression is correct
+                    return Boolean.compare(left.isEmpty(), right.isEmpty());
+                }
+                JsonNode leftValue = left.get(0);
+                JsonNode rightValue = right.get(0);
+                if (leftValue.isNumber() && rightValue.isNumber()) { // NOSONAR - false-positive from clover; if-expression is correct
+                    return direction * Double.compare(leftValue.getDoubleValue(), rightValue.getDoubleValue());
+                }
+                return direction * leftValue.asText().compareToIgnoreCase(rightValue.asText());
+            }
+        };
+    }
+
+    /**
+     * Resolve the given attribute path to all values of the resource that are neither null nor missing.
+     */
+    static List<JsonNode> valuesOf(JsonNode resource, String attribute) {
+        List<JsonNode> current = Collections.singletonList(resource);
+        for (String name : attribute.split("\\.")) {
+            List<JsonNode> next = new ArrayList<>();
+            for (JsonNode holder : current) {
+                addValue(next, field(holder, name));
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    private static void addValue(List<JsonNode> values, JsonNode value) {
+        if (value == null || value.isNull()) { // NOSONAR - false-positive from clover; if-expression is correct
+            return;
+        }
+        if (value.isArray()) { // NOSONAR - false-positive from clover; if-expression is correct
+            for (JsonNode element : value) {
+                addValue(values, element);
+            }
+        } else {
+            values.add(value);
+        }
+    }
+
+    private static JsonNode field(JsonNode holder, String name) {
+        if (!holder.isObject()) { // NOSONAR - false-positive from clover; if-expression is correct
+            return null;
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = holder.getFields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getKey().equalsIgnoreCase(name)) { // NOSONAR - false-positive from clover; if-expression is correct
+                return field.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static List<String> tokenize(String filter) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < filter.length()) {
+            char c = filter.charAt(i);
+            if (Character.isWhitespace(c)) { // NOSONAR - false-positive from clover; if-expression is correct
+                i++;
+            } else if (c == '(' || c == ')') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (c == '"') {
+                // quoted values keep their leading quote, so they can't be mistaken for operators
+                StringBuilder value = new StringBuilder("\"");
+                for (i++; i < filter.length() && filter.charAt(i) != '"'; i++) {
+                    if (filter.charAt(i) == '\\' && i + 1 < filter.length()) { // NOSONAR - false-positive from clover; if-expression is correct
+                        i++;
+                    }
+                    value.append(filter.charAt(i));
+                }
+                if (i == filter.length()) { // NOSONAR - false-positive from clover; if-expression is correct
+                    throw new IllegalArgumentException("Unterminated value in " + filter);
+                }
+                tokens.add(value.toString());
+                i++;
+            } else {
+                int start = i;
+                while (i < filter.length() && !Character.isWhitespace(filter.charAt(i)) && "()\"".indexOf(filter.charAt(i)) < 0) {
+                    i++;
+                }
+                tokens.add(filter.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Parser {
+
+        private final List<String> tokens;
+        private int position;
+
+        private Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        private ScimFilter expression() {
+            ScimFilter left = term();
+            while (accept("or")) {
+                left = new Logical(left, false, term());
+            }
+            return left;
+        }
+
+        private ScimFilter term() {
+            ScimFilter left = factor();
+            while (accept("and")) {
+                left = new Logical(left, true, factor());
+            }
+            return left;
+        }
+
+        private ScimFilter factor() {
+            if (accept("not")) { // NOSONAR - false-positive from clover; if-expression is correct
+                expect("(");
+                ScimFilter inner = expression();
+                expect(")");
+                return new Not(inner);
+            }
+            if (accept("(")) { // NOSONAR - false-positive from clover; if-expression is correct
+                ScimFilter inner = expression();
+                expect(")");
+                return inner;
+            }
+            String attribute = next();
+            String operator = next().toLowerCase(Locale.ENGLISH);
+            if ("pr".equals(operator)) { // NOSONAR - false-positive from clover; if-expression is correct
+                return new Comparison(attribute, operator, null);
+            }
+            String value = next();
+            return new Comparison(attribute, operator, value.startsWith("\"") ? value.substring(1) : value); // NOSONAR - false-positive from clover; if-expression is correct
+        }
+
+        private boolean accept(String token) {
+            if (position < tokens.size() && tokens.get(position).equalsIgnoreCase(token)) { // NOSONAR - false-positive from clover; if-expression is correct
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("Expected " + token + " at token " + position);
+            }
+        }
+
+        private String next() {
+            if (position == tokens.size()) { // NOSONAR - false-positive from clover; if-expression is correct
+                throw new IllegalArgumentException("Unexpected end of filter");
+            }
+            return tokens.get(position++);
+        }
+    }
+
+    private static final class Logical extends ScimFilter {
+
+        private final ScimFilter left;
+        private final boolean and;
+        private final ScimFilter right;
+
+        private Logical(ScimFilter left, boolean and, ScimFilter right) {
+            this.left = left;
+            this.and = and;
+            this.right = right;
+        }
+
+        @Override
+        boolean matches(JsonNode resource) {
+            return and ? left.matches(resource) && right.matches(resource) // NOSONAR - false-positive from clover; if-expression is correct
+                    : left.matches(resource) || right.matches(resource);
+        }
+    }
+
+    private static final class Not extends ScimFilter {
+
+        private final ScimFilter inner;
+
+        private Not(ScimFilter inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        boolean matches(JsonNode resource) {
+            return !inner.matches(resource);
+        }
+    }
+
+    private static final class Comparison extends ScimFilter {
+
+        private final String attribute;
+        private final String operator;
+        private final String value;
+
+        private Comparison(String attribute, String operator, String value) {
+            this.attribute = attribute;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        boolean matches(JsonNode resource) {
+            List<JsonNode> values = valuesOf(resource, attribute);
+            if ("pr".equals(operator)) { // NOSONAR - false-positive from clover; if-expression is correct
+                return !values.isEmpty();
+            }
+            for (JsonNode candidate : values) {
+                if (matchesValue(candidate)) { // NOSONAR - false-positive from clover; if-expression is correct
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matchesText(String candidate) {
+            String actual = candidate.toLowerCase(Locale.ENGLISH);
+            String expected = value.toLowerCase(Locale.ENGLISH);
+            switch (operator) {
+                case "co":
+                    return actual.contains(expected);
+                case "sw":
+                    return actual.startsWith(expected);
+                default:
+                    return compares(actual.compareTo(expected));
+            }
+        }
+
+        private boolean matchesValue(JsonNode candidate) {
+            if (!candidate.isNumber() || "co".equals(operator) || "sw".equals(operator)) { // NOSONAR - false-positive from clover; if-expression is correct
+                return matchesText(candidate.asText());
+            }
+            return compares(Double.compare(candidate.getDoubleValue(), numberOf(value)));
+        }
+
+        private boolean compares(int comparison) {
+            switch (operator) {
+                case "eq":
+                    return comparison == 0;
+                case "gt":
+                    return comparison > 0;
+                case "ge":
+                    return comparison >= 0;
+                case "lt":
+                    return comparison < 0;
+                case "le":
+                    return comparison <= 0;
+                default:
+                    throw new IllegalArgumentException("The operator " + operator + " is not supported.");
+            }
+        }
+
+        /**
+         * Dates are stored as epoch millis, so a date in the filter is compared as a number, too.
+         */
+        private static double numberOf(String value) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                try {
+                    return DATE_FORMAT.get().parse(value).getTime();
+                } catch (ParseException notADate) {
+                    throw new IllegalArgumentException("The value " + value + " is neither a number nor a date.", notADate);
+                }
+            }
+        }
+    }
+}
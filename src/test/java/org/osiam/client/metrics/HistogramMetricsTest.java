@@ -0,0 +1,174 @@
+package org.osiam.client.metrics;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.osiam.client.AccessTokenMockProvider;
+import org.osiam.client.OsiamUserService;
+import org.osiam.client.connection.ConnectionPool;
+import org.osiam.client.exception.NoResultException;
+import org.osiam.client.oauth.AccessToken;
+import org.osiam.client.oauth.AuthService;
+import org.osiam.client.oauth.GrantType;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+public class HistogramMetricsTest {
+
+    private static final String ENDPOINT = "http://localhost:9090/osiam-server";
+    private static final String USER_UUID_STRING = "94bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final String UNKNOWN_UUID_STRING = "55bbe688-4b1e-4e4e-80e7-e5ba5c4d6db4";
+    private static final int SERVER_DELAY_MILLIS = 200;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(9090);
+
+    private ConnectionPool pool;
+    private HistogramMetrics metrics;
+    private OsiamUserService service;
+    private AccessToken accessToken;
+
+    @Before
+    public void setUp() throws Exception {
+        pool = new ConnectionPool.Builder().build();
+        metrics = new HistogramMetrics();
+        service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool).metrics(metrics).build();
+        accessToken = new AccessTokenMockProvider("/__files/valid_accesstoken.json").valid_access_token();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void user_lookup_is_recorded_with_all_phases() {
+        given_a_user_exists();
+
+        service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+
+        OperationMetrics lookups = metrics.get("User", "get");
+        assertEquals(1, lookups.getCalls());
+        assertEquals(0, lookups.getErrors());
+        assertTrue(lookups.getBytesReceived() > 0);
+        assertEquals(0, lookups.getBytesSent());
+        assertEquals(1, lookups.getConnectionLatency().getCount());
+        assertEquals(1, lookups.getServerWaitLatency().getCount());
+        assertEquals(1, lookups.getDeserializationLatency().getCount());
+        assertTrue(lookups.getTotalLatency().getMax() >= lookups.getServerWaitLatency().getMax());
+    }
+
+    @Test
+    public void failed_lookup_is_counted_by_status() {
+        stubFor(get(urlEqualTo("/osiam-server/Users/" + UNKNOWN_UUID_STRING))
+                .willReturn(aResponse().withStatus(HttpStatus.SC_NOT_FOUND)));
+
+        try {
+            service.getUserByUUID(UUID.fromString(UNKNOWN_UUID_STRING), accessToken);
+            fail("Exception expected");
+        } catch (NoResultException expected) {
+            OperationMetrics lookups = metrics.get("User", "get");
+            assertEquals(1, lookups.getErrors());
+            assertEquals(Long.valueOf(1), lookups.getErrorsByStatus().get(HttpStatus.SC_NOT_FOUND));
+        }
+    }
+
+    @Test
+    public void token_request_is_recorded_with_request_size() {
+        stubFor(post(urlEqualTo("/osiam-server/oauth/token"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_OK)
+                        .withBodyFile("valid_accesstoken.json")));
+        AuthService authService = new AuthService.Builder(ENDPOINT).connectionPool(pool).metrics(metrics)
+                .clientId("example-client").clientSecret("secret").grantType(GrantType.CLIENT_CREDENTIALS).build();
+
+        authService.retrieveAccessToken();
+
+        OperationMetrics tokens = metrics.get("AccessToken", "token");
+        assertEquals(1, tokens.getCalls());
+        assertTrue(tokens.getBytesSent() > 0);
+        assertTrue(tokens.getBytesReceived() > 0);
+    }
+
+    @Test
+    public void failing_metrics_do_not_fail_the_request() {
+        given_a_user_exists();
+        service = new OsiamUserService.Builder(ENDPOINT).connectionPool(pool).metrics(new RequestMetrics() {
+            @Override
+            public void record(RequestSample sample) {
+                throw new IllegalStateException("metrics are broken");
+            }
+        }).build();
+
+        assertEquals(USER_UUID_STRING, service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken).getId());
+    }
+
+    @Test
+    public void installed_interceptors_tell_the_server_wait_apart() throws Exception {
+        stubFor(get(urlEqualTo("/osiam-server/Users/" + USER_UUID_STRING))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_OK)
+                        .withFixedDelay(SERVER_DELAY_MILLIS)
+                        .withBodyFile("user_" + USER_UUID_STRING + ".json")));
+        final RequestSample[] sample = new RequestSample[1];
+        RequestTimer timer = RequestTimer.start(new RequestMetrics() {
+            @Override
+            public void record(RequestSample recorded) {
+                sample[0] = recorded;
+            }
+        }, "get", "User");
+
+        try (CloseableHttpClient httpClient = RequestTimer.install(HttpClients.custom()).build()) {
+            EntityUtils.toString(timer.execute(httpClient, new HttpGet(ENDPOINT + "/Users/" + USER_UUID_STRING)).getEntity());
+            timer.finish();
+        }
+
+        assertEquals(HttpStatus.SC_OK, sample[0].getStatus());
+        assertTrue(sample[0].getConnectionNanos() >= 0);
+        assertTrue(sample[0].getConnectionNanos() < TimeUnit.MILLISECONDS.toNanos(SERVER_DELAY_MILLIS));
+        assertTrue(sample[0].getServerWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(SERVER_DELAY_MILLIS));
+        assertTrue(sample[0].getBytesReceived() > 0);
+    }
+
+    @Test
+    public void reset_drops_all_measurements() {
+        given_a_user_exists();
+        service.getUserByUUID(UUID.fromString(USER_UUID_STRING), accessToken);
+
+        metrics.reset();
+
+        assertNull(metrics.get("User", "get"));
+        assertTrue(metrics.getAll().isEmpty());
+    }
+
+    private void given_a_user_exists() {
+        stubFor(get(urlEqualTo("/osiam-server/Users/" + USER_UUID_STRING))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_OK)
+                        .withHeader("Content-Type", ContentType.APPLICATION_JSON.getMimeType())
+                        .withBodyFile("user_" + USER_UUID_STRING + ".json")));
+    }
+}
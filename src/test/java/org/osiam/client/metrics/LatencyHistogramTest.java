@@ -0,0 +1,76 @@
+package org.osiam.client.metrics;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    private static final double PRECISION = 1.0 / 64;
+    private static final long MILLIS = 1000000;
+
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void empty_histogram_reports_zero() {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99), 0);
+        assertEquals(0, histogram.getMean(), 0);
+    }
+
+    @Test
+    public void small_values_are_recorded_exactly() {
+        for (long value = 0; value < 100; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(49, histogram.getValueAtPercentile(50));
+        assertEquals(98, histogram.getValueAtPercentile(99));
+        assertEquals(99, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void percentiles_of_large_values_are_within_precision() {
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * MILLIS);
+        }
+
+        then_percentile_is_close_to(50, 500 * MILLIS);
+        then_percentile_is_close_to(90, 900 * MILLIS);
+        then_percentile_is_close_to(99.9, 999 * MILLIS);
+        assertEquals(1000 * MILLIS, histogram.getMax());
+        assertEquals(500.5 * MILLIS, histogram.getMean(), 500.5 * MILLIS * PRECISION);
+    }
+
+    @Test
+    public void negative_values_are_ignored() {
+        histogram.record(-1);
+
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentile_above_100_raises_exception() {
+        histogram.getValueAtPercentile(100.5);
+        fail("Exception expected");
+    }
+
+    private void then_percentile_is_close_to(double percentile, long expected) {
+        long value = histogram.getValueAtPercentile(percentile);
+        assertTrue(percentile + "th percentile was " + value,
+                Math.abs(value - expected) <= expected * PRECISION);
+    }
+}
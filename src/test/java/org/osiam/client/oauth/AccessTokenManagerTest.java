@@ -0,0 +1,174 @@
+package org.osiam.client.oauth;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.findAll;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.Charsets;
+import org.apache.http.HttpStatus;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+public class AccessTokenManagerTest {
+
+    private static final String ENDPOINT = "http://localhost:9090/osiam-server";
+    private static final String TOKEN_URL = "/osiam-server/oauth/token";
+    private static final String ACCESS_TOKEN_STRING = "c5d116cb-2758-4e7c-9aca-4a115bc4f19e";
+    private static final String REFRESH_TOKEN_STRING = "2a1a6fd8-1c3f-4b4d-9e52-0b4c2ad6a8f1";
+    private static final int NUMBER_OF_CALLERS = 10;
+    private static final int RESPONSE_DELAY_MILLIS = 200;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(9090);
+
+    private AccessTokenManager manager;
+    private AccessToken accessToken;
+
+    @Before
+    public void setUp() {
+        AuthService authService = new AuthService.Builder(ENDPOINT)
+                .grantType(GrantType.PASSWORD)
+                .clientId("valid-client")
+                .clientSecret("valid_secret")
+                .username("valid-username")
+                .password("valid-password")
+                .build();
+        manager = new AccessTokenManager(authService);
+    }
+
+    @Test
+    public void valid_token_is_retrieved_only_once() {
+        given_oauth_server_issues_tokens_valid_for(3599);
+
+        when_token_is_requested_times(3);
+
+        then_number_of_token_requests_is(1);
+        assertEquals(ACCESS_TOKEN_STRING, accessToken.getToken());
+        assertFalse(accessToken.isExpired());
+    }
+
+    @Test
+    public void expired_token_is_renewed() throws Exception {
+        given_oauth_server_issues_tokens_valid_for(0);
+
+        when_token_is_requested_times(1);
+        Thread.sleep(5);
+        when_token_is_requested_times(1);
+
+        then_number_of_token_requests_is(2);
+    }
+
+    @Test
+    public void expired_token_with_refresh_token_is_renewed_with_refresh_grant() throws Exception {
+        given_oauth_server_issues_tokens_with_refresh_token_valid_for(0);
+
+        when_token_is_requested_times(1);
+        Thread.sleep(5);
+        when_token_is_requested_times(1);
+
+        then_number_of_token_requests_with_grant_is("password", 1);
+        then_number_of_token_requests_with_grant_is("refresh_token", 1);
+    }
+
+    @Test
+    public void invalidated_token_is_renewed() {
+        given_oauth_server_issues_tokens_valid_for(3599);
+
+        when_token_is_requested_times(1);
+        manager.invalidate();
+        when_token_is_requested_times(1);
+
+        then_number_of_token_requests_is(2);
+    }
+
+    @Test
+    public void concurrent_callers_share_one_retrieval() throws Exception {
+        given_oauth_server_issues_tokens_valid_for(3599);
+
+        when_token_is_requested_concurrently();
+
+        then_number_of_token_requests_is(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void null_auth_service_raises_exception() {
+        new AccessTokenManager(null);
+        fail("Exception expected");
+    }
+
+    private void given_oauth_server_issues_tokens_valid_for(int seconds) {
+        String token = "{\"access_token\":\"" + ACCESS_TOKEN_STRING + "\",\"token_type\":\"bearer\"," +
+                "\"expires_in\":" + seconds + ",\"scope\":\"GET\"}";
+        stubFor(post(urlEqualTo(TOKEN_URL))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withFixedDelay(RESPONSE_DELAY_MILLIS)
+                        .withBody(token.getBytes(Charsets.UTF_8))));
+    }
+
+    private void given_oauth_server_issues_tokens_with_refresh_token_valid_for(int seconds) {
+        String token = "{\"access_token\":\"" + ACCESS_TOKEN_STRING + "\",\"token_type\":\"bearer\"," +
+                "\"expires_in\":" + seconds + ",\"scope\":\"GET\",\"refresh_token\":\"" + REFRESH_TOKEN_STRING + "\"}";
+        stubFor(post(urlEqualTo(TOKEN_URL))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_OK)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody(token.getBytes(Charsets.UTF_8))));
+    }
+
+    private void when_token_is_requested_times(int times) {
+        for (int i = 0; i < times; i++) {
+            accessToken = manager.getAccessToken();
+        }
+    }
+
+    private void when_token_is_requested_concurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_CALLERS);
+        try {
+            List<Future<AccessToken>> tokens = new ArrayList<>();
+            for (int i = 0; i < NUMBER_OF_CALLERS; i++) {
+                tokens.add(executor.submit(new Callable<AccessToken>() {
+                    @Override
+                    public AccessToken call() {
+                        return manager.getAccessToken();
+                    }
+                }));
+            }
+            for (Future<AccessToken> token : tokens) {
+                assertEquals(ACCESS_TOKEN_STRING, token.get().getToken());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void then_number_of_token_requests_with_grant_is(String grantType, int number) {
+        assertEquals(number, findAll(postRequestedFor(urlEqualTo(TOKEN_URL))
+                .withRequestBody(containing("grant_type=" + grantType))).size());
+    }
+
+    private void then_number_of_token_requests_is(int number) {
+        assertEquals(number, findAll(postRequestedFor(urlEqualTo(TOKEN_URL))).size());
+    }
+}
@@ -5,8 +5,8 @@ package org.osiam.client.oauth;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
-import static org.junit.Assert.fail;
 
 import java.io.IOException;
 
@@ -21,6 +21,7 @@ public class AccessTokenTest {
 
     private final static String TOKEN = "c5d116cb-2758-4e7c-9aca-4a115bc4f19e";
     private final static String TOKEN_TYPE = "bearer";
+    private final static String REFRESH_TOKEN = "2a1a6fd8-1c3f-4b4d-9e52-0b4c2ad6a8f1";
     private AccessTokenMockProvider tokenProvider;
     private AccessToken accessToken;
 
@@ -59,11 +60,16 @@ public class AccessTokenTest {
                 .verify();
     }
 
-    @Test(expected = NoSuchMethodError.class)
-    public void getRefreshToken_raises_exception() throws IOException {
+    @Test
+    public void getRefreshToken_returns_granted_refresh_token() throws IOException {
+        accessToken = new AccessTokenMockProvider("/__files/valid_accesstoken_with_refresh_token.json").valid_access_token();
+        assertEquals(REFRESH_TOKEN, accessToken.getRefreshToken());
+    }
+
+    @Test
+    public void getRefreshToken_returns_null_if_none_was_granted() throws IOException {
         given_a_valid_access_token();
-        accessToken.getRefreshToken();
-        fail();
+        assertNull(accessToken.getRefreshToken());
     }
 
     private void given_an_expired_access_token() throws Exception {
@@ -76,4 +76,19 @@ public class AuthServiceBuilderTest {
                 .password(IRRELEVANT).build();
         fail("We expected an exception");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void client_credentials_grant_needs_no_user_credentials() throws Exception {
+        AuthService as = new AuthService.Builder(IRRELEVANT).grantType(GrantType.CLIENT_CREDENTIALS)
+                .clientId(IRRELEVANT)
+                .clientSecret(IRRELEVANT)
+                .build();
+        assertEquals(new URI(IRRELEVANT + "/oauth/token"), as.getUri());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void refresh_token_grant_type_raises_exception() {
+        new AuthService.Builder(IRRELEVANT).grantType(GrantType.REFRESH_TOKEN);
+        fail("We expected an exception");
+    }
+}
@@ -4,6 +4,7 @@ package org.osiam.client.oauth;
  */
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
@@ -14,6 +15,7 @@ import static org.junit.Assert.fail;
 import java.net.URI;
 import java.net.URISyntaxException;
 
+import org.apache.commons.io.Charsets;
 import org.apache.http.HttpStatus;
 import org.junit.Rule;
 import org.junit.Test;
@@ -34,6 +36,8 @@ public class AuthServiceTest {
     private final static String VALID_USERNAME = "valid-username";
     private final static String VALID_PASSWORD = "valid-password";
     private final static String ACCESS_TOKEN_STRING = "c5d116cb-2758-4e7c-9aca-4a115bc4f19e";
+    private final static String REFRESHED_ACCESS_TOKEN_STRING = "d7a6b1c2-41e6-4a2b-8c1b-6f0e3b2d9a57";
+    private final static String REFRESH_TOKEN_STRING = "2a1a6fd8-1c3f-4b4d-9e52-0b4c2ad6a8f1";
 
     @Rule
     public WireMockClassRule wireMockRule = new WireMockClassRule(9090);
@@ -111,6 +115,43 @@ public class AuthServiceTest {
         then_exception_has_to_be_thrown();
     }
 
+    @Test
+    public void service_refreshes_access_token_with_refresh_grant() {
+        given_a_correctly_configured_auth_service();
+        given_oauth_server_issues_access_token_with_refresh_token();
+        given_oauth_server_refreshes_access_token();
+
+        when_token_is_requested();
+        when_token_is_refreshed();
+
+        then_access_token_is_refreshed_one();
+    }
+
+    @Test
+    public void client_credentials_grant_sends_no_user_credentials() {
+        given_an_auth_service_with_client_credentials_grant();
+        stubFor(post(urlEqualTo("/osiam-server/" + TOKEN_PATH))
+                .withRequestBody(containing("grant_type=client_credentials"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_OK)
+                        .withBodyFile("valid_accesstoken.json")));
+
+        when_token_is_requested();
+
+        then_access_token_is_expected_one();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refreshing_access_token_without_refresh_token_raises_exception() {
+        given_a_correctly_configured_auth_service();
+        given_oauth_server_issues_access_token();
+
+        when_token_is_requested();
+        when_token_is_refreshed();
+
+        then_exception_has_to_be_thrown();
+    }
+
     private void given_a_wrong_configured_auth_service_with_wrong_endpoint() {
         service = new AuthService.Builder(WRONG_ENDPOINT)
                 .grantType(GrantType.PASSWORD)
@@ -141,6 +182,32 @@ public class AuthServiceTest {
                 .build();
     }
 
+    private void given_an_auth_service_with_client_credentials_grant() {
+        service = new AuthService.Builder(ENDPOINT)
+                .grantType(GrantType.CLIENT_CREDENTIALS)
+                .clientId(VALID_CLIENT_ID)
+                .clientSecret(VALID_CLIENT_SECRET)
+                .build();
+    }
+
+    private void given_oauth_server_issues_access_token_with_refresh_token() {
+        stubFor(post(urlEqualTo("/osiam-server/" + TOKEN_PATH))
+                .withRequestBody(containing("grant_type=password"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_OK)
+                        .withBodyFile("valid_accesstoken_with_refresh_token.json")));
+    }
+
+    private void given_oauth_server_refreshes_access_token() {
+        stubFor(post(urlEqualTo("/osiam-server/" + TOKEN_PATH))
+                .withRequestBody(containing("grant_type=refresh_token"))
+                .withRequestBody(containing("refresh_token=" + REFRESH_TOKEN_STRING))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.SC_OK)
+                        .withBody(("{\"access_token\":\"" + REFRESHED_ACCESS_TOKEN_STRING + "\",\"token_type\":\"bearer\","
+                                + "\"expires_in\":3599,\"scope\":\"GET\"}").getBytes(Charsets.UTF_8))));
+    }
+
     private void given_oauth_server_issues_access_token() {
         stubFor(post(urlEqualTo("/osiam-server/" + TOKEN_PATH)).
                 willReturn(aResponse()
@@ -170,6 +237,14 @@ public class AuthServiceTest {
         accessToken = service.retrieveAccessToken();
     }
     
+    private void when_token_is_refreshed() {
+        accessToken = service.refreshAccessToken(accessToken);
+    }
+
+    private void then_access_token_is_refreshed_one() {
+        assertEquals(REFRESHED_ACCESS_TOKEN_STRING, accessToken.getToken());
+    }
+
     private void then_uri_is_expected_one() throws URISyntaxException {
         assertEquals(new URI(ENDPOINT + TOKEN_PATH), service.getUri());
     }
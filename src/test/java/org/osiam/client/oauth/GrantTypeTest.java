@@ -26,7 +26,9 @@ public class GrantTypeTest {
     @Parameterized.Parameters
     public static Collection<Object[]> generateTestData() {
         return Arrays.asList(new Object[][]{
-                {GrantType.PASSWORD, "password"}
+                {GrantType.PASSWORD, "password"},
+                {GrantType.CLIENT_CREDENTIALS, "client_credentials"},
+                {GrantType.REFRESH_TOKEN, "refresh_token"}
         });
     }
 
@@ -0,0 +1,54 @@
+package org.osiam.client.query;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.osiam.client.query.metamodel.Group_;
+import org.osiam.client.query.metamodel.User_;
+import org.osiam.resources.scim.Group;
+import org.osiam.resources.scim.User;
+
+public class AttributeIndexTest {
+
+    @Test
+    public void declared_and_inherited_fields_are_valid() {
+        assertTrue(AttributeIndex.isValid("userName", User.class));
+        assertTrue(AttributeIndex.isValid("id", User.class));
+        assertTrue(AttributeIndex.isValid("displayName", Group.class));
+    }
+
+    @Test
+    public void lookup_ignores_case() {
+        assertTrue(AttributeIndex.isValid("USERNAME", User.class));
+        assertTrue(AttributeIndex.isValid("name.GIVENNAME", User.class));
+    }
+
+    @Test
+    public void sub_attributes_are_checked_against_their_type() {
+        assertTrue(AttributeIndex.isValid("meta.created", User.class));
+        assertTrue(AttributeIndex.isValid("emails.value", User.class));
+        assertFalse(AttributeIndex.isValid("name.value", User.class));
+    }
+
+    @Test
+    public void metamodel_attributes_are_valid() {
+        assertTrue(AttributeIndex.isValid(User_.phoneNumbers.value.toString(), User.class));
+        assertTrue(AttributeIndex.isValid(User_.addresses.postalCode.toString(), User.class));
+        assertTrue(AttributeIndex.isValid(Group_.members.value.toString(), Group.class));
+    }
+
+    @Test
+    public void unknown_attributes_are_invalid() {
+        assertFalse(AttributeIndex.isValid("members.value", User.class));
+        assertFalse(AttributeIndex.isValid("irrelevant", Group.class));
+    }
+
+    @Test
+    public void classes_unknown_to_the_metamodel_have_no_attributes() {
+        assertFalse(AttributeIndex.isValid("value", String.class));
+    }
+}
@@ -0,0 +1,161 @@
+package org.osiam.client.query;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.osiam.client.query.metamodel.Meta_;
+import org.osiam.client.query.metamodel.Parameter;
+import org.osiam.client.query.metamodel.User_;
+import org.osiam.resources.scim.User;
+
+public class LocalEvaluationTest {
+
+    private static final long T1 = 1380000000000L;
+    private static final long T2 = T1 + 1000;
+    private static final long T3 = T1 + 2000;
+
+    private List<User> users;
+    private Query.Filter filter;
+
+    @Before
+    public void setUp() throws IOException {
+        users = new ArrayList<>();
+        users.add(user("u1", "bjensen", "Barbara", "babs@example.com", T1));
+        users.add(user("u2", "jsmith", "John", "john@work.example.org", T2));
+        users.add(user("u3", "adoe", null, "anna@example.com", T3));
+        filter = new Query.Filter(User.class);
+    }
+
+    @Test
+    public void string_comparisons_ignore_case() {
+        assertMatches(filter.startsWith(User_.userName.equalTo("BJensen")), "u1");
+        assertMatches(filter.startsWith(User_.userName.contains("SMI")), "u2");
+        assertMatches(filter.startsWith(User_.userName.startsWith("a")), "u3");
+    }
+
+    @Test
+    public void present_requires_a_value() {
+        assertMatches(filter.startsWith(User_.name.givenName.present()), "u1", "u2");
+    }
+
+    @Test
+    public void multi_valued_attributes_match_any_value() {
+        assertMatches(filter.startsWith(User_.emails.value.contains("@example.com")), "u1", "u3");
+    }
+
+    @Test
+    public void dates_are_compared_by_point_in_time() {
+        assertMatches(filter.startsWith(Meta_.lastModified.greaterThan(T1)), "u2", "u3");
+        assertMatches(filter.startsWith(Meta_.lastModified.lessEquals(T2)), "u1", "u2");
+        assertMatches(filter.startsWith(Meta_.lastModified.equalTo(new Date(T3))), "u3");
+    }
+
+    @Test
+    public void and_binds_tighter_than_or() {
+        Query.Filter chain = filter.startsWith(User_.userName.equalTo("bjensen"))
+                .or(User_.userName.equalTo("jsmith")).and(User_.emails.value.contains("example.org"));
+        assertMatches(chain, "u1", "u2");
+        Query.Filter other = filter.startsWith(User_.userName.equalTo("adoe"))
+                .and(User_.userName.equalTo("jsmith")).or(User_.userName.equalTo("bjensen"));
+        assertMatches(other, "u1");
+    }
+
+    @Test
+    public void groups_and_negation_are_evaluated() {
+        Query.Filter inner = new Query.Filter(User.class).startsWith(User_.userName.equalTo("bjensen"))
+                .or(User_.userName.equalTo("jsmith"));
+        assertMatches(filter.startsWith(User_.emails.value.contains("example")).and(inner.not()), "u3");
+    }
+
+    @Test
+    public void bound_template_is_evaluated() {
+        Query.Filter template = filter.startsWith(User_.userName.equalTo(Parameter.named("userName")));
+        assertMatches(template.bind("userName", "jsmith"), "u2");
+    }
+
+    @Test
+    public void query_with_bound_date_template_is_evaluated() {
+        Query.Filter template = filter.startsWith(Meta_.lastModified.greaterEquals(Parameter.named("since")))
+                .and(User_.emails.value.contains(Parameter.named("domain")));
+        Query query = new Query.Builder(User.class)
+                .filter(template.bind("since", new Date(T2)).bind("domain", "example.com")).build();
+
+        assertEquals(ids("u3"), idsOf(query.evaluate(users).getResources()));
+    }
+
+    @Test
+    public void query_is_sorted_and_paged() {
+        Query query = new Query.Builder(User.class).filter(filter.startsWith(User_.userName.present()))
+                .sortBy(User_.userName).sortOrder(SortOrder.DESCENDING).countPerPage(2).build();
+
+        QueryResult<User> firstPage = query.evaluate(users);
+        QueryResult<User> secondPage = query.nextPage().evaluate(users);
+
+        assertEquals(3, firstPage.getTotalResults());
+        assertEquals(ids("u2", "u1"), idsOf(firstPage.getResources()));
+        assertEquals(ids("u3"), idsOf(secondPage.getResources()));
+        assertEquals(2, secondPage.getStartIndex());
+    }
+
+    @Test
+    public void query_without_filter_returns_all_resources() {
+        QueryResult<User> result = new Query.Builder(User.class).build().evaluate(users);
+        assertEquals(3, result.getTotalResults());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void query_with_string_filter_can_not_be_evaluated() {
+        new Query.Builder(User.class).filter("userName eq \"bjensen\"").build().evaluate(users);
+    }
+
+    @Test
+    public void empty_filter_matches_everything() {
+        assertTrue(filter.matches(users.get(0)));
+        assertFalse(filter.startsWith(User_.title.present()).matches(users.get(0)));
+    }
+
+    private void assertMatches(Query.Filter filter, String... expectedIds) {
+        List<User> matching = new ArrayList<>();
+        for (User user : users) {
+            if (filter.matches(user)) {
+                matching.add(user);
+            }
+        }
+        assertEquals(ids(expectedIds), idsOf(matching));
+    }
+
+    private static List<String> ids(String... ids) {
+        List<String> result = new ArrayList<>();
+        for (String id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    private static List<String> idsOf(List<User> users) {
+        List<String> result = new ArrayList<>();
+        for (User user : users) {
+            result.add(user.getId());
+        }
+        return result;
+    }
+
+    private static User user(String id, String userName, String givenName, String email, long lastModified) throws IOException {
+        String name = givenName == null ? "" : ", \"name\": {\"givenName\": \"" + givenName + "\"}";
+        return new ObjectMapper().readValue("{\"id\": \"" + id + "\", \"userName\": \"" + userName + "\"" + name
+                + ", \"emails\": [{\"value\": \"" + email + "\"}], \"meta\": {\"lastModified\": " + lastModified + "}}",
+                User.class);
+    }
+}
@@ -14,6 +14,7 @@ import org.junit.Test;
 import org.osiam.client.exception.InvalidAttributeException;
 import org.osiam.client.query.metamodel.DateAttribute;
 import org.osiam.client.query.metamodel.Group_;
+import org.osiam.client.query.metamodel.Parameter;
 import org.osiam.client.query.metamodel.StringAttribute;
 import org.osiam.client.query.metamodel.User_;
 import org.osiam.resources.scim.User;
@@ -274,6 +275,74 @@ public class UserQueryBuilderTest {
         fail("Exception excpected");
     }
 
+    @Test
+    public void quotes_and_backslashes_in_values_are_escaped() {
+        filter = filter.startsWith(DEFAULT_ATTR.equalTo("say \"hi\" \\o/"));
+        queryBuilder.filter(filter);
+        buildStringMeetsExpectation(FILTER + encodeExpectedString(DEFAULT_ATTR + " eq \"say \\\"hi\\\" \\\\o/\""));
+    }
+
+    @Test
+    public void composing_a_filter_leaves_the_original_unchanged() {
+        Query.Filter base = filter.startsWith(DEFAULT_ATTR.contains(IRRELEVANT));
+        base.and(VALID_EMAIL_ATTR.equalTo(IRRELEVANT));
+        assertEquals(DEFAULT_ATTR + " co \"" + IRRELEVANT + "\"", base.toString());
+    }
+
+    @Test
+    public void negated_filter_is_added_to_query() {
+        Query.Filter innerFilter = new Query.Filter(User.class).startsWith(DEFAULT_ATTR.equalTo(IRRELEVANT)).not();
+        filter = filter.startsWith(DEFAULT_ATTR.present()).and(innerFilter);
+        queryBuilder.filter(filter);
+        buildStringMeetsExpectation(FILTER + encodeExpectedString(DEFAULT_ATTR + " pr  and (not (" + DEFAULT_ATTR
+                + " eq \"" + IRRELEVANT + "\"))"));
+    }
+
+    @Test
+    public void template_is_bound_to_parameters() {
+        Query.Filter template = filter.startsWith(DEFAULT_ATTR.equalTo(Parameter.named("given")))
+                .and(VALID_META_ATTR.greaterThan(Parameter.named("since")));
+        queryBuilder.filter(template.bind("given", IRRELEVANT).bind("since", DATE));
+        buildStringMeetsExpectation(FILTER + encodeExpectedString(DEFAULT_ATTR + " eq \"" + IRRELEVANT + "\" and "
+                + VALID_META_ATTR + " gt \"" + DATE_STR + "\""));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void unbound_template_is_not_accepted(){
+        queryBuilder.filter(filter.startsWith(DEFAULT_ATTR.equalTo(Parameter.named("given"))));
+        fail("Exception excpected");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void binding_an_unknown_parameter_raises_exception(){
+        filter.startsWith(DEFAULT_ATTR.equalTo(Parameter.named("given"))).bind("unknown", IRRELEVANT);
+        fail("Exception excpected");
+    }
+
+    @Test
+    public void attributes_are_added_to_query() {
+        queryBuilder.attributes(User_.id, User_.userName, VALID_NAME_ATTR, VALID_META_ATTR);
+        buildStringMeetsExpectation("attributes=id,userName," + VALID_NAME_ATTR + "," + VALID_META_ATTR);
+    }
+
+    @Test
+    public void attributes_are_placed_before_paging() {
+        queryBuilder.sortBy(User_.userName).attributes(User_.id).countPerPage(COUNT_PER_PAGE);
+        buildStringMeetsExpectation("sortBy=userName&attributes=id&count=" + COUNT_PER_PAGE);
+    }
+
+    @Test (expected = InvalidAttributeException.class)
+    public void invalid_attribut_to_project_on_added(){
+        queryBuilder.attributes(User_.id, IRRELEVANT_FIELD);
+        fail("Exception excpected");
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void empty_attributes_raise_exception(){
+        queryBuilder.attributes();
+        fail("Exception excpected");
+    }
+
     private void buildStringMeetsExpectation(String buildString) {
         Query expectedQuery = new Query(buildString);
 	    assertEquals(expectedQuery, queryBuilder.build());
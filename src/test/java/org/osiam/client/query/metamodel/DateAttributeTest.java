@@ -0,0 +1,83 @@
+package org.osiam.client.query.metamodel;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class DateAttributeTest {
+
+    private static final long[] MILLIS = {0L, 1L, 999L, 1380000000123L, 1388534399999L, -62135769600000L, 253402300799999L};
+
+    @Test
+    public void dates_are_formatted_like_the_simple_date_format() {
+        DateFormat expected = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+        for (long millis : MILLIS) {
+            assertEquals(expected.format(new Date(millis)), DateAttribute.format(millis));
+        }
+    }
+
+    @Test
+    public void epoch_millis_and_date_produce_the_same_comparison() {
+        long millis = 1380000000123L;
+        assertEquals(Meta_.lastModified.greaterThan(new Date(millis)).toString(),
+                Meta_.lastModified.greaterThan(millis).toString());
+    }
+
+    @Test
+    public void date_comparison_carries_the_formatted_date() {
+        long millis = 1380000000123L;
+        Comparison comparison = Meta_.created.lessThan(millis);
+
+        assertEquals(DateAttribute.format(millis), comparison.getValue());
+        assertTrue(comparison.isDated());
+        assertEquals(millis, comparison.getEpochMillis());
+        assertEquals("meta.created lt \"" + DateAttribute.format(millis) + "\"", comparison.toString());
+    }
+
+    @Test
+    public void bound_date_parameter_produces_the_same_comparison() {
+        long millis = 1380000000123L;
+        Comparison bound = Meta_.created.greaterEquals(Parameter.named("since")).bind(new Date(millis));
+
+        assertEquals(Meta_.created.greaterEquals(millis).toString(), bound.toString());
+        assertEquals(DateAttribute.format(millis), bound.getValue());
+        assertEquals(millis, bound.getEpochMillis());
+    }
+
+    @Test
+    public void concurrent_formatting_produces_correct_dates() throws Exception {
+        final DateFormat expected = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                final long millis = 1380000000000L + i * 86400123L;
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        return DateAttribute.format(millis);
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(expected.format(new Date(1380000000000L + i * 86400123L)), results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.osiam.client.query.metamodel;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.osiam.resources.scim.Group;
+import org.osiam.resources.scim.Meta;
+import org.osiam.resources.scim.User;
+
+public class MetamodelTest {
+
+    @Test
+    public void complex_attributes_are_initialized() {
+        assertNotNull(User_.meta);
+        assertNotNull(User_.name);
+        assertNotNull(User_.emails);
+        assertNotNull(Group_.members);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void deprecated_aliases_point_to_the_correct_attributes() {
+        assertSame(User_.roles, User_.toles);
+        assertSame(User_.phoneNumbers, User_.phoneNumber);
+    }
+
+    @Test
+    public void sub_attributes_carry_their_path() {
+        assertEquals("roles.value", User_.roles.value.toString());
+        assertEquals("x509Certificates.type", User_.x509Certificates.type.toString());
+    }
+
+    @Test
+    public void attributes_are_generated_from_the_resource_classes() {
+        assertEquals("name.middleName", Name_.middleName.toString());
+        assertEquals("members.display", Members_.display.toString());
+        assertEquals("groups.primary", UserGroups_.primary.toString());
+    }
+
+    @Test
+    public void date_fields_become_date_attributes() {
+        assertTrue(Meta_.created instanceof DateAttribute);
+        assertTrue(Meta_.lastModified instanceof DateAttribute);
+    }
+
+    @Test
+    public void attribute_table_lists_fields_and_metamodel_paths_in_lower_case() {
+        assertTrue(AttributeTable.of(User.class).contains("username"));
+        assertTrue(AttributeTable.of(User.class).contains("name.givenname"));
+        assertTrue(AttributeTable.of(Group.class).contains("members.value"));
+        assertTrue(AttributeTable.of(Meta.class).contains("lastmodified"));
+        assertNull(AttributeTable.of(String.class));
+    }
+
+    @Test(expected = NoSuchFieldException.class)
+    public void excluded_attributes_are_not_generated() throws Exception {
+        User_.class.getField("password");
+    }
+
+    @Test(expected = NoSuchFieldException.class)
+    public void attributes_excluded_by_name_are_left_out_of_all_classes() throws Exception {
+        Emails_.class.getField("operation");
+    }
+}
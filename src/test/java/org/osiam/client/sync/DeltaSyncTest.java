@@ -0,0 +1,148 @@
+package org.osiam.client.sync;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.osiam.client.UserPageStubs.ENDPOINT;
+import static org.osiam.client.UserPageStubs.givenUserPage;
+import static org.osiam.client.UserPageStubs.user;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.osiam.client.OsiamUserService;
+import org.osiam.client.UserPageStubs.CountingAccessTokenProvider;
+import org.osiam.resources.scim.User;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+public class DeltaSyncTest {
+
+    private static final int COUNT = 2;
+    private static final long T1 = 1380000000000L;
+    private static final long T2 = T1 + 1000;
+    private static final long T3 = T1 + 2000;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(9090);
+
+    private DeltaSync<User> deltaSync;
+    private List<String> changedIds = new ArrayList<>();
+    private int delivered;
+    private CountingAccessTokenProvider tokenProvider;
+
+    @Before
+    public void setUp() throws IOException {
+        tokenProvider = new CountingAccessTokenProvider();
+        deltaSync = DeltaSync.users(new OsiamUserService.Builder(ENDPOINT).build(), tokenProvider)
+                .countPerPage(COUNT).build();
+    }
+
+    @Test
+    public void first_cycle_delivers_all_resources_and_pages_from_the_mark() {
+        givenPage(null, 0, user("u1", T1), user("u2", T2));
+        givenPage(T2, 0, user("u2", T2), user("u3", T3));
+        givenPage(T3, 0, user("u3", T3));
+
+        whenSynchronized();
+
+        assertEquals(3, delivered);
+        assertEquals(list("u1", "u2", "u3"), changedIds);
+        assertEquals(new Date(T3), deltaSync.getHighWaterMark());
+    }
+
+    @Test
+    public void next_cycle_delivers_only_newer_resources() {
+        givenPage(null, 0, user("u1", T1));
+        givenPage(T1, 0, user("u1", T1), user("u2", T3));
+        givenPage(T3, 0, user("u2", T3));
+
+        whenSynchronized();
+        changedIds.clear();
+        whenSynchronized();
+
+        assertEquals(1, delivered);
+        assertEquals(list("u2"), changedIds);
+        assertEquals(new Date(T3), deltaSync.getHighWaterMark());
+    }
+
+    @Test
+    public void full_pages_of_equal_timestamps_are_paged_through() {
+        givenPage(null, 0, user("u1", T1), user("u2", T1));
+        givenPage(T1, 0, user("u1", T1), user("u2", T1));
+        givenPage(T1, COUNT, user("u3", T1));
+
+        whenSynchronized();
+
+        assertEquals(list("u1", "u2", "u3"), changedIds);
+    }
+
+    @Test
+    public void every_page_request_takes_its_token_from_the_provider() {
+        givenPage(null, 0, user("u1", T1), user("u2", T2));
+        givenPage(T2, 0, user("u2", T2));
+
+        whenSynchronized();
+
+        assertEquals(2, tokenProvider.getRequests());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missing_access_token_provider_raises_exception() {
+        DeltaSync.users(new OsiamUserService.Builder(ENDPOINT).build(), null);
+    }
+
+    @Test
+    public void resynchronize_delivers_all_resources_regardless_of_the_mark() {
+        givenPage(null, 0, user("u1", T1));
+        givenPage(T1, 0, user("u1", T1));
+        whenSynchronized();
+        changedIds.clear();
+
+        Set<String> ids = deltaSync.resynchronize(new ChangeListener<User>() {
+            @Override
+            public void changed(User resource) {
+                changedIds.add(resource.getId());
+            }
+        });
+
+        assertEquals(Collections.singleton("u1"), ids);
+        assertEquals(list("u1"), changedIds);
+        assertEquals(new Date(T1), deltaSync.getHighWaterMark());
+    }
+
+    @Test
+    public void high_water_mark_is_empty_before_the_first_cycle() {
+        assertNull(deltaSync.getHighWaterMark());
+    }
+
+    private void whenSynchronized() {
+        delivered = deltaSync.synchronize(new ChangeListener<User>() {
+            @Override
+            public void changed(User resource) {
+                changedIds.add(resource.getId());
+            }
+        });
+    }
+
+    private static void givenPage(Long mark, int startIndex, String... users) {
+        givenUserPage(mark, COUNT, startIndex, users);
+    }
+
+    private static List<String> list(String... ids) {
+        List<String> result = new ArrayList<>();
+        for (String id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+package org.osiam.client.sync;
+/*
+ * for licensing see the file license.txt.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.osiam.client.UserPageStubs.ENDPOINT;
+import static org.osiam.client.UserPageStubs.givenUserPage;
+import static org.osiam.client.UserPageStubs.user;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.osiam.client.OsiamUserService;
+import org.osiam.client.UserPageStubs.CountingAccessTokenProvider;
+import org.osiam.client.query.metamodel.User_;
+import org.osiam.resources.scim.User;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+public class ReplicaTest {
+
+    private static final int COUNT = 100;
+    private static final long T1 = 1380000000000L;
+    private static final long T2 = T1 + 1000;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(9090);
+
+    private Replica<User> replica;
+
+    @Before
+    public void setUp() throws IOException {
+        replica = Replica.users(new OsiamUserService.Builder(ENDPOINT).build(), new CountingAccessTokenProvider());
+        givenPage(null, user("u1", "bjensen", "ext1", "Babs@Example.com", T1), user("u2", "jsmith", "ext2", "js@example.com", T1));
+    }
+
+    @Test
+    public void first_refresh_loads_all_users() {
+        assertEquals(2, replica.refresh());
+        assertEquals(2, replica.size());
+        assertEquals("bjensen", replica.getById("u1").getUserName());
+    }
+
+    @Test
+    public void users_are_found_by_indexed_attributes() {
+        replica.refresh();
+
+        assertEquals("u1", single(replica.findEqual(User_.userName, "BJensen")).getId());
+        assertEquals("u1", single(replica.findEqual(User_.emails.value, "babs@example.com")).getId());
+        assertEquals("u2", single(replica.findEqual(User_.externalId, "ext2")).getId());
+        assertEquals("u2", single(replica.findEqual(User_.id, "u2")).getId());
+        assertTrue(replica.findEqual(User_.externalId, "EXT2").isEmpty());
+    }
+
+    @Test
+    public void later_refresh_updates_the_indexes() {
+        replica.refresh();
+        givenPage(T1, user("u1", "bjensen", "ext1", "Babs@Example.com", T1), user("u2", "jdoe", "ext2", "js@example.com", T2));
+
+        assertEquals(1, replica.refresh());
+
+        assertTrue(replica.findEqual(User_.userName, "jsmith").isEmpty());
+        assertEquals("u2", single(replica.findEqual(User_.userName, "jdoe")).getId());
+    }
+
+    @Test
+    public void evicted_user_is_removed_from_all_indexes() {
+        replica.refresh();
+
+        replica.evict("u1");
+
+        assertNull(replica.getById("u1"));
+        assertTrue(replica.findEqual(User_.emails.value, "babs@example.com").isEmpty());
+    }
+
+    @Test
+    public void reconcile_drops_deleted_users() {
+        replica.refresh();
+        givenPage(null, user("u2", "jsmith", "ext2", "js@example.com", T1));
+
+        assertEquals(1, replica.reconcile());
+
+        assertEquals(1, replica.size());
+        assertNull(replica.getById("u1"));
+        assertTrue(replica.findEqual(User_.userName, "bjensen").isEmpty());
+    }
+
+    @Test
+    public void refresh_reconciles_once_the_interval_has_passed() throws Exception {
+        replica.reconcileEvery(1, TimeUnit.MILLISECONDS).refresh();
+        givenPage(null, user("u2", "jsmith", "ext2", "js@example.com", T1));
+        Thread.sleep(5);
+
+        replica.refresh();
+
+        assertNull(replica.getById("u1"));
+        assertEquals("u2", replica.getById("u2").getId());
+    }
+
+    @Test
+    public void refresh_without_interval_keeps_deleted_users() {
+        replica.refresh();
+        givenPage(null, user("u2", "jsmith", "ext2", "js@example.com", T1));
+        givenPage(T1, user("u2", "jsmith", "ext2", "js@example.com", T1));
+
+        replica.refresh();
+
+        assertEquals(2, replica.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void non_positive_reconcile_interval_raises_exception() {
+        replica.reconcileEvery(0, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lookup_on_not_indexed_attribute_raises_exception() {
+        replica.findEqual(User_.displayName, "irrelevant");
+    }
+
+    private static void givenPage(Long mark, String... users) {
+        givenUserPage(mark, COUNT, 0, users);
+    }
+
+    private static User single(List<User> users) {
+        assertEquals(1, users.size());
+        return users.get(0);
+    }
+}